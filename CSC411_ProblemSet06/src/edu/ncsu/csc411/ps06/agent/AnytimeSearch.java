@@ -0,0 +1,295 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import java.util.Arrays;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+
+/**
+ * Anytime Repairing A* (Likhachev, Gordon and Thrun) towards one goal cell,
+ * which stops when a deadline passes and picks up where it left off on the
+ * next call. The first search weights the heuristic by START_INFLATION, so
+ * it finds a path quickly that is at most that many times too long. Each
+ * search after that lowers the weight by INFLATION_STEP and only
+ * re-expands the cells whose cost improved, until the path is the
+ * shortest.
+ *
+ * The search runs backwards from the goal towards the robot, so the tree
+ * stays valid while the robot walks. When it moves, the open cells are
+ * re-keyed for the new heuristic target, and every cell already reached
+ * knows its next step. The search only starts over when a tile changes or
+ * the keys and chips passed in are different.
+ */
+class AnytimeSearch {
+	/** The heuristic weight of the first search, in tenths */
+	static final int START_INFLATION = 30;
+	/** How much the weight drops after each finished search, in tenths */
+	static final int INFLATION_STEP = 5;
+	/* A weight of 1, in tenths */
+	private static final int UNIT = 10;
+	/* The clock is read once every this many expansions */
+	private static final int CHECK_INTERVAL = 64;
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+	private final Environment env;
+	private int goal;
+	private final int cols;
+	private int inventory;
+	private int remainingChips;
+	private long version;
+	private int target;
+	private int inflation;
+	private int solvedInflation;
+	private long expansions;
+
+	/* Costs to the goal and next steps, valid where stamp matches generation */
+	private final int[] g;
+	private final int[] next;
+	private final int[] stamp;
+	private final int[] closed;
+	private int generation;
+	private int closedGeneration;
+	/* The open cells, an indexed binary heap ordered by key */
+	private final long[] key;
+	private final int[] heapIndex;
+	private final int[] heap;
+	private int heapSize;
+	/* Closed cells whose cost improved, searched again at the next weight */
+	private int[] incons = new int[64];
+	private int inconsSize;
+
+	/**
+	 * Prepares a search towards a goal. Nothing is searched until nextStep.
+	 * @param env the Environment
+	 * @param goal the grid index to reach
+	 */
+	AnytimeSearch(Environment env, int goal) {
+		this.env = env;
+		this.goal = goal;
+		this.cols = env.getCols();
+		int cells = env.getRows() * env.getCols();
+		this.g = new int[cells];
+		this.next = new int[cells];
+		this.stamp = new int[cells];
+		this.closed = new int[cells];
+		this.key = new long[cells];
+		this.heapIndex = new int[cells];
+		this.heap = new int[cells];
+		this.version = -1;
+	}
+
+	/**
+	 * Points the search at another goal, reusing its arrays. Nothing is
+	 * searched until nextStep.
+	 * @param goal the grid index to reach
+	 */
+	void setGoal(int goal) {
+		this.goal = goal;
+		this.version = -1;
+	}
+
+	/**
+	 * Returns the number of cells expanded so far.
+	 * @return the number of expansions
+	 */
+	long getExpansions() {
+		return this.expansions;
+	}
+
+	/**
+	 * Returns the weight of the last finished search, so the path found is
+	 * at most this many tenths times the shortest.
+	 * @return the weight in tenths, or 0 if no search has finished yet
+	 */
+	int getSolvedInflation() {
+		return this.solvedInflation;
+	}
+
+	/**
+	 * Searches until the path is the shortest or the deadline passes, and
+	 * returns the best next step known at that point.
+	 * @param start the grid index the robot is on
+	 * @param inventory the keys the robot will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @param deadline the System.nanoTime() to stop searching at
+	 * @return the grid index of the next step, or -1 at the goal or if it
+	 * cannot be reached
+	 */
+	int nextStep(int start, int inventory, int remainingChips, long deadline) {
+		if (this.version != this.env.getVersion() || this.inventory != inventory
+				|| this.remainingChips != remainingChips) {
+			reset(start, inventory, remainingChips);
+		} else if (this.target != start) {
+			this.target = start;
+			rekey();
+		}
+		if (start == this.goal)
+			return -1;
+
+		while (improvePath(deadline)) {
+			this.solvedInflation = this.inflation;
+			if (this.inflation == UNIT)
+				break;
+			// Lower the weight, and search the improved closed cells again
+			this.inflation = Math.max(UNIT, this.inflation - INFLATION_STEP);
+			this.closedGeneration++;
+			for (int i = 0; i < this.inconsSize; i++) {
+				push(this.incons[i]);
+			}
+			this.inconsSize = 0;
+			rekey();
+		}
+
+		if (cost(start) < INFINITY)
+			return this.next[start];
+		if (this.solvedInflation > 0)
+			return -1; // a search finished without reaching the robot
+		return greedyStep(start);
+	}
+
+	private void reset(int start, int inventory, int remainingChips) {
+		this.inventory = inventory;
+		this.remainingChips = remainingChips;
+		this.version = this.env.getVersion();
+		this.target = start;
+		this.inflation = START_INFLATION;
+		this.solvedInflation = 0;
+		this.generation++;
+		this.closedGeneration++;
+		this.heapSize = 0;
+		this.inconsSize = 0;
+		setCost(this.goal, 0, -1);
+		push(this.goal);
+	}
+
+	/* Expands cells until the robot's key is no larger than any open key.
+	 * Returns false if the deadline passed first. */
+	private boolean improvePath(long deadline) {
+		int count = 0;
+		while (this.heapSize > 0 && this.key[this.heap[0]] < keyOf(this.target)) {
+			if (++count % CHECK_INTERVAL == 0 && System.nanoTime() > deadline)
+				return false;
+			int cell = pop();
+			this.closed[cell] = this.closedGeneration;
+			this.expansions++;
+			// Paths only lead through cells the robot can move onto
+			if (!Environment.isPassable(this.env.getTileStatus(cell), this.inventory, this.remainingChips))
+				continue;
+			int newCost = cost(cell) + 1;
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int previous = this.env.getNeighborIndex(cell, direction);
+				if (previous < 0 || newCost >= cost(previous))
+					continue;
+				setCost(previous, newCost, cell);
+				if (this.closed[previous] != this.closedGeneration) {
+					push(previous);
+				} else {
+					if (this.inconsSize == this.incons.length)
+						this.incons = Arrays.copyOf(this.incons, this.inconsSize * 2);
+					this.incons[this.inconsSize++] = previous;
+				}
+			}
+		}
+		return true;
+	}
+
+	/* Used before any path reaches the robot: the open neighbor closest to the goal */
+	private int greedyStep(int start) {
+		int best = -1;
+		for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+			int neighbor = this.env.getNeighborIndex(start, direction);
+			if (neighbor >= 0
+					&& Environment.isPassable(this.env.getTileStatus(neighbor), this.inventory, this.remainingChips)
+					&& (best < 0 || distance(neighbor, this.goal) < distance(best, this.goal)))
+				best = neighbor;
+		}
+		return best;
+	}
+
+	private int cost(int cell) {
+		return this.stamp[cell] == this.generation ? this.g[cell] : INFINITY;
+	}
+
+	private void setCost(int cell, int cost, int step) {
+		this.stamp[cell] = this.generation;
+		this.g[cell] = cost;
+		this.next[cell] = step;
+	}
+
+	/* The cost plus the weighted heuristic, both in tenths */
+	private long keyOf(int cell) {
+		int cost = cost(cell);
+		if (cost >= INFINITY)
+			return Long.MAX_VALUE;
+		return (long) cost * UNIT + (long) this.inflation * distance(cell, this.target);
+	}
+
+	private int distance(int a, int b) {
+		return Math.abs(a / this.cols - b / this.cols) + Math.abs(a % this.cols - b % this.cols);
+	}
+
+	/* Recomputes every open key after the weight or the robot changed */
+	private void rekey() {
+		for (int i = 0; i < this.heapSize; i++) {
+			this.key[this.heap[i]] = keyOf(this.heap[i]);
+		}
+		for (int i = this.heapSize / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/* Queues a cell, or moves it if it is already queued */
+	private void push(int cell) {
+		this.key[cell] = keyOf(cell);
+		boolean queued = this.heapIndex[cell] < this.heapSize && this.heapIndex[cell] >= 0
+				&& this.heap[this.heapIndex[cell]] == cell;
+		int i = queued ? this.heapIndex[cell] : this.heapSize++;
+		this.heap[i] = cell;
+		this.heapIndex[cell] = i;
+		siftDown(siftUp(i));
+	}
+
+	private int pop() {
+		int top = this.heap[0];
+		int last = this.heap[--this.heapSize];
+		if (this.heapSize > 0) {
+			this.heap[0] = last;
+			this.heapIndex[last] = 0;
+			siftDown(0);
+		}
+		this.heapIndex[top] = -1;
+		return top;
+	}
+
+	private int siftUp(int i) {
+		int cell = this.heap[i];
+		while (i > 0) {
+			int up = (i - 1) >> 1;
+			if (this.key[this.heap[up]] <= this.key[cell])
+				break;
+			this.heap[i] = this.heap[up];
+			this.heapIndex[this.heap[i]] = i;
+			i = up;
+		}
+		this.heap[i] = cell;
+		this.heapIndex[cell] = i;
+		return i;
+	}
+
+	private void siftDown(int i) {
+		int cell = this.heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= this.heapSize)
+				break;
+			if (child + 1 < this.heapSize && this.key[this.heap[child + 1]] < this.key[this.heap[child]])
+				child++;
+			if (this.key[cell] <= this.key[this.heap[child]])
+				break;
+			this.heap[i] = this.heap[child];
+			this.heapIndex[this.heap[i]] = i;
+			i = child;
+		}
+		this.heap[i] = cell;
+		this.heapIndex[cell] = i;
+	}
+}
@@ -0,0 +1,282 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import java.util.Arrays;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Inventory;
+import edu.ncsu.csc411.ps06.environment.Position;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+
+/**
+ * D* Lite (Koenig and Likhachev) towards one goal cell. The search runs
+ * backwards from the goal, so g holds the cost from each cell to the goal,
+ * and rhs the one-step lookahead of g. A cell whose two values differ is
+ * queued. The search tree is kept between calls: when tiles change, or the
+ * robot's keys or the chip count change which doors are open, only the
+ * cells next to those tiles are queued again and repaired. The robot
+ * moving does not require a new search either. Instead of re-keying the
+ * queue, every key is offset by km, the total heuristic drift of the start.
+ */
+class DStarLite {
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+	private static final TileStatus[] COLORED_DOORS = {
+		TileStatus.DOOR_GREEN, TileStatus.DOOR_BLUE, TileStatus.DOOR_YELLOW, TileStatus.DOOR_RED
+	};
+	private final Environment env;
+	private int goal;
+	private final int cols;
+	private final int[] g;
+	private final int[] rhs;
+	/* An indexed binary heap of cells, ordered by their packed key */
+	private final long[] key;
+	private final int[] heapIndex;
+	private final int[] heap;
+	private int heapSize;
+	private int inventory;
+	private int remainingChips;
+	private long version;
+	private int last;
+	private int km;
+	private long expansions;
+
+	/**
+	 * Prepares a search towards a goal. Nothing is searched until nextStep.
+	 * @param env the Environment
+	 * @param goal the grid index to reach
+	 * @param start the grid index the robot is on
+	 * @param inventory the keys the robot will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 */
+	DStarLite(Environment env, int goal, int start, int inventory, int remainingChips) {
+		this.env = env;
+		this.goal = goal;
+		this.cols = env.getCols();
+		int cells = env.getRows() * env.getCols();
+		this.g = new int[cells];
+		this.rhs = new int[cells];
+		this.key = new long[cells];
+		this.heapIndex = new int[cells];
+		this.heap = new int[cells];
+		reset(start, inventory, remainingChips);
+	}
+
+	/**
+	 * Points the search at another goal, reusing its arrays. Nothing is
+	 * searched until nextStep.
+	 * @param goal the grid index to reach
+	 * @param start the grid index the robot is on
+	 * @param inventory the keys the robot will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 */
+	void setGoal(int goal, int start, int inventory, int remainingChips) {
+		this.goal = goal;
+		reset(start, inventory, remainingChips);
+	}
+
+	/**
+	 * Returns the number of cells expanded so far.
+	 * @return the number of expansions
+	 */
+	long getExpansions() {
+		return this.expansions;
+	}
+
+	/**
+	 * Brings the search up to date with the Environment and the robot, and
+	 * returns the cell to move onto next.
+	 * @param start the grid index the robot is on
+	 * @param inventory the keys the robot will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return the grid index of the next step, or -1 at the goal or if it
+	 * cannot be reached
+	 */
+	int nextStep(int start, int inventory, int remainingChips) {
+		int[] changed = this.env.getChangedCells(this.version);
+		if (changed == null) {
+			// Too much has changed to repair, so start over
+			reset(start, inventory, remainingChips);
+		} else {
+			this.km += distance(this.last, start);
+			this.last = start;
+			int previousInventory = this.inventory;
+			boolean wasZero = this.remainingChips == 0;
+			this.inventory = inventory;
+			this.remainingChips = remainingChips;
+			for (int cell : changed) {
+				cellChanged(cell);
+			}
+			// Doors open or close for the robot without their tiles changing
+			for (TileStatus door : COLORED_DOORS) {
+				TileStatus doorKey = Inventory.keyFor(door);
+				if (Inventory.contains(previousInventory, doorKey) != Inventory.contains(inventory, doorKey))
+					doorsChanged(door);
+			}
+			if (wasZero != (remainingChips == 0))
+				doorsChanged(TileStatus.DOOR_GOAL);
+		}
+		this.version = this.env.getVersion();
+
+		computeShortestPath(start);
+		if (start == this.goal || this.g[start] >= INFINITY)
+			return -1;
+		int best = -1;
+		for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+			int next = this.env.getNeighborIndex(start, direction);
+			if (next >= 0 && isOpen(next) && this.g[next] < INFINITY && (best < 0 || this.g[next] < this.g[best]))
+				best = next;
+		}
+		return best;
+	}
+
+	private void reset(int start, int inventory, int remainingChips) {
+		Arrays.fill(this.g, INFINITY);
+		Arrays.fill(this.rhs, INFINITY);
+		Arrays.fill(this.heapIndex, -1);
+		this.heapSize = 0;
+		this.inventory = inventory;
+		this.remainingChips = remainingChips;
+		this.version = this.env.getVersion();
+		this.last = start;
+		this.km = 0;
+		this.rhs[this.goal] = 0;
+		push(this.goal, calculateKey(this.goal));
+	}
+
+	/* Repairs cells until the start's cost is settled */
+	private void computeShortestPath(int start) {
+		while (this.heapSize > 0
+				&& (this.key[this.heap[0]] < calculateKey(start) || this.rhs[start] != this.g[start])) {
+			int u = this.heap[0];
+			long oldKey = this.key[u];
+			long newKey = calculateKey(u);
+			this.expansions++;
+			if (oldKey < newKey) {
+				// Queued before the start moved on, so its key was too low
+				push(u, newKey);
+			} else if (this.g[u] > this.rhs[u]) {
+				this.g[u] = this.rhs[u];
+				remove(u);
+				updatePredecessors(u);
+			} else {
+				this.g[u] = INFINITY;
+				updateVertex(u);
+				updatePredecessors(u);
+			}
+		}
+	}
+
+	/* Cells can only be reached from their neighbors by moving onto them */
+	private void updatePredecessors(int cell) {
+		if (!isOpen(cell))
+			return;
+		for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+			int previous = this.env.getNeighborIndex(cell, direction);
+			if (previous >= 0)
+				updateVertex(previous);
+		}
+	}
+
+	private void updateVertex(int cell) {
+		if (cell != this.goal) {
+			int best = INFINITY;
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = this.env.getNeighborIndex(cell, direction);
+				if (next >= 0 && this.g[next] < INFINITY && isOpen(next))
+					best = Math.min(best, this.g[next] + 1);
+			}
+			this.rhs[cell] = best;
+		}
+		if (this.g[cell] != this.rhs[cell])
+			push(cell, calculateKey(cell));
+		else
+			remove(cell);
+	}
+
+	/* Whether a cell can be moved onto changed, so every move onto it changed */
+	private void cellChanged(int cell) {
+		for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+			int previous = this.env.getNeighborIndex(cell, direction);
+			if (previous >= 0)
+				updateVertex(previous);
+		}
+	}
+
+	private void doorsChanged(TileStatus door) {
+		for (Position p : this.env.getEnvironmentPositions().get(door)) {
+			cellChanged(this.env.getIndex(p));
+		}
+	}
+
+	private boolean isOpen(int cell) {
+		return Environment.isPassable(this.env.getTileStatus(cell), this.inventory, this.remainingChips);
+	}
+
+	/* Keys compare by min(g, rhs) plus the heuristic and km, then by
+	 * min(g, rhs), packed into one long so they compare as numbers */
+	private long calculateKey(int cell) {
+		int best = Math.min(this.g[cell], this.rhs[cell]);
+		return (long) (best + distance(this.last, cell) + this.km) << 32 | best;
+	}
+
+	private int distance(int a, int b) {
+		return Math.abs(a / this.cols - b / this.cols) + Math.abs(a % this.cols - b % this.cols);
+	}
+
+	/* Queues a cell, or moves it if it is already queued */
+	private void push(int cell, long newKey) {
+		this.key[cell] = newKey;
+		int i = this.heapIndex[cell];
+		if (i < 0) {
+			i = this.heapSize++;
+			this.heap[i] = cell;
+			this.heapIndex[cell] = i;
+		}
+		siftDown(siftUp(i));
+	}
+
+	private void remove(int cell) {
+		int i = this.heapIndex[cell];
+		if (i < 0)
+			return;
+		this.heapIndex[cell] = -1;
+		int moved = this.heap[--this.heapSize];
+		if (i < this.heapSize) {
+			this.heap[i] = moved;
+			this.heapIndex[moved] = i;
+			siftDown(siftUp(i));
+		}
+	}
+
+	private int siftUp(int i) {
+		int cell = this.heap[i];
+		while (i > 0) {
+			int up = (i - 1) >> 1;
+			if (this.key[this.heap[up]] <= this.key[cell])
+				break;
+			this.heap[i] = this.heap[up];
+			this.heapIndex[this.heap[i]] = i;
+			i = up;
+		}
+		this.heap[i] = cell;
+		this.heapIndex[cell] = i;
+		return i;
+	}
+
+	private void siftDown(int i) {
+		int cell = this.heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= this.heapSize)
+				break;
+			if (child + 1 < this.heapSize && this.key[this.heap[child + 1]] < this.key[this.heap[child]])
+				child++;
+			if (this.key[cell] <= this.key[this.heap[child]])
+				break;
+			this.heap[i] = this.heap[child];
+			this.heapIndex[this.heap[i]] = i;
+			i = child;
+		}
+		this.heap[i] = cell;
+		this.heapIndex[cell] = i;
+	}
+}
@@ -0,0 +1,357 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import edu.ncsu.csc411.ps06.environment.Action;
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Inventory;
+import edu.ncsu.csc411.ps06.environment.Position;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+
+/**
+ * Finds a shortest complete solution for one Robot by running A* over the
+ * whole state of the puzzle rather than over cells. A state is the cell the
+ * robot stands on, the keys it carries, and a bitmask of which chips, keys
+ * and colored doors are still on the map. Moves follow the Environment
+ * exactly: a move is judged by Environment.isPassable, and the tile the
+ * robot started the tick on is collected at the end of the tick.
+ *
+ * The heuristic is the minimum spanning tree over the remaining chips and
+ * the portal, plus the distance from the robot to the nearest of them.
+ * Distances come from breadth-first searches that treat every door as
+ * open, so the heuristic never overestimates and the first solution
+ * dequeued is optimal. States are deduplicated in a hash map, and the
+ * search gives up once it has seen maxStates of them.
+ */
+class FullStatePlanner {
+	private static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+	/* The action taken for each Environment direction, below, left, above, right */
+	private static final Action[] MOVES = {Action.MOVE_DOWN, Action.MOVE_LEFT, Action.MOVE_UP, Action.MOVE_RIGHT};
+
+	/**
+	 * A complete solution, along with the state the Robot should be in
+	 * before each action so that the caller can tell when the world has
+	 * not gone as planned.
+	 */
+	static class Plan {
+		final Action[] actions;
+		final int[] cells;
+		final int[] inventories;
+		final int[] chips;
+
+		Plan(Action[] actions, int[] cells, int[] inventories, int[] chips) {
+			this.actions = actions;
+			this.cells = cells;
+			this.inventories = inventories;
+			this.chips = chips;
+		}
+	}
+
+	/* One search state; the key fields take part in equals and hashCode */
+	private static class State {
+		final int cell;
+		final int inventory;
+		final long items;
+		int cost;
+		State parent;
+		Action action;
+
+		State(int cell, int inventory, long items) {
+			this.cell = cell;
+			this.inventory = inventory;
+			this.items = items;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof State))
+				return false;
+			State other = (State) o;
+			return this.cell == other.cell && this.inventory == other.inventory && this.items == other.items;
+		}
+
+		@Override
+		public int hashCode() {
+			long h = this.items * 0x9E3779B97F4A7C15L + this.cell * 31L + this.inventory;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+
+	/* A frontier entry; stale entries are skipped when their cost is beaten */
+	private static class Entry implements Comparable<Entry> {
+		final State state;
+		final int cost;
+		final int priority;
+		final int heuristic;
+		final long order;
+
+		Entry(State state, int cost, int heuristic, long order) {
+			this.state = state;
+			this.cost = cost;
+			this.priority = cost + heuristic;
+			this.heuristic = heuristic;
+			this.order = order;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			if (this.priority != o.priority)
+				return Integer.compare(this.priority, o.priority);
+			if (this.heuristic != o.heuristic)
+				return Integer.compare(this.heuristic, o.heuristic);
+			return Long.compare(this.order, o.order);
+		}
+	}
+
+	private final Environment env;
+	private final int cells;
+	private final int goal;
+	/* Every chip, key and colored door, one bit each */
+	private final int[] itemCells;
+	private final TileStatus[] itemStatuses;
+	private final Map<Integer, Integer> itemBits = new HashMap<>();
+	private long chipBits;
+	/* BFS distances from each chip (then the portal) with every door open */
+	private final int[][] distances;
+	private final int[] chipSlots;
+	private final Map<Long, Integer> spanningTrees = new HashMap<>();
+
+	private FullStatePlanner(Environment env, int goal, ArrayList<Integer> items) {
+		this.env = env;
+		this.cells = env.getRows() * env.getCols();
+		this.goal = goal;
+		this.itemCells = new int[items.size()];
+		this.itemStatuses = new TileStatus[items.size()];
+		int chipCount = 0;
+		for (int bit = 0; bit < items.size(); bit++) {
+			this.itemCells[bit] = items.get(bit);
+			this.itemStatuses[bit] = env.getTileStatus(items.get(bit));
+			this.itemBits.put(items.get(bit), bit);
+			if (this.itemStatuses[bit] == TileStatus.CHIP) {
+				this.chipBits |= 1L << bit;
+				chipCount++;
+			}
+		}
+		// Slot i < chipCount is a chip, slot chipCount is the portal
+		this.chipSlots = new int[chipCount];
+		this.distances = new int[chipCount + 1][];
+		int slot = 0;
+		for (int bit = 0; bit < items.size(); bit++) {
+			if ((this.chipBits & (1L << bit)) != 0) {
+				this.chipSlots[slot] = bit;
+				this.distances[slot++] = distancesFrom(this.itemCells[bit]);
+			}
+		}
+		this.distances[chipCount] = distancesFrom(goal);
+	}
+
+	/**
+	 * Plans a shortest sequence of actions that collects every chip and
+	 * reaches the portal.
+	 * @param env the Environment to plan in
+	 * @param robot the Robot to plan for
+	 * @param maxStates the most states to keep before giving up
+	 * @return the plan, an empty plan if the goal is already met, or null if
+	 * there is no solution or the state space is too large
+	 */
+	static Plan plan(Environment env, Robot robot, int maxStates) {
+		ArrayList<Position> goals = env.getEnvironmentPositions().get(TileStatus.GOAL);
+		if (goals.isEmpty())
+			return null;
+		int goal = env.getIndex(goals.get(0));
+		ArrayList<Integer> items = new ArrayList<>();
+		for (Map.Entry<TileStatus, ArrayList<Position>> entry : env.getEnvironmentPositions().entrySet()) {
+			TileStatus status = entry.getKey();
+			if (status == TileStatus.CHIP || Inventory.isKey(status) || Inventory.keyFor(status) != null) {
+				for (Position p : entry.getValue()) {
+					items.add(env.getIndex(p));
+				}
+			}
+		}
+		// Every item needs a bit, and every chip a distance map
+		long cells = (long) env.getRows() * env.getCols();
+		if (items.size() > Long.SIZE - 1 || cells * (items.size() + 1) > maxStates * 16L)
+			return null;
+		items.sort(null);
+		return new FullStatePlanner(env, goal, items).search(robot, maxStates);
+	}
+
+	private Plan search(Robot robot, int maxStates) {
+		int start = this.env.getIndex(this.env.getRobotPosition(robot));
+		long allItems = (1L << this.itemCells.length) - 1;
+		if (start == this.goal && this.env.getNumRemainingChips() == 0)
+			return new Plan(new Action[0], new int[0], new int[0], new int[0]);
+
+		State first = new State(start, this.env.getRobotInventory(robot), allItems);
+		Map<State, State> seen = new HashMap<>();
+		seen.put(first, first);
+		PriorityQueue<Entry> frontier = new PriorityQueue<>();
+		long order = 0;
+		frontier.add(new Entry(first, 0, heuristic(start, allItems), order++));
+
+		while (!frontier.isEmpty()) {
+			Entry entry = frontier.poll();
+			State current = entry.state;
+			if (entry.cost > current.cost)
+				continue;
+			robot.countExpansion();
+			if (current.cell == this.goal && current.parent != null
+					&& Long.bitCount(current.items & this.chipBits) == 0)
+				return rebuild(current);
+
+			int chips = Long.bitCount(current.items & this.chipBits);
+			// What the robot collects at the end of this tick, whichever way it moves
+			int inventory = current.inventory;
+			long items = current.items;
+			Integer bit = this.itemBits.get(current.cell);
+			if (bit != null && (items & (1L << bit)) != 0) {
+				items &= ~(1L << bit);
+				TileStatus collected = this.itemStatuses[bit];
+				if (Inventory.isKey(collected))
+					inventory = Inventory.add(inventory, collected);
+				else if (Inventory.keyFor(collected) != null)
+					inventory = Inventory.remove(inventory, Inventory.keyFor(collected));
+			}
+
+			for (int direction = -1; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next;
+				Action action;
+				if (direction < 0) {
+					// Standing still only helps to collect what is underfoot
+					if (items == current.items)
+						continue;
+					next = current.cell;
+					action = Action.DO_NOTHING;
+				} else {
+					next = this.env.getNeighborIndex(current.cell, direction);
+					if (next < 0 || !Environment.isPassable(statusAt(next, current.items), current.inventory, chips))
+						continue;
+					action = MOVES[direction];
+				}
+				int h = heuristic(next, items);
+				if (h >= UNREACHABLE)
+					continue;
+				State key = new State(next, inventory, items);
+				State known = seen.get(key);
+				int cost = current.cost + 1;
+				if (known == null) {
+					if (seen.size() >= maxStates)
+						return null;
+					seen.put(key, key);
+					known = key;
+				} else if (cost >= known.cost) {
+					continue;
+				}
+				known.cost = cost;
+				known.parent = current;
+				known.action = action;
+				frontier.add(new Entry(known, cost, h, order++));
+			}
+		}
+		return null;
+	}
+
+	/* The status of a cell once the items missing from the mask are gone */
+	private TileStatus statusAt(int cell, long items) {
+		Integer bit = this.itemBits.get(cell);
+		if (bit != null && (items & (1L << bit)) == 0)
+			return TileStatus.BLANK;
+		return this.env.getTileStatus(cell);
+	}
+
+	private int heuristic(int cell, long items) {
+		long chips = items & this.chipBits;
+		int nearest = this.distances[this.chipSlots.length][cell];
+		for (int slot = 0; slot < this.chipSlots.length; slot++) {
+			if ((chips & (1L << this.chipSlots[slot])) != 0)
+				nearest = Math.min(nearest, this.distances[slot][cell]);
+		}
+		if (nearest >= UNREACHABLE)
+			return UNREACHABLE;
+		return nearest + spanningTree(chips);
+	}
+
+	/* Prim's algorithm over the remaining chips and the portal, cached per chip set */
+	private int spanningTree(long chips) {
+		Integer cached = this.spanningTrees.get(chips);
+		if (cached != null)
+			return cached;
+		int[] slots = new int[Long.bitCount(chips) + 1];
+		int count = 0;
+		for (int slot = 0; slot < this.chipSlots.length; slot++) {
+			if ((chips & (1L << this.chipSlots[slot])) != 0)
+				slots[count++] = slot;
+		}
+		slots[count++] = this.chipSlots.length;
+		int[] best = new int[count];
+		boolean[] inTree = new boolean[count];
+		Arrays.fill(best, UNREACHABLE);
+		best[0] = 0;
+		int total = 0;
+		for (int added = 0; added < count; added++) {
+			int closest = -1;
+			for (int i = 0; i < count; i++) {
+				if (!inTree[i] && (closest < 0 || best[i] < best[closest]))
+					closest = i;
+			}
+			inTree[closest] = true;
+			total = Math.min(UNREACHABLE, total + best[closest]);
+			int[] from = this.distances[slots[closest]];
+			for (int i = 0; i < count; i++) {
+				int cell = slots[i] == this.chipSlots.length ? this.goal : this.itemCells[this.chipSlots[slots[i]]];
+				if (!inTree[i])
+					best[i] = Math.min(best[i], from[cell]);
+			}
+		}
+		this.spanningTrees.put(chips, total);
+		return total;
+	}
+
+	/* Breadth-first distances from a cell, blocked only by walls and water */
+	private int[] distancesFrom(int source) {
+		int[] distance = new int[this.cells];
+		Arrays.fill(distance, UNREACHABLE);
+		distance[source] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			int cell = queue.poll();
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = this.env.getNeighborIndex(cell, direction);
+				if (next < 0 || distance[next] != UNREACHABLE)
+					continue;
+				TileStatus status = this.env.getTileStatus(next);
+				if (status == TileStatus.WALL || status == TileStatus.WATER)
+					continue;
+				distance[next] = distance[cell] + 1;
+				queue.add(next);
+			}
+		}
+		return distance;
+	}
+
+	private Plan rebuild(State last) {
+		ArrayList<State> path = new ArrayList<>();
+		for (State state = last; state != null; state = state.parent) {
+			path.add(state);
+		}
+		int steps = path.size() - 1;
+		Action[] actions = new Action[steps];
+		int[] cells = new int[steps];
+		int[] inventories = new int[steps];
+		int[] chips = new int[steps];
+		for (int i = 0; i < steps; i++) {
+			State before = path.get(steps - i);
+			actions[i] = path.get(steps - i - 1).action;
+			cells[i] = before.cell;
+			inventories[i] = before.inventory;
+			chips[i] = Long.bitCount(before.items & this.chipBits);
+		}
+		return new Plan(actions, cells, inventories, chips);
+	}
+}
@@ -0,0 +1,423 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Inventory;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+
+/**
+ * Hierarchical path-finding A* (HPA*). The grid is cut into square clusters
+ * of CLUSTER_SIZE cells. Where two clusters touch, each stretch of open
+ * cells along the border gets one or two entrances, and the cells on both
+ * sides of an entrance become nodes of an abstract graph, joined by an edge
+ * of cost 1. Every door and the DOOR_GOAL is a node as well. Inside each
+ * cluster, a breadth-first search from every node gives the cost to every
+ * other node of that cluster without crossing a door, and those costs are
+ * kept as edges.
+ *
+ * A query links the start and goal into their clusters, runs A* over the
+ * abstract graph, and only then fills in the cells, one cluster at a time.
+ * Doors are crossed only if the keys and chips passed in open them, so one
+ * abstract graph serves every inventory, and the number of nodes expanded
+ * grows with the number of clusters crossed rather than with the area.
+ * Paths are close to, but not always, the shortest. Every time a shortest
+ * path crosses from one cluster to another, the path found can be at most
+ * CLUSTER_SIZE - 2 cells longer: the crossing is moved along its open
+ * stretch of border to the nearest entrance, at most CLUSTER_SIZE / 2 - 1
+ * cells away, and back again on the other side.
+ *
+ * When a door is opened, or an undo puts it back, only the edges of the
+ * cluster holding it are searched again. Any other change to the layout
+ * (see Environment.getLayoutVersion) needs a new HierarchicalPathfinder.
+ */
+class HierarchicalPathfinder {
+	/** The width and height of a cluster in cells */
+	static final int CLUSTER_SIZE = 16;
+	/** Border stretches at least this long get an entrance at each end */
+	private static final int LONG_ENTRANCE = 6;
+	private static final int UNREACHED = -1;
+
+	private final Environment env;
+	private final int rows;
+	private final int cols;
+	private final int clusterCols;
+	private final long layoutVersion;
+	private long version;
+	private long expansions;
+	private long clusterRefreshes;
+
+	/* The abstract graph. Nodes are numbered in the order they are found. */
+	private int nodeCount;
+	private int[] nodeCell = new int[64];
+	private boolean[] nodeGated = new boolean[64];
+	private final Map<Integer, Integer> nodeAt = new HashMap<>();
+	private final ArrayList<ArrayList<Integer>> interEdges = new ArrayList<>();
+	private int[][] clusterNodes;
+	private int[][] intraTargets;
+	private int[][] intraCosts;
+
+	/* Scratch space for searches inside one cluster */
+	private final int[] localDistance = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+	private final int[] localParent = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+	private final int[] localQueue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+
+	/**
+	 * Builds the clusters, entrances and edges for the current layout.
+	 * @param env the Environment
+	 */
+	HierarchicalPathfinder(Environment env) {
+		this.env = env;
+		this.rows = env.getRows();
+		this.cols = env.getCols();
+		this.clusterCols = (this.cols + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+		int clusterRows = (this.rows + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+		this.layoutVersion = env.getLayoutVersion();
+		this.version = env.getVersion();
+
+		findEntrances();
+		for (int cell = 0; cell < this.rows * this.cols; cell++) {
+			if (isGated(env.getTileStatus(cell)))
+				addNode(cell);
+		}
+
+		int clusters = clusterRows * this.clusterCols;
+		ArrayList<ArrayList<Integer>> members = new ArrayList<>();
+		for (int k = 0; k < clusters; k++) {
+			members.add(new ArrayList<>());
+		}
+		for (int node = 0; node < this.nodeCount; node++) {
+			members.get(clusterOf(this.nodeCell[node])).add(node);
+		}
+		this.clusterNodes = new int[clusters][];
+		for (int k = 0; k < clusters; k++) {
+			this.clusterNodes[k] = members.get(k).stream().mapToInt(Integer::intValue).toArray();
+		}
+		this.intraTargets = new int[this.nodeCount][];
+		this.intraCosts = new int[this.nodeCount][];
+		for (int k = 0; k < clusters; k++) {
+			refreshCluster(k);
+		}
+	}
+
+	/**
+	 * Returns true once the walls have changed and a new HierarchicalPathfinder
+	 * is needed.
+	 * @return true if the layout has changed since this was built
+	 */
+	boolean isStale() {
+		return this.layoutVersion != this.env.getLayoutVersion();
+	}
+
+	/**
+	 * Returns the number of abstract nodes expanded so far.
+	 * @return the number of expansions
+	 */
+	long getExpansions() {
+		return this.expansions;
+	}
+
+	/**
+	 * Returns the number of times the edges inside a cluster have been
+	 * searched, once for every cluster when built and then once for each
+	 * cluster whose doors changed.
+	 * @return the number of cluster refreshes
+	 */
+	long getClusterRefreshes() {
+		return this.clusterRefreshes;
+	}
+
+	/**
+	 * Finds a path between two cells that a robot carrying inventory could take.
+	 * @param start the grid index to start from
+	 * @param goal the grid index to reach
+	 * @param inventory the keys the robot will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return every cell of the path from start to goal, or null if there is none
+	 */
+	int[] findPath(int start, int goal, int inventory, int remainingChips) {
+		refreshDoors();
+		TileStatus goalStatus = this.env.getTileStatus(goal);
+		if (start == goal || !Environment.isPassable(goalStatus, inventory, remainingChips))
+			return null;
+
+		// The start and goal join the graph as two extra nodes
+		int startNode = this.nodeCount;
+		int goalNode = this.nodeCount + 1;
+		int startCluster = clusterOf(start);
+		int goalCluster = clusterOf(goal);
+		Map<Integer, Integer> toGoal = new HashMap<>();
+		search(goal, goalCluster);
+		for (int node : this.clusterNodes[goalCluster]) {
+			int distance = this.localDistance[localIndex(this.nodeCell[node])];
+			if (distance != UNREACHED)
+				toGoal.put(node, distance);
+		}
+		search(start, startCluster);
+
+		Map<Integer, Integer> costSoFar = new HashMap<>();
+		Map<Integer, Integer> cameFrom = new HashMap<>();
+		// Entries are (f << 32 | node), so ties go to the lower node
+		PriorityQueue<Long> frontier = new PriorityQueue<>();
+		costSoFar.put(startNode, 0);
+		cameFrom.put(startNode, -1);
+		frontier.add((long) distance(start, goal) << 32 | startNode);
+		while (!frontier.isEmpty()) {
+			long entry = frontier.poll();
+			int current = (int) entry;
+			int cost = costSoFar.get(current);
+			int cell = cellOf(current, start, goal);
+			if ((entry >>> 32) > cost + distance(cell, goal))
+				continue; // a cheaper entry for this node was already expanded
+			this.expansions++;
+			if (current == goalNode)
+				return refine(cameFrom, start, goal);
+
+			if (current == startNode) {
+				// The search from the start is still in the scratch arrays
+				for (int node : this.clusterNodes[startCluster]) {
+					int distance = this.localDistance[localIndex(this.nodeCell[node])];
+					if (distance != UNREACHED)
+						relax(node, cost + distance, current, start, goal, inventory, remainingChips,
+								costSoFar, cameFrom, frontier);
+				}
+				int direct = startCluster == goalCluster ? this.localDistance[localIndex(goal)] : UNREACHED;
+				if (direct != UNREACHED)
+					relax(goalNode, cost + direct, current, start, goal, inventory, remainingChips,
+							costSoFar, cameFrom, frontier);
+				continue;
+			}
+			for (int next : this.interEdges.get(current)) {
+				relax(next, cost + 1, current, start, goal, inventory, remainingChips, costSoFar, cameFrom, frontier);
+			}
+			for (int i = 0; i < this.intraTargets[current].length; i++) {
+				relax(this.intraTargets[current][i], cost + this.intraCosts[current][i], current, start, goal,
+						inventory, remainingChips, costSoFar, cameFrom, frontier);
+			}
+			Integer last = toGoal.get(current);
+			if (last != null)
+				relax(goalNode, cost + last, current, start, goal, inventory, remainingChips,
+						costSoFar, cameFrom, frontier);
+		}
+		return null;
+	}
+
+	private void relax(int node, int newCost, int from, int start, int goal, int inventory, int remainingChips,
+			Map<Integer, Integer> costSoFar, Map<Integer, Integer> cameFrom, PriorityQueue<Long> frontier) {
+		// A door is only crossed if the robot could open it
+		if (node < this.nodeCount && this.nodeGated[node]
+				&& !Environment.isPassable(this.env.getTileStatus(this.nodeCell[node]), inventory, remainingChips))
+			return;
+		Integer known = costSoFar.get(node);
+		if (known == null || newCost < known) {
+			costSoFar.put(node, newCost);
+			cameFrom.put(node, from);
+			frontier.add((long) (newCost + distance(cellOf(node, start, goal), goal)) << 32 | node);
+		}
+	}
+
+	/* Turns the chain of abstract nodes into cells, searching each cluster on the way again */
+	private int[] refine(Map<Integer, Integer> cameFrom, int start, int goal) {
+		ArrayList<Integer> chain = new ArrayList<>();
+		for (int node = this.nodeCount + 1; node >= 0; node = cameFrom.get(node)) {
+			chain.add(cellOf(node, start, goal));
+		}
+		ArrayList<Integer> path = new ArrayList<>();
+		path.add(start);
+		for (int i = chain.size() - 1; i > 0; i--) {
+			int from = chain.get(i);
+			int to = chain.get(i - 1);
+			if (from == to)
+				continue;
+			if (clusterOf(from) != clusterOf(to)) {
+				path.add(to);
+				continue;
+			}
+			search(from, clusterOf(from));
+			int end = path.size();
+			for (int cell = to; cell != from; cell = this.localParent[localIndex(cell)]) {
+				path.add(end, cell);
+			}
+		}
+		return path.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/* Searches every cluster holding a door that was opened or put back since the last call */
+	private void refreshDoors() {
+		if (this.version == this.env.getVersion())
+			return;
+		this.version = this.env.getVersion();
+		boolean[] dirty = new boolean[this.clusterNodes.length];
+		for (int node = 0; node < this.nodeCount; node++) {
+			boolean gated = isGated(this.env.getTileStatus(this.nodeCell[node]));
+			if (gated != this.nodeGated[node]) {
+				this.nodeGated[node] = gated;
+				dirty[clusterOf(this.nodeCell[node])] = true;
+			}
+		}
+		for (int k = 0; k < dirty.length; k++) {
+			if (dirty[k])
+				refreshCluster(k);
+		}
+	}
+
+	/* Finds the cost between every pair of nodes in a cluster */
+	private void refreshCluster(int cluster) {
+		this.clusterRefreshes++;
+		int[] nodes = this.clusterNodes[cluster];
+		for (int node : nodes) {
+			search(this.nodeCell[node], cluster);
+			int[] targets = new int[nodes.length];
+			int[] costs = new int[nodes.length];
+			int count = 0;
+			for (int other : nodes) {
+				int distance = this.localDistance[localIndex(this.nodeCell[other])];
+				if (other != node && distance != UNREACHED) {
+					targets[count] = other;
+					costs[count++] = distance;
+				}
+			}
+			this.intraTargets[node] = Arrays.copyOf(targets, count);
+			this.intraCosts[node] = Arrays.copyOf(costs, count);
+		}
+	}
+
+	/* Breadth-first search from a cell without leaving its cluster. Doors can
+	 * be reached but not searched through, unless the search starts on one. */
+	private void search(int source, int cluster) {
+		Arrays.fill(this.localDistance, UNREACHED);
+		int top = cluster / this.clusterCols * CLUSTER_SIZE;
+		int left = cluster % this.clusterCols * CLUSTER_SIZE;
+		int head = 0;
+		int tail = 0;
+		this.localDistance[localIndex(source)] = 0;
+		this.localQueue[tail++] = source;
+		while (head < tail) {
+			int cell = this.localQueue[head++];
+			if (cell != source && isGated(this.env.getTileStatus(cell)))
+				continue;
+			int distance = this.localDistance[localIndex(cell)];
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = this.env.getNeighborIndex(cell, direction);
+				if (next < 0)
+					continue;
+				int row = next / this.cols;
+				int col = next % this.cols;
+				if (row < top || row >= top + CLUSTER_SIZE || col < left || col >= left + CLUSTER_SIZE)
+					continue;
+				int local = localIndex(next);
+				if (this.localDistance[local] != UNREACHED || !isOpen(this.env.getTileStatus(next)))
+					continue;
+				this.localDistance[local] = distance + 1;
+				this.localParent[local] = cell;
+				this.localQueue[tail++] = next;
+			}
+		}
+	}
+
+	/* Adds the entrances along every border between two clusters */
+	private void findEntrances() {
+		// Borders between a cluster and the one to its right
+		for (int col = CLUSTER_SIZE - 1; col + 1 < this.cols; col += CLUSTER_SIZE) {
+			for (int top = 0; top < this.rows; top += CLUSTER_SIZE) {
+				int bottom = Math.min(top + CLUSTER_SIZE, this.rows);
+				findEntrances(top * this.cols + col, this.cols, 1, bottom - top);
+			}
+		}
+		// Borders between a cluster and the one below it
+		for (int row = CLUSTER_SIZE - 1; row + 1 < this.rows; row += CLUSTER_SIZE) {
+			for (int left = 0; left < this.cols; left += CLUSTER_SIZE) {
+				int right = Math.min(left + CLUSTER_SIZE, this.cols);
+				findEntrances(row * this.cols + left, 1, this.cols, right - left);
+			}
+		}
+	}
+
+	/* Walks one border: first is the first cell on the near side, along steps
+	 * to the next pair and across steps to the far side */
+	private void findEntrances(int first, int along, int across, int length) {
+		int runStart = -1;
+		for (int i = 0; i <= length; i++) {
+			int near = first + i * along;
+			boolean open = i < length && isOpen(this.env.getTileStatus(near))
+					&& isOpen(this.env.getTileStatus(near + across));
+			boolean gated = open && (isGated(this.env.getTileStatus(near))
+					|| isGated(this.env.getTileStatus(near + across)));
+			if (open && !gated) {
+				if (runStart < 0)
+					runStart = i;
+				continue;
+			}
+			if (runStart >= 0) {
+				int runLength = i - runStart;
+				if (runLength >= LONG_ENTRANCE) {
+					addEntrance(first + runStart * along, across);
+					addEntrance(first + (i - 1) * along, across);
+				} else {
+					addEntrance(first + (runStart + runLength / 2) * along, across);
+				}
+				runStart = -1;
+			}
+			// A door on the border is always its own entrance
+			if (gated)
+				addEntrance(near, across);
+		}
+	}
+
+	private void addEntrance(int near, int across) {
+		int a = addNode(near);
+		int b = addNode(near + across);
+		if (!this.interEdges.get(a).contains(b)) {
+			this.interEdges.get(a).add(b);
+			this.interEdges.get(b).add(a);
+		}
+	}
+
+	private int addNode(int cell) {
+		Integer known = this.nodeAt.get(cell);
+		if (known != null)
+			return known;
+		if (this.nodeCount == this.nodeCell.length) {
+			this.nodeCell = Arrays.copyOf(this.nodeCell, this.nodeCount * 2);
+			this.nodeGated = Arrays.copyOf(this.nodeGated, this.nodeCount * 2);
+		}
+		this.nodeCell[this.nodeCount] = cell;
+		this.nodeGated[this.nodeCount] = isGated(this.env.getTileStatus(cell));
+		this.nodeAt.put(cell, this.nodeCount);
+		this.interEdges.add(new ArrayList<>());
+		return this.nodeCount++;
+	}
+
+	/* The start and goal are numbered just after the real nodes */
+	private int cellOf(int node, int start, int goal) {
+		if (node < this.nodeCount)
+			return this.nodeCell[node];
+		return node == this.nodeCount ? start : goal;
+	}
+
+	private int clusterOf(int cell) {
+		return cell / this.cols / CLUSTER_SIZE * this.clusterCols + cell % this.cols / CLUSTER_SIZE;
+	}
+
+	private int localIndex(int cell) {
+		return cell / this.cols % CLUSTER_SIZE * CLUSTER_SIZE + cell % this.cols % CLUSTER_SIZE;
+	}
+
+	private int distance(int a, int b) {
+		return Math.abs(a / this.cols - b / this.cols) + Math.abs(a % this.cols - b % this.cols);
+	}
+
+	/* Walls and water never open; every other tile can be walked on, some only with a key */
+	private static boolean isOpen(TileStatus status) {
+		return status != TileStatus.WALL && status != TileStatus.WATER;
+	}
+
+	/* Tiles whose passability depends on the keys carried or the chips left */
+	private static boolean isGated(TileStatus status) {
+		return Inventory.keyFor(status) != null || status == TileStatus.DOOR_GOAL;
+	}
+}
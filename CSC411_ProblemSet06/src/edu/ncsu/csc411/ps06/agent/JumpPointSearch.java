@@ -0,0 +1,163 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+
+/**
+ * Jump Point Search for a 4-connected grid where every move costs 1.
+ * Instead of pushing every open cell onto the frontier, the search runs in
+ * straight lines and only stops at jump points: the goal, and cells where
+ * a wall ends beside the line so that turning there could be the only
+ * shortest way on. While scanning vertically, every cell also scans left
+ * and right, and becomes a jump point if either scan finds one. Inside a
+ * big open room this expands a handful of cells instead of the whole room.
+ * Paths are exactly as long as those found by plain A*.
+ */
+class JumpPointSearch {
+	private final Environment env;
+	private final IntPredicate open;
+	private final int rows;
+	private final int cols;
+	private long expansions;
+
+	/**
+	 * Prepares a search over the given Environment.
+	 * @param env the Environment
+	 * @param open tells whether a grid index can be moved onto
+	 */
+	JumpPointSearch(Environment env, IntPredicate open) {
+		this.env = env;
+		this.open = open;
+		this.rows = env.getRows();
+		this.cols = env.getCols();
+	}
+
+	/**
+	 * Returns the number of jump points expanded so far.
+	 * @return the number of expansions
+	 */
+	long getExpansions() {
+		return this.expansions;
+	}
+
+	/**
+	 * Finds a shortest path between two cells.
+	 * @param start the grid index to start from
+	 * @param goal the grid index to reach
+	 * @return every cell of the path from start to goal, or null if there is none
+	 */
+	int[] findPath(int start, int goal) {
+		// Entries are (f << 32 | index), so ties go to the lower index
+		PriorityQueue<Long> frontier = new PriorityQueue<>();
+		Map<Integer, Integer> costSoFar = new HashMap<>();
+		Map<Integer, Integer> cameFrom = new HashMap<>();
+		costSoFar.put(start, 0);
+		cameFrom.put(start, -1);
+		frontier.add((long) heuristic(start, goal) << 32 | start);
+
+		while (!frontier.isEmpty()) {
+			long entry = frontier.poll();
+			int current = (int) entry;
+			int cost = costSoFar.get(current);
+			if ((entry >>> 32) > cost + heuristic(current, goal))
+				continue; // a cheaper entry for this cell was already expanded
+			this.expansions++;
+			if (current == goal)
+				return rebuild(cameFrom, goal);
+
+			int row = current / this.cols;
+			int col = current % this.cols;
+			int parent = cameFrom.get(current);
+			int dr = parent < 0 ? 0 : Integer.signum(row - parent / this.cols);
+			int dc = parent < 0 ? 0 : Integer.signum(col - parent % this.cols);
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = this.env.getNeighborIndex(current, direction);
+				if (next < 0)
+					continue;
+				int stepRow = next / this.cols - row;
+				int stepCol = next % this.cols - col;
+				// Never scan back the way we came
+				if (parent >= 0 && stepRow == -dr && stepCol == -dc)
+					continue;
+				int jumpPoint = jump(row, col, stepRow, stepCol, goal);
+				if (jumpPoint < 0)
+					continue;
+				int newCost = cost + distance(current, jumpPoint);
+				Integer known = costSoFar.get(jumpPoint);
+				if (known == null || newCost < known) {
+					costSoFar.put(jumpPoint, newCost);
+					cameFrom.put(jumpPoint, current);
+					frontier.add((long) (newCost + heuristic(jumpPoint, goal)) << 32 | jumpPoint);
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean isOpen(int row, int col) {
+		return row >= 0 && row < this.rows && col >= 0 && col < this.cols && this.open.test(row * this.cols + col);
+	}
+
+	/* Scans from (row, col) in one direction and returns the first jump point, or -1 */
+	private int jump(int row, int col, int dr, int dc, int goal) {
+		while (true) {
+			row += dr;
+			col += dc;
+			if (!isOpen(row, col))
+				return -1;
+			int index = row * this.cols + col;
+			if (index == goal)
+				return index;
+			if (dc != 0) {
+				// A wall beside the line ends here, so a turn may be needed
+				if ((isOpen(row - 1, col) && !isOpen(row - 1, col - dc))
+						|| (isOpen(row + 1, col) && !isOpen(row + 1, col - dc)))
+					return index;
+			} else {
+				if ((isOpen(row, col - 1) && !isOpen(row - dr, col - 1))
+						|| (isOpen(row, col + 1) && !isOpen(row - dr, col + 1)))
+					return index;
+				// Moving vertically, a jump point to either side makes this one too
+				if (jump(row, col, 0, 1, goal) >= 0 || jump(row, col, 0, -1, goal) >= 0)
+					return index;
+			}
+		}
+	}
+
+	private int distance(int a, int b) {
+		return Math.abs(a / this.cols - b / this.cols) + Math.abs(a % this.cols - b % this.cols);
+	}
+
+	private int heuristic(int cell, int goal) {
+		return distance(cell, goal);
+	}
+
+	/* Fills in the straight runs between consecutive jump points */
+	private int[] rebuild(Map<Integer, Integer> cameFrom, int goal) {
+		ArrayList<Integer> jumpPoints = new ArrayList<>();
+		for (int cell = goal; cell >= 0; cell = cameFrom.get(cell)) {
+			jumpPoints.add(cell);
+		}
+		int length = 1;
+		for (int i = 1; i < jumpPoints.size(); i++) {
+			length += distance(jumpPoints.get(i - 1), jumpPoints.get(i));
+		}
+		int[] path = new int[length];
+		int step = 0;
+		for (int i = jumpPoints.size() - 1; i > 0; i--) {
+			int from = jumpPoints.get(i);
+			int to = jumpPoints.get(i - 1);
+			int stride = from / this.cols == to / this.cols ? Integer.signum(to - from) : Integer.signum(to - from) * this.cols;
+			for (int cell = from; cell != to; cell += stride) {
+				path[step++] = cell;
+			}
+		}
+		path[step] = goal;
+		return path;
+	}
+}
@@ -0,0 +1,31 @@
+package edu.ncsu.csc411.ps06.agent;
+
+/**
+ * The search a Robot uses to find its way to the next subgoal
+ * (see Robot.setPathfinder). Every pathfinder but HIERARCHICAL and ANYTIME
+ * finds a shortest path, so they only differ in how much work they do and, between
+ * paths of equal length, which one they return.
+ */
+public enum Pathfinder {
+	/** A* over every cell, the default. */
+	A_STAR,
+	/** Jump Point Search for 4-connected grids, see JumpPointSearch. */
+	JUMP_POINT_SEARCH,
+	/**
+	 * HPA* over clusters of the grid, see HierarchicalPathfinder. Paths can
+	 * be a little longer than the shortest, but long trips on big maps
+	 * expand far fewer nodes.
+	 */
+	HIERARCHICAL,
+	/**
+	 * D* Lite, see DStarLite. The search towards each subgoal is kept and
+	 * repaired as doors open and the robot moves, instead of being run again.
+	 */
+	D_STAR_LITE,
+	/**
+	 * Anytime Repairing A*, see AnytimeSearch. It finds a rough path first
+	 * and shortens it for as long as Robot.setTimeBudget allows, carrying
+	 * the search over to the next tick when time runs out.
+	 */
+	ANYTIME
+}
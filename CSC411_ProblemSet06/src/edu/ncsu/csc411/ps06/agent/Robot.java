@@ -1,14 +1,21 @@
 package edu.ncsu.csc411.ps06.agent;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 
 import edu.ncsu.csc411.ps06.environment.Action;
+import edu.ncsu.csc411.ps06.environment.DistanceField;
 import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Inventory;
 import edu.ncsu.csc411.ps06.environment.Position;
+import edu.ncsu.csc411.ps06.environment.RoomGraph;
+import edu.ncsu.csc411.ps06.environment.SpatialIndex;
 import edu.ncsu.csc411.ps06.environment.TileStatus;
 
 /**
@@ -17,13 +24,133 @@ import edu.ncsu.csc411.ps06.environment.TileStatus;
  *
  */
 public class Robot {
+	private static final TileStatus[] COLORED_DOORS = {
+		TileStatus.DOOR_GREEN, TileStatus.DOOR_BLUE, TileStatus.DOOR_YELLOW, TileStatus.DOOR_RED
+	};
+	/** The most unreachable tiles of one kind to pass over in a single tick */
+	private static final int MAX_UNREACHABLE = 8;
+	/** The most states the full-state planner may keep before falling back */
+	private static final int MAX_PLANNER_STATES = 500000;
+	/** The most goals to keep D* Lite searches for */
+	private static final int MAX_INCREMENTAL_GOALS = 4;
+	/** The default search time for Pathfinder.ANYTIME per tick, in milliseconds */
+	private static final long DEFAULT_TICK_BUDGET = 10;
+	/** The default search time for Pathfinder.ANYTIME over a whole run, in milliseconds */
+	private static final long DEFAULT_RUN_BUDGET = 1500;
+	/* The outcomes of search */
+	private static final int FOUND = 0;
+	private static final int UNREACHABLE = 1;
+	private static final int ABANDONED = 2;
 	private Environment env;
+	private long nodesExpanded;
+	/* The last path found by aStar as grid indices, starting where the
+	 * robot stood, the step the robot should be on, the keys and chips it
+	 * was planned for, and the tile version it was last checked against.
+	 * The buffer is reused, planLength is 0 when there is no plan */
+	private int[] plan = new int[0];
+	private int planLength;
+	private int planStep;
+	private int planInventory;
+	private int planChips;
+	private long planVersion;
+	/* The optimal plan from FullStatePlanner, the next step of it, and the
+	 * tile version at which planning last failed */
+	private boolean optimalPlanning;
+	private FullStatePlanner.Plan fullPlan;
+	private int fullStep;
+	private long fullPlanFailedVersion = -1;
+	/* True distances and chip order, rebuilt when the tile version changes */
+	private TourPlanner tour;
+	private long tourVersion = -1;
+	private Pathfinder pathfinder = Pathfinder.A_STAR;
+	/* The clusters for Pathfinder.HIERARCHICAL, built on first use */
+	private HierarchicalPathfinder hierarchy;
+	/* The searches for Pathfinder.D_STAR_LITE by goal index, at most MAX_INCREMENTAL_GOALS */
+	private final Map<Integer, DStarLite> incremental = new HashMap<>();
+	/* The searches for Pathfinder.ANYTIME by goal index, at most MAX_INCREMENTAL_GOALS,
+	 * their time budgets and the time spent so far, in nanoseconds */
+	private final Map<Integer, AnytimeSearch> anytime = new HashMap<>();
+	private long tickBudget = DEFAULT_TICK_BUDGET * 1000000;
+	private long runBudget = DEFAULT_RUN_BUDGET * 1000000;
+	private long runTimeUsed;
+	private long tickStart;
+	/* How many subgoals evaluateCandidates searches at once, or 1 to go one by one */
+	private int parallelCandidates = 1;
+	/* The RoomGraph nodes reachable from reachableNode with the keys and chips
+	 * below, as of the tile version reachableVersion */
+	private boolean[] reachableNodes;
+	private long reachableVersion = -1;
+	private int reachableNode;
+	private int reachableInventory;
+	private int reachableChips;
 
 	/** Initializes a Robot on a specific tile in the environment.
 	 * @param env - The Environment
 	 */
 	public Robot (Environment env) { this.env = env; }
 
+	/**
+	 * Chooses the search used to reach each subgoal. All of them but
+	 * Pathfinder.HIERARCHICAL and Pathfinder.ANYTIME find shortest paths;
+	 * see Pathfinder.
+	 * @param pathfinder - the Pathfinder to use
+	 */
+	public void setPathfinder(Pathfinder pathfinder) {
+		this.pathfinder = pathfinder;
+		this.planLength = 0;
+	}
+
+	/**
+	 * Sets how long Pathfinder.ANYTIME may search, in each call to getAction
+	 * and in all of them together. When either runs out, the agent takes the
+	 * best step found so far, and the search carries on from there on the
+	 * next tick. Once the run budget is spent, each tick only gets the few
+	 * expansions made between two looks at the clock.
+	 * @param tickMillis - the time per tick, in milliseconds
+	 * @param runMillis - the time for the whole run, in milliseconds
+	 */
+	public void setTimeBudget(long tickMillis, long runMillis) {
+		this.tickBudget = tickMillis * 1000000;
+		this.runBudget = runMillis * 1000000;
+		this.runTimeUsed = 0;
+	}
+
+	/**
+	 * Sets how many subgoals are searched at once. With more than one, the
+	 * agent takes that many subgoals off the queue, searches for all of them
+	 * in parallel on the common ForkJoin pool, and heads for the one with the
+	 * shortest path, the earlier in the queue on a tie. A search stops as
+	 * soon as it cannot beat the best path already found, so an unreachable
+	 * subgoal no longer holds up the others. Only used with Pathfinder.A_STAR.
+	 * 
+	 * This is a different rule from the default, which heads for the first
+	 * subgoal in the queue it can reach, with chips in chip tour order. The
+	 * shortest path can leave the tour's next chip for later, so a run can
+	 * take more moves: on map04, 4 at once takes 113 moves against 109 one
+	 * at a time, as it passes the room of the tour's next chip for a nearer
+	 * door and has to come back for that chip near the end.
+	 * @param candidates - the number of subgoals to search at once, 1 for the
+	 * default of one at a time in queue order
+	 */
+	public void setParallelCandidates(int candidates) {
+		this.parallelCandidates = Math.max(1, candidates);
+	}
+
+	/**
+	 * Turns on the optimal planner. Instead of heading for the nearest
+	 * subgoal, the agent then follows a provably shortest plan that collects
+	 * every chip and reaches the portal, found by A* over its position, keys
+	 * and the items left on the map. If the state space is too large, or no
+	 * plan exists, it falls back to the usual greedy planning. The plan is
+	 * made again if the world does not go as planned, e.g. when another
+	 * Robot takes an item first.
+	 * @param optimal - true to use the optimal planner
+	 */
+	public void setOptimalPlanning(boolean optimal) {
+		this.optimalPlanning = optimal;
+		this.fullPlan = null;
+	}
+
 	/**	
 	 ****************************************DOCSTRING HERE****************************************
 	 * This uses a planning algorithm using priority queues to
@@ -31,38 +158,47 @@ public class Robot {
 	 * an A* search algorithm to find an optimal path to the
 	 * end goal. 
 	 *
-	 * First, this method gets the locations of all of the objects
-	 * in the environment that the agent will encounter. This includes
-	 * chips, doors, keys, the DOOR_GOAL, and the final GOAL. The priority queue
-	 * uses a custom comparator which prioritizes the subgoals in the queue
-	 * based on their calculated proximity to the agent. However, these priorities
-	 * are still altered based on where the agent is on the map. For example,
-	 * if the agent is closest to the DOOR_GOAL, but there are still chips left
-	 * to collect on the map, then the agent will prioritize collecting those chips
-	 * rather than the DOOR_GOAL as it cannot move past the DOOR_GOAL without collecting
-	 * all the chips. 
+	 * First, this method picks the objects that the agent could go for next:
+	 * the next chip and the nearest key of each color. On maps small enough
+	 * for a TourPlanner, the next chip comes from the shortest tour through
+	 * all the chips to the portal, and proximity is the true length of the
+	 * path around the walls. Otherwise, the Environment's spatial index gives
+	 * the closest by Manhattan distance. The priority queue uses a custom
+	 * comparator which prioritizes the subgoals in the queue based on their
+	 * proximity to the agent. However, which subgoals are offered still depends on the state
+	 * of the map. For example, the DOOR_GOAL and the final GOAL are only added once
+	 * there are no chips left to collect on the map, as the agent cannot move past
+	 * the DOOR_GOAL without collecting all the chips. 
 	 * 
-	 * The agent's inventory is also tracked along the way to keep track of and
-	 * update which keys it has. This is so that, when a locked door is 
-	 * encountered, it can check if it has the key for the corresponding door. 
-	 * A helper method called getKeyForDoor is used to determine which key 
-	 * goes to which door. It iterates through all of the subgoals, while the queue of 
-	 * subgoals is not empty, to determine which subgoal (Position) to target next. 
-	 * The first subgoal that is dequeued has the highest priority, but if this subgoal
-	 * brings the agent to a locked door for which it has no corresponding key,
-	 * then the agent is able to skip that subgoal and move to the next subgoal. This is
-	 * where the helper method getKeyForDoor is used, to check if the agent has the corresponding
-	 * key of color for the locked door it may be at. 
+	 * The agent's inventory is also tracked along the way to keep track of 
+	 * which keys it has. This is so that a locked door is only added as a 
+	 * subgoal when the agent has the key for the corresponding door. 
+	 * The Inventory.keyFor helper is used to determine which key 
+	 * goes to which door. 
 	 * 
-	 * Essentially, with each iteration of the loop in which it is checking
-	 * subgoals in the queue, the method will POLL the next subgoal from the queue. 
-	 * It uses the A* search algorithm to determine an OPTIMAL path to the current subgoal. 
+	 * The method will then POLL the subgoal with the highest priority from the queue. 
+	 * It uses the A* search algorithm to determine an OPTIMAL path to that subgoal. 
 	 * If a path is found towards it, then the agent's position is updated (it takes an Action) and
 	 * it moves towards the subgoal. 
 	 * 
-	 * If it goes through the whole queue of subgoals without finding an Action (e.g., there is 
-	 * no valid path towards the current subgoal), then the method will return Action.DO_NOTHING and the
+	 * If there are no subgoals, or there is no valid path towards the 
+	 * subgoal, then the method will return Action.DO_NOTHING and the
 	 * agent doesn't move. 
+	 * 
+	 * The whole path found by A* is kept. On later ticks, if the best subgoal
+	 * is still the one the path leads to, the agent simply takes the next step
+	 * of it instead of searching again. A new search is only run once the
+	 * path has been followed to its end, the best subgoal changes, the agent
+	 * is not where the path says it should be, or a change to the map
+	 * affects the path: a tile on the rest of it changed (e.g. the subgoal
+	 * was picked up), a tile off it became passable (e.g. a door opened), or
+	 * the agent's keys changed which doors it can pass. Items picked up off
+	 * the path, by this agent or any other, keep the path.
+	 * 
+	 * The final walk to the DOOR_GOAL and GOAL does not search at all. It
+	 * steps down the Environment's shared distance field for the target,
+	 * which every robot reads, and which is only rebuilt when a door or wall
+	 * changes.
 	 *
 	 * The method called by Environment to retrieve the agent's actions.        
 	 * @return should return a single Action from the Action class.
@@ -72,170 +208,373 @@ public class Robot {
     	- Action.MOVE_LEFT
     	- Action.MOVE_RIGHT
 	 */
-	public Action getAction() {		
-
-		// Get a Map of all of the locations of the objects in the environment
-		Map<TileStatus, ArrayList<Position>> envPositions = env.getEnvironmentPositions();
-
-		// Get an ArrayList of all the locations of all of the chips in the environment
-		ArrayList<Position> chips = envPositions.get(TileStatus.CHIP);
-
-		// Get an ArrayList of all the locations of all the doors in the environment
-		ArrayList<Position> doors = new ArrayList<>();
-
-		// There are 4 different types of doors in the environment the agent can open
-		// Add all 4 types of doors (their locations) to the ArrayList
-		doors.addAll(envPositions.get(TileStatus.DOOR_GREEN));
-		doors.addAll(envPositions.get(TileStatus.DOOR_BLUE));
-		doors.addAll(envPositions.get(TileStatus.DOOR_YELLOW));
-		doors.addAll(envPositions.get(TileStatus.DOOR_RED));
-
-		// Get the position of the DOOR_GOAL, which the agent must reach before reaching the GOAL
-		ArrayList<Position> doorGoalPositions = envPositions.get(TileStatus.DOOR_GOAL);
-		// Make sure that the list isn't empty so it doesn't throw an IndexOutOfBoundsError
-		if(!doorGoalPositions.isEmpty()) {
-			Position doorGoal = doorGoalPositions.get(0);
-			doors.add(doorGoal); // Once the check is complete, add its position to the list of other doors
-		}
-
-		// Get the position of the GOAL on the map
-		Position goal = envPositions.get(TileStatus.GOAL).get(0);
-
-		// Get the list of the positions of all the keys on the map
-		ArrayList<Position> keys = new ArrayList<>();
-		keys.addAll(envPositions.get(TileStatus.KEY_GREEN));
-		keys.addAll(envPositions.get(TileStatus.KEY_BLUE));
-		keys.addAll(envPositions.get(TileStatus.KEY_YELLOW));
-		keys.addAll(envPositions.get(TileStatus.KEY_RED));
-
-		// Get the agent's current position
+	public Action getAction() {
+		tickStart = System.nanoTime();
+		// Get the agent's current position and the keys it is carrying
 		Position selfPos = env.getRobotPosition(this);
+		int robotInventory = env.getRobotInventory(this);
 
-		// Create a PriorityQueue to track all of the subgoals the agent will encounter
-		PriorityQueue<Position> subgoals = new PriorityQueue<>(customComparator(selfPos));
-
-		// Track the objects the agent has already picked up (chips, keys)
-		ArrayList<String> robotInventoryList = env.getRobotHoldings(this);
-		// Store those objects in a Map
-		Map<TileStatus, Boolean> robotInventory = new HashMap<>();
-		// For every item in the robot's inventory, add it to the map
-		for(String inventoryItem : robotInventoryList) {
-			TileStatus inventoryStatus = TileStatus.valueOf(inventoryItem);
-			robotInventory.put(inventoryStatus, true);
+		if(optimalPlanning) {
+			Action planned = nextOptimalAction(selfPos, robotInventory);
+			if(planned != null) {
+				return planned;
+			}
 		}
 
-		// Have a boolean flag to check if all the chips on the map have been collected
-		boolean allChipsCollected = true;
-		// Add each chip to be collected to the list of subgoals
-		for(Position chip : chips) {
-			if(!robotInventoryList.contains(chip.toString())) {
-				subgoals.add(chip);
-			}
+		// The distances and the chip order only change when a tile does
+		if(tourVersion != env.getVersion()) {
+			tour = TourPlanner.build(env, env.getIndex(selfPos), tour);
+			tourVersion = env.getVersion();
 		}
 
-		// Add all the door positions to the list of subgoals
-		for(Position door : doors) {
-			if(!door.equals(selfPos)) {
-				subgoals.add(door);
+		// Create a PriorityQueue to track the subgoals the agent could go for next
+		PriorityQueue<Position> subgoals = new PriorityQueue<>(customComparator(selfPos));
+		// Count how many tiles of each kind turned out to be unreachable
+		Map<TileStatus, Integer> unreachable = new HashMap<>();
+
+		// Only the closest chip and the closest key of each color can ever be
+		// dequeued first, so ask the spatial index for those instead of adding
+		// every chip and key on the map
+		addNearest(subgoals, TileStatus.CHIP, selfPos);
+		addNearest(subgoals, TileStatus.KEY_GREEN, selfPos);
+		addNearest(subgoals, TileStatus.KEY_BLUE, selfPos);
+		addNearest(subgoals, TileStatus.KEY_YELLOW, selfPos);
+		addNearest(subgoals, TileStatus.KEY_RED, selfPos);
+
+		// Locked doors are only worth heading for when the agent has the matching key
+		for(TileStatus door : COLORED_DOORS) {
+			if(Inventory.contains(robotInventory, Inventory.keyFor(door))) {
+				addNearest(subgoals, door, selfPos);
 			}
 		}
-		// Add all the key positions to the list of subgoals
-		for(Position key : keys) {
-			if(!key.equals(selfPos)) {
-				subgoals.add(key);
-			}
+
+		// The agent cannot move past the DOOR_GOAL without collecting all the chips,
+		// so the DOOR_GOAL and the final GOAL only become subgoals once they are gone
+		if(env.getNumRemainingChips() == 0) {
+			addNearest(subgoals, TileStatus.DOOR_GOAL, selfPos);
+			addNearest(subgoals, TileStatus.GOAL, selfPos);
 		}
 
-		// Prioritize collecting all the chips by checking if there are chips remaining on the map
-		// If there are, add it to the list of subgoals
-		// In this case, if the agent still has chips left to collect on the map it will
-		// prioritize this subgoal
-		if(!allChipsCollected || env.getNumRemainingChips() > 0) {
-			for(Position chip : chips) {
-				if(!chip.equals(selfPos)) {
-					subgoals.add(chip);
-				}
+		// Whatever the agent is standing on is collected at the end of this tick,
+		// so plan as if it has already been picked up
+		TileStatus underfoot = env.getTileStatus(selfPos);
+		int plannedInventory = Inventory.isKey(underfoot) ? Inventory.add(robotInventory, underfoot) : robotInventory;
+		int plannedChips = env.getNumRemainingChips() - (underfoot == TileStatus.CHIP ? 1 : 0);
+
+		// Keep following the last path while it still leads to the best subgoal.
+		// A subgoal chosen by evaluateCandidates stays the closest of its batch
+		// on the way, since no other can get more than one step closer per move
+		boolean parallel = parallelCandidates > 1 && pathfinder == Pathfinder.A_STAR;
+		if(!subgoals.isEmpty()) {
+			Action replayed = replayPlan(selfPos, parallel ? null : subgoals.peek(), plannedInventory, plannedChips);
+			if(replayed != null) {
+				return replayed;
 			}
 		}
 
-		// Finally, add the GOAL portal to the list of subgoals (this is required for the agent
-		// to pass the map)
-		subgoals.add(goal);
-
-		Action nextAction;
+		if(parallel) {
+			return evaluateCandidates(subgoals, unreachable, selfPos, plannedInventory, plannedChips);
+		}
 
 		// Go through the list of subgoals while it is not empty
 		while(!subgoals.isEmpty()) {
-			// Dequeue the first subgoal (this is the subgoal with the highest priority)
+			// Dequeue the subgoal with the highest priority and move towards it
+			// using the A* search algorithm
 			Position nextSubgoal = subgoals.poll();
+			Action nextAction;
+			TileStatus kind = env.getTileStatus(nextSubgoal);
+			if(!canReach(selfPos, nextSubgoal, plannedInventory, plannedChips)) {
+				// The rooms and doors show there is no way there, so skip the search
+				nextAction = Action.DO_NOTHING;
+			} else if((kind == TileStatus.GOAL || kind == TileStatus.DOOR_GOAL) && sharesPassability(plannedInventory, plannedChips)) {
+				// Every robot heading for the portal reads the same distance field
+				nextAction = followField(selfPos, nextSubgoal, plannedInventory, plannedChips);
+			} else {
+				nextAction = findPath(selfPos, nextSubgoal, plannedInventory, plannedChips);
+			}
+			if(nextAction != Action.DO_NOTHING) {
+				return nextAction;
+			}
+			// The subgoal is unreachable (e.g. behind a locked door), so offer
+			// the next closest tile of the same kind instead
+			TileStatus status = env.getTileStatus(nextSubgoal);
+			int skipped = unreachable.merge(status, 1, Integer::sum);
+			if(skipped <= MAX_UNREACHABLE) {
+				addNearest(subgoals, status, selfPos, skipped);
+			}
+		}
+		// Otherwise, there are no reachable subgoals left, return no action
+		return Action.DO_NOTHING;
+	}
 
-			// Retrieve the status of the Position of the subgoal - check if it's a door
-			TileStatus doorStatus = env.getTiles().get(nextSubgoal).getStatus();
-			boolean isDoor = false; // Use a boolean flag to check if it's a door
-			// Check if it is one of the four types of doors
-			if(doorStatus == TileStatus.DOOR_RED 
-					|| doorStatus == TileStatus.DOOR_BLUE 
-					|| doorStatus == TileStatus.DOOR_GREEN 
-					|| doorStatus == TileStatus.DOOR_YELLOW) {
-				isDoor = true;
+	/**
+	 * Searches for the next few subgoals at once and heads for the closest by
+	 * path length (see chooseCandidate). If none of the batch can be reached,
+	 * the next tiles of the same kinds are tried, as in getAction.
+	 * @param subgoals the queue of subgoals
+	 * @param unreachable how many tiles of each kind were unreachable
+	 * @param selfPos the agent's current position
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return an Action to take towards the chosen subgoal
+	 */
+	private Action evaluateCandidates(PriorityQueue<Position> subgoals, Map<TileStatus, Integer> unreachable,
+			Position selfPos, int inventory, int remainingChips) {
+		while(!subgoals.isEmpty()) {
+			int count = Math.min(parallelCandidates, subgoals.size());
+			Position[] candidates = new Position[count];
+			for(int i = 0; i < count; i++) {
+				candidates[i] = subgoals.poll();
+			}
+			int[][] paths = new int[count][];
+			int winner = chooseCandidate(candidates, paths, inventory, remainingChips, true);
+			if(winner >= 0) {
+				if(paths[winner] == null) {
+					return followField(selfPos, candidates[winner], inventory, remainingChips);
+				}
+				return followPath(paths[winner], paths[winner].length, inventory, remainingChips);
+			}
+			// Nothing was found, so nothing was abandoned either; offer the
+			// next closest tile of each kind instead
+			for(Position candidate : candidates) {
+				TileStatus status = env.getTileStatus(candidate);
+				int skipped = unreachable.merge(status, 1, Integer::sum);
+				if(skipped <= MAX_UNREACHABLE) {
+					addNearest(subgoals, status, selfPos, skipped);
+				}
+			}
+		}
+		return Action.DO_NOTHING;
+	}
+
+	/**
+	 * Searches for a batch of subgoals from where the agent stands and picks
+	 * the one with the shortest path, the earlier in the batch on a tie. The
+	 * searches only read the Environment, which nothing changes while Robots
+	 * decide. They share the best result so far, packed as the path length
+	 * times the batch size plus the place in the batch, so each one gives up
+	 * once its f-value shows it cannot win, and the winner does not depend on
+	 * which search finishes first. Run one after the other, they pick the
+	 * same winner.
+	 * @param candidates the subgoals, in the order they came off the queue
+	 * @param paths filled in with the path to each subgoal a search reached,
+	 * and left null where the shared distance field gave the length instead.
+	 * Maps too big for distance fields search for the portal too
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @param parallel true to search on the common ForkJoin pool, false to
+	 * search one subgoal after the other
+	 * @return the place of the chosen subgoal in the batch, or -1 if none can
+	 * be reached
+	 */
+	int chooseCandidate(Position[] candidates, int[][] paths, int inventory, int remainingChips, boolean parallel) {
+		Position selfPos = env.getRobotPosition(this);
+		int start = env.getIndex(selfPos);
+		int count = candidates.length;
+		boolean shared = sharesPassability(inventory, remainingChips);
+		int[] expansions = new int[count];
+		// Candidates the RoomGraph rules out are never searched
+		boolean[] reachable = new boolean[count];
+		for(int i = 0; i < count; i++) {
+			reachable[i] = canReach(selfPos, candidates[i], inventory, remainingChips);
+		}
+		AtomicLong best = new AtomicLong(Long.MAX_VALUE);
+		IntStream batch = IntStream.range(0, count);
+		(parallel ? batch.parallel() : batch).forEach(i -> {
+			int goal = env.getIndex(candidates[i]);
+			TileStatus kind = env.getTileStatus(goal);
+			if(goal == start || !reachable[i]) {
+				return;
+			}
+			DistanceField field = (kind == TileStatus.GOAL || kind == TileStatus.DOOR_GOAL) && shared
+					? env.getDistanceField(candidates[i], this) : null;
+			if(field != null) {
+				// The shared distance field already knows the length
+				int distance = field.getDistance(start);
+				if(distance != DistanceField.UNREACHABLE) {
+					best.accumulateAndGet((long) distance * count + i, Math::min);
+				}
+				return;
 			}
-			// Get the type of key required to unlock that door, if that is the next subgoal
-			TileStatus requiredKey = getKeyForDoor(nextSubgoal);
-			// If the agent does NOT have the key it needs to unlock that door, skip this subgoal
-			if(isDoor && !env.getRobotHoldings(this).contains(requiredKey.toString())) {
-				continue; 
+			SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+			int outcome = search(workspace, start, goal, inventory, remainingChips,
+					f -> (long) f * count + i > best.get());
+			expansions[i] = workspace.getExpansions();
+			if(outcome == FOUND) {
+				paths[i] = Arrays.copyOf(workspace.buildPath(goal), workspace.getPathLength());
+				best.accumulateAndGet((long) (paths[i].length - 1) * count + i, Math::min);
 			}
+		});
+		for(int i = 0; i < count; i++) {
+			nodesExpanded += expansions[i];
+		}
+		return best.get() == Long.MAX_VALUE ? -1 : (int) (best.get() % count);
+	}
 
-			// This is a planning situation in which the agent reaches the DOOR_GOAL right
-			// before the goal, but there are still chips left on the map
-			// In this situation, if there are still chips left on the map BUT the 
-			// agent is closer to the DOOR_GOAL than a chip, it will still prioritize
-			// collecting a chip
-			if(env.getTiles().get(nextSubgoal).getStatus().equals(TileStatus.DOOR_GOAL) && env.getNumRemainingChips() > 0) {
-
-				// It will also ensure that all chips have been collected then, before going to the DOOR_GOAL
-				for(Position chip : chips) {
-					if(!chip.equals(selfPos)) {
-						subgoals.add(chip);
-					}
-					// Check if the agent is closer to the DOOR_GOAL than the chips on the map
-					if(calculateDistance(selfPos, nextSubgoal) < calculateDistance(selfPos, chip)) {
-						nextSubgoal = subgoals.poll();
-					}
-				} 
-				continue; 
+	/**
+	 * Checks in O(1) whether a subgoal can be reached at all. A subgoal in
+	 * the agent's connected component (see Environment.getComponent) always
+	 * can be, and without keys, while chips are left, no other one can.
+	 * This does not apply while the agent stands on a door it is opening.
+	 * Otherwise its node is looked up in the Environment's RoomGraph. The
+	 * nodes reachable from the agent's room are only found again when the
+	 * agent changes room, a tile changes, or the planned keys or chips differ.
+	 * Maps too big for a RoomGraph are left to the search to rule out.
+	 * @param selfPos the agent's current position
+	 * @param subgoal the subgoal to reach
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return false if there is certainly no path to the subgoal
+	 */
+	private boolean canReach(Position selfPos, Position subgoal, int inventory, int remainingChips) {
+		int from = env.getIndex(selfPos);
+		int to = env.getIndex(subgoal);
+		RoomGraph rooms = env.getRoomGraph();
+		if(rooms == null) {
+			return true;
+		}
+		int node = rooms.getNode(from);
+		// On a door that opens at the end of this tick, the agent is in no room yet
+		if(node >= 0 && node < rooms.getRoomCount()) {
+			if(env.getComponent(from) == env.getComponent(to)) {
+				return true;
+			}
+			// Every closed door stays shut without keys and with chips left
+			if(inventory == Inventory.EMPTY && remainingChips > 0) {
+				return false;
 			}
+		}
+		if(reachableNodes == null || reachableVersion != env.getVersion() || reachableNode != node
+				|| reachableInventory != inventory || reachableChips != remainingChips) {
+			reachableNodes = rooms.reachableFrom(from, inventory, remainingChips);
+			reachableVersion = env.getVersion();
+			reachableNode = node;
+			reachableInventory = inventory;
+			reachableChips = remainingChips;
+		}
+		int target = rooms.getNode(to);
+		return target >= 0 && reachableNodes[target];
+	}
+
+	/**
+	 * Takes the next step of the cached path, or returns null if there is no
+	 * usable path to the subgoal and the agent has to plan again.
+	 * @param selfPos the agent's current position
+	 * @param subgoal the subgoal the agent wants to reach, or null if the
+	 * path may end at any subgoal
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return the next Action along the path, or null
+	 */
+	private Action replayPlan(Position selfPos, Position subgoal, int inventory, int remainingChips) {
+		if(planLength == 0 || plan[planStep] != env.getIndex(selfPos) || planStep + 1 == planLength
+				|| (subgoal != null && plan[planLength - 1] != env.getIndex(subgoal))
+				|| inventory != planInventory || (remainingChips == 0) != (planChips == 0)
+				|| !planSurvivesChanges()) {
+			planLength = 0;
+			return null;
+		}
+		planStep++;
+		return determineStep(plan[planStep - 1], plan[planStep]);
+	}
 
-			// If the final GOAL is closer to the agent than another chip (and there are sitll chips remaining on the map)
-			// then prioritize the chips
-			if(env.getTiles().get(nextSubgoal).getStatus().equals(TileStatus.GOAL) && env.getNumRemainingChips() > 0) {
-				for(Position chip : chips) {
-					if(!chip.equals(selfPos)) {
-						subgoals.add(chip);
-					}
-					if(calculateDistance(selfPos, nextSubgoal) < calculateDistance(selfPos, chip)) {
-						nextSubgoal = subgoals.poll();
-					}
+	/**
+	 * Goes through the tiles changed since the path was last checked, and
+	 * tells whether it is still a shortest path to the subgoal. It is not if
+	 * a changed tile lies on the rest of the path, which may now be blocked
+	 * or have lost its subgoal, or if a tile off the path became passable,
+	 * which may open a shorter way. Items picked up off the path change
+	 * neither. If too much has changed to list, the path is dropped.
+	 * @return true if the path can still be followed
+	 */
+	private boolean planSurvivesChanges() {
+		long version = env.getVersion();
+		if(planVersion == version) {
+			return true;
+		}
+		int[] changed = env.getChangedCells(planVersion);
+		if(changed == null) {
+			return false;
+		}
+		for(int i = 0; i < changed.length; i++) {
+			int cell = changed[i];
+			for(int step = planStep + 1; step < planLength; step++) {
+				if(plan[step] == cell) {
+					return false;
 				}
 			}
+			boolean wasPassable = Environment.isPassable(env.getChangedFrom(planVersion, i), planInventory, planChips);
+			if(!wasPassable && Environment.isPassable(env.getTileStatus(cell), planInventory, planChips)) {
+				return false;
+			}
+		}
+		planVersion = version;
+		return true;
+	}
 
-			// Move towards the next subgoal using A* search algorithm
-			nextAction = aStar(selfPos, nextSubgoal);
+	/**
+	 * Returns the next step of the optimal plan, making a new plan if the agent
+	 * is not in the state the plan expected. Returns null when there is no
+	 * plan, so that the greedy planner takes over.
+	 * @param selfPos the agent's current position
+	 * @param robotInventory the keys the agent is carrying
+	 * @return the next Action of the plan, or null
+	 */
+	private Action nextOptimalAction(Position selfPos, int robotInventory) {
+		boolean onPlan = fullPlan != null && fullStep < fullPlan.actions.length
+				&& fullPlan.cells[fullStep] == env.getIndex(selfPos)
+				&& fullPlan.inventories[fullStep] == robotInventory
+				&& fullPlan.chips[fullStep] == env.getNumRemainingChips();
+		if(!onPlan) {
+			fullPlan = null;
+			if(fullPlanFailedVersion == env.getVersion()) {
+				return null;
+			}
+			fullPlan = FullStatePlanner.plan(env, this, MAX_PLANNER_STATES);
+			fullStep = 0;
+			if(fullPlan == null || fullPlan.actions.length == 0) {
+				fullPlan = null;
+				fullPlanFailedVersion = env.getVersion();
+				return null;
+			}
+		}
+		return fullPlan.actions[fullStep++];
+	}
 
-			// Update the agent's current position to be that of the next subgoal and keep going
-			selfPos = nextSubgoal;
+	/* Lets the planners in this package count their expansions */
+	void countExpansion() {
+		nodesExpanded++;
+	}
 
-			// Make sure the final GOAL is in the list of subgoals and prioritize it
-			if(!subgoals.contains(goal)) {
-				subgoals.add(goal);
-			} 
+	private void addNearest(PriorityQueue<Position> subgoals, TileStatus status, Position selfPos) {
+		addNearest(subgoals, status, selfPos, 0);
+	}
 
-			// The method returns the next action from A* that the robot should take towards
-			// a goal or subgoal
-			return nextAction;
+	/**
+	 * Adds the closest tile of a given status to the subgoals, skipping the
+	 * tile the agent is standing on since it is collected this tick anyway.
+	 * With a TourPlanner, chips are taken in tour order instead.
+	 * @param subgoals the queue of subgoals
+	 * @param status the kind of tile to look for
+	 * @param selfPos the agent's current position
+	 * @param skip how many of the closest tiles to pass over first
+	 */
+	private void addNearest(PriorityQueue<Position> subgoals, TileStatus status, Position selfPos, int skip) {
+		int selfIndex = env.getIndex(selfPos);
+		if(tour != null) {
+			int next = tour.next(status, selfIndex, skip);
+			if(next >= 0) {
+				subgoals.add(env.getPosition(next));
+			}
+			return;
+		}
+		SpatialIndex index = env.getSpatialIndex(status);
+		for(int nearest : index.nearest(selfPos.getRow(), selfPos.getCol(), skip + 2)) {
+			if(nearest != selfIndex && skip-- == 0) {
+				subgoals.add(env.getPosition(nearest));
+				return;
+			}
 		}
-		// Otherwise, there are no subgoals left, return no action
-		return Action.DO_NOTHING;
 	}
 
 	/**
@@ -243,11 +582,19 @@ public class Robot {
 	 * from a given position (the position of another subgoal to reach). 
 	 * Essentially, this is what orders the subgoals in the priority queue. 
 	 * Subgoals that the agent is closer to are higher in priority. 
+	 * The distance is the true path length from the TourPlanner when there
+	 * is one, and the Manhattan distance otherwise.
 	 * @param selfPos the agent's current position 
 	 * @return the custom comparator for the Positions in the list of subgoals to help prioritize them
 	 */
 	private Comparator<Position> customComparator(Position selfPos) {
-		return Comparator.comparingInt(p -> calculateDistance(selfPos, p)); 
+		int selfIndex = env.getIndex(selfPos);
+		TourPlanner distances = tour;
+		Comparator<Position> byDistance = distances == null
+				? Comparator.comparingInt(p -> calculateDistance(selfPos, p))
+				: Comparator.comparingInt(p -> distances.distance(env.getIndex(p), selfIndex));
+		// Break ties by grid index so that the chosen subgoal is deterministic
+		return byDistance.thenComparingInt(p -> env.getIndex(p));
 	}
 
 	/**
@@ -262,37 +609,15 @@ public class Robot {
 				+ Math.abs(firstPos.getCol() - secondPos.getCol());
 	}
 
-	/**
-	 * This is a helper method to determine which key goes to which door.
-	 * It checks the status of each tile at a given position and then
-	 * it will give the matching key color for it (if it's a door).
-	 * @param door the position to check 
-	 * @return the TileStatus of the position
-	 */
-	private TileStatus getKeyForDoor(Position door) {
-		if(env.getTiles().get(door).getStatus() == TileStatus.DOOR_RED) {
-			return TileStatus.KEY_RED;
-		} else if(env.getTiles().get(door).getStatus() == TileStatus.DOOR_BLUE)  {
-			return TileStatus.KEY_BLUE;
-		} else if(env.getTiles().get(door).getStatus() == TileStatus.DOOR_GREEN) {
-			return TileStatus.KEY_GREEN;
-		} else if(env.getTiles().get(door).getStatus() == TileStatus.DOOR_YELLOW) {
-			return TileStatus.KEY_YELLOW;
-		} else {
-			return null;
-		}
-	}
-
 	/**
 	 * The method uses A* Search to find the shortest path to the target. 
-	 * Robot.java also includes Nodes and a custom comparator to be used 
-	 * in a Priority Queue to track and compare positions. 
 	 * During the search, it calculates the cost associated with moving to each 
-	 * new position, and it updates the frontier queue, cameFrom, and costSoFar 
-	 * hash maps accordingly. 
+	 * new position, and it records the cost and previous position in the 
+	 * thread's SearchWorkspace, whose indexed heap is the frontier queue. 
+	 * Positions already taken off the frontier are never expanded again. 
 	 * Once the algorithm finds the target, it reconstructs the path from the
 	 * new current position of the Robot to the target. 
-	 * The cameFrom map is used so that the robot can backtrack from the target position to
+	 * The previous positions are used so that the robot can backtrack from the target position to
 	 * the current position, and this is repeated until the target is found (unless
 	 * it is unreachable). 
 	 * After the path is reconstructed, the next action for the Robot to take is 
@@ -300,99 +625,249 @@ public class Robot {
 	 * and the target. If the target is neighboring the current position 
 	 * (the difference is 1 unit/action), then the agent moves in the appropriate 
 	 * direction to reach the target. If not, then the robot does nothing. 
+	 * Doors are only crossed when the agent could actually pass through them,
+	 * using the same rules as the Environment.
 	 * @param start the starting position of the agent
 	 * @param goal the goal position 
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
 	 * @return an Action to take to get closer to the goal
 	 */
-	private Action aStar(Position start, Position goal) {
+	private Action aStar(Position start, Position goal, int inventory, int remainingChips) {
 
-		// Priority Queue for A* search
-		PriorityQueue<Node> frontier = new PriorityQueue<>();
-
-		// Start exploring adjacent positions
-		// cameFrom stores previous positions
-		Map<Position, Position> cameFrom = new HashMap<>();
+		int startIndex = env.getIndex(start);
+		int goalIndex = env.getIndex(goal);
+		// If the target is where the agent already stands, there is nowhere to go
+		if(startIndex == goalIndex) {
+			return Action.DO_NOTHING;
+		}
 
-		// costSoFar gets updated with the cumulative cost associated with the 
-		// new position reached
-		Map<Position, Integer> costSoFar = new HashMap<>();
+		// The thread's workspace keeps the cost and the previous cell of every
+		// position reached, and the frontier, between calls, so nothing is allocated here
+		SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+		int outcome = search(workspace, startIndex, goalIndex, inventory, remainingChips, f -> false);
+		nodesExpanded += workspace.getExpansions();
+		if(outcome != FOUND) {
+			return Action.DO_NOTHING;
+		}
+		// Reconstruct the path and determine which direction to go in
+		int[] path = workspace.buildPath(goalIndex);
+		return followPath(path, workspace.getPathLength(), inventory, remainingChips);
+	}
 
-		// Add the current position to the queue with priority 0
-		frontier.add(new Node(start, 0));
+	/**
+	 * The A* search behind aStar and chooseCandidate. It only reads the
+	 * Environment, so several can run at once on different threads.
+	 * @param workspace the calling thread's SearchWorkspace
+	 * @param startIndex the grid index to start from
+	 * @param goalIndex the grid index to reach, which must differ from the start
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @param abandon tested with the f-value of each expanded position, gives
+	 * up on the search when it returns true
+	 * @return FOUND, with the path in the workspace, UNREACHABLE or ABANDONED
+	 */
+	private int search(SearchWorkspace workspace, int startIndex, int goalIndex, int inventory, int remainingChips,
+			IntPredicate abandon) {
+		boolean shared = sharesPassability(inventory, remainingChips);
+		int goalRow = goalIndex / env.getCols();
+		int goalCol = goalIndex % env.getCols();
+		workspace.reset(env.getRows() * env.getCols());
 
-		// The starting position has no previous position. 
-		// This is the initial position to put into the maps.
-		cameFrom.put(start, null);
-		costSoFar.put(start, 0);
+		// Add the current position to the frontier; it has no previous position
+		workspace.push(startIndex, 0, -1, 0);
 
-		// This loop iterates through the positions in the queue until it's empty, or if the target is reached
-		while(!frontier.isEmpty()) {
+		// This loop iterates through the positions in the frontier until it's empty, or if the target is reached
+		while(!workspace.isEmpty()) {
 
 			// Get the position with the lowest priority from the frontier
-			Node current = frontier.poll();
+			int current = workspace.pop();
 
 			// Check if the current position equals the target position
-			if(current.position.equals(goal)) {
-				Position currentPos = goal;
-				Position previousPos = cameFrom.get(currentPos);
-				// If the target position is unreachable
-				if (previousPos == null) {
-					return Action.DO_NOTHING;
-				}
+			if(current == goalIndex) {
+				return FOUND;
+			}
+			// Every path through this position costs at least its f-value
+			int manhattan = Math.abs(current % env.getCols() - goalCol) + Math.abs(current / env.getCols() - goalRow);
+			if(abandon.test(workspace.getCost(current) + manhattan)) {
+				return ABANDONED;
+			}
 
-				// Reconstruct the path
-				while(!previousPos.equals(start)) {
-					// Update the current position to the previous position (move backwards)
-					currentPos = previousPos;
-					// Update the previous position to where the current position just was - reconstructing
-					previousPos = cameFrom.get(currentPos);
+			// Iterate through all the neighboring positions of the CURRENT position
+			int newCost = workspace.getCost(current) + 1;
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = env.getNeighborIndex(current, direction);
+				// For each position, check if it is a wall/obstacle/barrier, or already expanded
+				if (next < 0 || workspace.isClosed(next) || !passable(next, shared, inventory, remainingChips)) {
+					continue;
+				}
+				if (newCost < workspace.getCost(next)) {
+					// Use the Manhattan Distance Heuristic
+					int manhattanDistance = Math.abs(next % env.getCols() - goalCol) + Math.abs(next / env.getCols() - goalRow);
+					// Queue the next position, or move it up the frontier if it was already queued,
+					// recording where it was reached from so the algo can backtrack from the target
+					workspace.push(next, newCost, current, newCost + manhattanDistance);
 				}
-
-				// Determine which direction to go in
-				return determinePath(start, currentPos);
 			}
+		}
+		return UNREACHABLE;
+	}
 
-			// This map gets neighboring positions based on the CURRENT position
-			Map<String, Position> neighbors = env.getNeighborPositions(current.position);
-
-			// Iterate through all the neighboring positions
-			for (Position next : neighbors.values()) {
-				// For each position, get the tile and check if it is a wall/obstacle/barrier
-				TileStatus nextTile = env.getTiles().get(next).getStatus();
-				if(nextTile != null && nextTile != TileStatus.WALL && nextTile != TileStatus.WATER) {
-					// Calculate the new cost to get to the next position
-					int newCost = costSoFar.get(current.position) + 1;
-					if (!costSoFar.containsKey(next) || newCost < costSoFar.get(next)) {
-						// Update the cumulative cost
-						costSoFar.put(next, newCost);
-						// Use the Manhattan Distance Heuristic
-						int manhattanDistance = Math.abs(next.getCol() - goal.getCol()) + Math.abs(next.getRow() - goal.getRow());
-						int priority = newCost + manhattanDistance;
-						// Add the next position to the queue with the calculated priority
-						frontier.add(new Node(next, priority));
-						// By recording the path taken to reach each position, the algo can
-						// backtrack from the target to start
-						cameFrom.put(next, current.position); 
-					} 
+	/**
+	 * Finds the first step towards a subgoal with the selected Pathfinder.
+	 * @param start the starting position of the agent
+	 * @param goal the goal position 
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return an Action to take to get closer to the goal
+	 */
+	private Action findPath(Position start, Position goal, int inventory, int remainingChips) {
+		if(pathfinder == Pathfinder.D_STAR_LITE) {
+			int from = env.getIndex(start);
+			int to = env.getIndex(goal);
+			DStarLite search = incremental.get(to);
+			if(search == null) {
+				if(incremental.size() >= MAX_INCREMENTAL_GOALS) {
+					// Reuse the arrays of an old search rather than allocate a grid's worth
+					search = incremental.remove(incremental.keySet().iterator().next());
+					search.setGoal(to, from, inventory, remainingChips);
+				} else {
+					search = new DStarLite(env, to, from, inventory, remainingChips);
 				}
+				incremental.put(to, search);
 			}
+			// Only the next step is taken, the search is repaired on the next tick
+			long before = search.getExpansions();
+			int next = search.nextStep(from, inventory, remainingChips);
+			nodesExpanded += search.getExpansions() - before;
+			return next < 0 ? Action.DO_NOTHING : determineStep(from, next);
 		}
-		return Action.DO_NOTHING;
+		if(pathfinder == Pathfinder.ANYTIME) {
+			int from = env.getIndex(start);
+			int to = env.getIndex(goal);
+			AnytimeSearch search = anytime.get(to);
+			if(search == null) {
+				if(anytime.size() >= MAX_INCREMENTAL_GOALS) {
+					// Reuse the arrays of an old search rather than allocate a grid's worth
+					search = anytime.remove(anytime.keySet().iterator().next());
+					search.setGoal(to);
+				} else {
+					search = new AnytimeSearch(env, to);
+				}
+				anytime.put(to, search);
+			}
+			// Subgoals tried later in the same tick share what is left of its budget
+			long now = System.nanoTime();
+			long deadline = tickStart + Math.min(tickBudget, Math.max(0, runBudget - runTimeUsed));
+			long before = search.getExpansions();
+			int next = search.nextStep(from, inventory, remainingChips, deadline);
+			nodesExpanded += search.getExpansions() - before;
+			runTimeUsed += System.nanoTime() - now;
+			return next < 0 ? Action.DO_NOTHING : determineStep(from, next);
+		}
+		if(pathfinder == Pathfinder.HIERARCHICAL) {
+			if(hierarchy == null || hierarchy.isStale()) {
+				hierarchy = new HierarchicalPathfinder(env);
+			}
+			long before = hierarchy.getExpansions();
+			int[] path = hierarchy.findPath(env.getIndex(start), env.getIndex(goal), inventory, remainingChips);
+			nodesExpanded += hierarchy.getExpansions() - before;
+			return path == null || path.length < 2 ? Action.DO_NOTHING : followPath(path, path.length, inventory, remainingChips);
+		}
+		if(pathfinder == Pathfinder.JUMP_POINT_SEARCH) {
+			boolean shared = sharesPassability(inventory, remainingChips);
+			JumpPointSearch search = new JumpPointSearch(env, index -> passable(index, shared, inventory, remainingChips));
+			int[] path = search.findPath(env.getIndex(start), env.getIndex(goal));
+			nodesExpanded += search.getExpansions();
+			return path == null || path.length < 2 ? Action.DO_NOTHING : followPath(path, path.length, inventory, remainingChips);
+		}
+		return aStar(start, goal, inventory, remainingChips);
+	}
+
+	/**
+	 * Takes one step down the Environment's distance field towards a target,
+	 * or searches for a path on a map too big for distance fields.
+	 * @param start the agent's current position
+	 * @param target the position to reach
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return an Action to take to get closer to the target
+	 */
+	private Action followField(Position start, Position target, int inventory, int remainingChips) {
+		DistanceField field = env.getDistanceField(target, this);
+		if(field == null) {
+			return findPath(start, target, inventory, remainingChips);
+		}
+		int from = env.getIndex(start);
+		int next = field.nextStep(from);
+		return next < 0 ? Action.DO_NOTHING : determineStep(from, next);
+	}
+
+	/**
+	 * When the planned keys and chips open the same doors as the real ones,
+	 * the Environment's passability bitset can answer for the searches.
+	 * @param inventory the keys the agent will be carrying
+	 * @param remainingChips the chips that will still be on the map
+	 * @return true if Environment.isPassable(Robot, int) can be used
+	 */
+	private boolean sharesPassability(int inventory, int remainingChips) {
+		return inventory == env.getRobotInventory(this)
+				&& (remainingChips == 0) == (env.getNumRemainingChips() == 0);
+	}
+
+	private boolean passable(int index, boolean shared, int inventory, int remainingChips) {
+		return shared ? env.isPassable(this, index)
+				: Environment.isPassable(env.getTileStatus(index), inventory, remainingChips);
+	}
+
+	/**
+	 * Keeps a path so that later ticks can replay it, and returns its first step.
+	 * @param cells the grid indices of the path, starting where the agent stands
+	 * @param length the number of cells in the path
+	 * @param inventory the keys the path was found for
+	 * @param remainingChips the chip count the path was found for
+	 * @return the Action that takes the first step
+	 */
+	private Action followPath(int[] cells, int length, int inventory, int remainingChips) {
+		if(plan.length < length) {
+			plan = new int[Math.max(length, 2 * plan.length)];
+		}
+		System.arraycopy(cells, 0, plan, 0, length);
+		planLength = length;
+		planStep = 1;
+		planVersion = env.getVersion();
+		planInventory = inventory;
+		planChips = remainingChips;
+		return determineStep(cells[0], cells[1]);
+	}
+
+	/**
+	 * Returns the action that moves between two neighboring grid indices,
+	 * without making Positions for them.
+	 * @param from the grid index the agent is on
+	 * @param to the grid index of the next step
+	 * @return an Action to take
+	 */
+	private Action determineStep(int from, int to) {
+		int cols = env.getCols();
+		return determinePath(from / cols, from % cols, to / cols, to % cols);
 	}
 
 	/**
 	 * This method reconstructs the path and works with A*, it returns the action for the A* method.
 	 * It finds the difference between the current and target positions and decides the best
 	 * action moving forward to make the difference smaller. 
-	 * @param currentPos the agent's current position
-	 * @param nextSubGoal the next subgoal (position) that the agent needs to get to 
+	 * @param currentRow the row of the agent's current position
+	 * @param currentCol the column of the agent's current position
+	 * @param nextRow the row of the next position that the agent needs to get to 
+	 * @param nextCol the column of the next position that the agent needs to get to 
 	 * @return and Action to take
 	 */
-	private Action determinePath(Position currentPos, Position nextSubGoal) {
+	private Action determinePath(int currentRow, int currentCol, int nextRow, int nextCol) {
 		// Determine where to go next based on the path to the next subgoal
 		// Calculate the differences in column and row positions between the current position and the target
-		int columnDifference = nextSubGoal.getCol() - currentPos.getCol();
-		int rowDifference = nextSubGoal.getRow() - currentPos.getRow();
+		int columnDifference = nextCol - currentCol;
+		int rowDifference = nextRow - currentRow;
 
 		// If the target is to the right of the current position, move right
 		if (columnDifference == 1) {
@@ -411,49 +886,17 @@ public class Robot {
 		}
 	}
 
-	@Override
-	public String toString() {
-		return "Robot [pos=" + env.getRobotPosition(this) + "]";
-	}
-
 	/**
-	 * Since Positions cannot be compared, an inner class 
-	 * for a Node is used to make comparisons. 
-	 * A Node contains a position and associated priority. 
-	 * Nodes are comparable based on these priorities, so
-	 * that they may be sorted in the frontier queue.
-	 * @author zoyab
-	 *
+	 * Returns the total number of nodes this Robot's searches have expanded,
+	 * which is used by BenchmarkSimulation to compare planners.
+	 * @return the number of expanded nodes
 	 */
-	private static class Node implements Comparable<Node> {
-		/** The position associated with the Node */
-		Position position;
-		/** The priority of the Node */
-		int priority;
-
-		/**
-		 * Constructor for a Node with a position and priority. 
-		 * @param position the associated position
-		 * @param priority the associated priority of it to use for comparisons
-		 */
-		Node(Position position, int priority) {
-			this.position = position;
-			this.priority = priority;
-		}
-		/**
-		 * Compares the current node with a different node using the associated
-		 * priorities.
-		 * @param o the other node to compare 
-		 * @return an integer representing the comparison value: 0 if equal,
-		 * -1 if less than, and 1 if greater than
-		 */
-		@Override
-		public int compareTo(Node o) {
-			return Integer.compare(this.priority, o.priority);
-		}
-
+	public long getNodesExpanded() {
+		return this.nodesExpanded;
 	}
 
-
-
+	@Override
+	public String toString() {
+		return "Robot [pos=" + env.getRobotPosition(this) + "]";
+	}
 }
\ No newline at end of file
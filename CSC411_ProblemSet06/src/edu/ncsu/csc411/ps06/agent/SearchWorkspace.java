@@ -0,0 +1,339 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import java.util.Arrays;
+
+import edu.ncsu.csc411.ps06.environment.TileStorage;
+
+/**
+ * Reusable storage for grid searches, indexed by grid index. Every array is
+ * kept between searches: instead of clearing them, each search takes a new
+ * generation number, and a cell's cost and parent only count when its stamp
+ * matches the current generation. The open list is an indexed binary heap,
+ * so a cell is never queued twice and a cheaper path lowers its key in
+ * place. Once the arrays have grown to the size of the grid, a search does
+ * not allocate anything.
+ *
+ * Grids with more than TileStorage.DENSE_LIMIT cells are too big for an
+ * array per cell, so there each cell a search reaches is given a slot
+ * through an open-addressing hash table, and the arrays are indexed by slot
+ * and only grow with the number of cells the search touches. On smaller
+ * grids a cell's slot is its grid index.
+ */
+class SearchWorkspace {
+	/* One workspace per thread, so Robots deciding in parallel never share
+	 * one, and memory grows with the number of threads, not Robots */
+	private static final ThreadLocal<SearchWorkspace> WORKSPACES = ThreadLocal.withInitial(SearchWorkspace::new);
+	/** heapIndex of a cell that has been taken off the heap */
+	private static final int CLOSED = -1;
+	/* Slots a sparse workspace starts with */
+	private static final int INITIAL_SLOTS = 1 << 10;
+	private boolean sparse;
+	private int generation;
+	private int[] stamp = new int[0];
+	/* Sparse only: each slot's cell and where it sits in table, and the
+	 * table itself, holding slot + 1 or 0 for an empty entry */
+	private int[] cellOf = new int[0];
+	private int[] entry = new int[0];
+	private int[] table = new int[0];
+	private int slots;
+	private int[] cost = new int[0];
+	private int[] parent = new int[0];
+	private int[] priority = new int[0];
+	private int[] heapIndex = new int[0];
+	private int[] heap = new int[0];
+	private int heapSize;
+	private int expansions;
+	private int[] path = new int[0];
+	private int pathLength;
+
+	/**
+	 * Returns the workspace for the calling thread.
+	 * @return the thread's SearchWorkspace
+	 */
+	static SearchWorkspace forCurrentThread() {
+		return WORKSPACES.get();
+	}
+
+	/**
+	 * Forgets the last search and makes room for a grid of the given size.
+	 * @param cells the number of cells in the grid
+	 */
+	void reset(int cells) {
+		this.heapSize = 0;
+		this.expansions = 0;
+		this.sparse = cells > TileStorage.DENSE_LIMIT;
+		if (this.sparse) {
+			// Empty only the table entries the last search filled
+			for (int slot = 0; slot < this.slots; slot++) {
+				this.table[this.entry[slot]] = 0;
+			}
+			this.slots = 0;
+			// The slot arrays are shared with dense searches, which may have replaced them
+			if (this.cellOf.length == 0 || this.cost.length != this.cellOf.length) {
+				int capacity = Math.max(INITIAL_SLOTS, this.cellOf.length);
+				this.table = new int[2 * capacity];
+				this.cellOf = new int[capacity];
+				this.entry = new int[capacity];
+				this.cost = new int[capacity];
+				this.parent = new int[capacity];
+				this.priority = new int[capacity];
+				this.heapIndex = new int[capacity];
+				this.heap = new int[capacity];
+				this.path = new int[capacity];
+			}
+			return;
+		}
+		if (this.stamp.length < cells || this.cost.length < cells) {
+			this.stamp = new int[cells];
+			this.cost = new int[cells];
+			this.parent = new int[cells];
+			this.priority = new int[cells];
+			this.heapIndex = new int[cells];
+			this.heap = new int[cells];
+			this.path = new int[cells];
+			this.generation = 0;
+		}
+		this.generation++;
+		if (this.generation == 0) {
+			// After 2^32 searches, old stamps could match again
+			Arrays.fill(this.stamp, 0);
+			this.generation = 1;
+		}
+	}
+
+	/* The slot of a cell reached in this search, or -1 */
+	private int find(int cell) {
+		if (!this.sparse) {
+			return this.stamp[cell] == this.generation ? cell : -1;
+		}
+		int mask = this.table.length - 1;
+		for (int i = hash(cell) & mask; this.table[i] != 0; i = (i + 1) & mask) {
+			if (this.cellOf[this.table[i] - 1] == cell) {
+				return this.table[i] - 1;
+			}
+		}
+		return -1;
+	}
+
+	/* Gives a cell that find does not know a slot */
+	private int add(int cell) {
+		if (!this.sparse) {
+			this.stamp[cell] = this.generation;
+			return cell;
+		}
+		if (this.slots == this.cellOf.length) {
+			grow();
+		}
+		int slot = this.slots++;
+		this.cellOf[slot] = cell;
+		place(slot);
+		return slot;
+	}
+
+	/* Puts a slot into the first free table entry along its probe sequence */
+	private void place(int slot) {
+		int mask = this.table.length - 1;
+		int i = hash(this.cellOf[slot]) & mask;
+		while (this.table[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		this.table[i] = slot + 1;
+		this.entry[slot] = i;
+	}
+
+	/* Doubles the slots, keeping the table at most half full */
+	private void grow() {
+		int capacity = 2 * this.cellOf.length;
+		this.cellOf = Arrays.copyOf(this.cellOf, capacity);
+		this.entry = Arrays.copyOf(this.entry, capacity);
+		this.cost = Arrays.copyOf(this.cost, capacity);
+		this.parent = Arrays.copyOf(this.parent, capacity);
+		this.priority = Arrays.copyOf(this.priority, capacity);
+		this.heapIndex = Arrays.copyOf(this.heapIndex, capacity);
+		this.heap = Arrays.copyOf(this.heap, capacity);
+		this.path = new int[capacity];
+		this.table = new int[2 * capacity];
+		for (int slot = 0; slot < this.slots; slot++) {
+			place(slot);
+		}
+	}
+
+	private static int hash(int cell) {
+		int h = cell * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/* The cell held in a slot */
+	private int cellAt(int slot) {
+		return this.sparse ? this.cellOf[slot] : slot;
+	}
+
+	/**
+	 * Returns the number of entries each per-cell array has room for: the
+	 * grid size once a dense search has run, or the slots a sparse one has
+	 * needed so far.
+	 * @return the capacity of the arrays
+	 */
+	int getCapacity() {
+		return this.sparse ? this.cellOf.length : this.stamp.length;
+	}
+
+	/**
+	 * Returns the cost to reach a cell in this search.
+	 * @param cell the grid index
+	 * @return the best cost found so far, or Integer.MAX_VALUE if not reached
+	 */
+	int getCost(int cell) {
+		int slot = find(cell);
+		return slot >= 0 ? this.cost[slot] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the cell a cell was reached from in this search.
+	 * @param cell the grid index
+	 * @return the parent's grid index, or -1 for the start
+	 */
+	int getParent(int cell) {
+		return this.parent[find(cell)];
+	}
+
+	/**
+	 * Returns true if a cell has already been taken off the heap in this search.
+	 * @param cell the grid index
+	 * @return true if the cell is closed
+	 */
+	boolean isClosed(int cell) {
+		int slot = find(cell);
+		return slot >= 0 && this.heapIndex[slot] == CLOSED;
+	}
+
+	/**
+	 * Records a cheaper way to reach a cell and queues it, or lowers its key
+	 * if it is already queued. Callers must check getCost first.
+	 * @param cell the grid index
+	 * @param cost the cost to reach it
+	 * @param parent the grid index it was reached from, or -1 for the start
+	 * @param priority the cost plus the heuristic
+	 */
+	void push(int cell, int cost, int parent, int priority) {
+		int slot = find(cell);
+		boolean queued = slot >= 0 && this.heapIndex[slot] != CLOSED;
+		if (slot < 0) {
+			slot = add(cell);
+		}
+		this.cost[slot] = cost;
+		this.parent[slot] = parent;
+		this.priority[slot] = priority;
+		if (!queued) {
+			this.heapIndex[slot] = this.heapSize;
+			this.heap[this.heapSize++] = slot;
+		}
+		siftUp(this.heapIndex[slot]);
+	}
+
+	/**
+	 * Returns true if there is nothing left to expand.
+	 * @return true if the heap is empty
+	 */
+	boolean isEmpty() {
+		return this.heapSize == 0;
+	}
+
+	/**
+	 * Takes the cell with the lowest priority off the heap and closes it.
+	 * Ties go to the cell with the higher cost, which is nearer the goal.
+	 * @return the grid index
+	 */
+	int pop() {
+		int top = this.heap[0];
+		this.expansions++;
+		this.heapIndex[top] = CLOSED;
+		int last = this.heap[--this.heapSize];
+		if (this.heapSize > 0) {
+			this.heap[0] = last;
+			this.heapIndex[last] = 0;
+			siftDown(0);
+		}
+		return cellAt(top);
+	}
+
+	/**
+	 * Returns how many cells this search has taken off the heap.
+	 * @return the number of expansions since reset
+	 */
+	int getExpansions() {
+		return this.expansions;
+	}
+
+	/**
+	 * Follows the parents back from a cell into a buffer owned by the
+	 * workspace, which is overwritten by the next call.
+	 * @param goal the grid index to end at
+	 * @return the buffer, holding the path from the start to goal first
+	 * @see #getPathLength()
+	 */
+	int[] buildPath(int goal) {
+		int length = 0;
+		for (int cell = goal; cell >= 0; cell = getParent(cell)) {
+			this.path[length++] = cell;
+		}
+		for (int i = 0, j = length - 1; i < j; i++, j--) {
+			int swap = this.path[i];
+			this.path[i] = this.path[j];
+			this.path[j] = swap;
+		}
+		this.pathLength = length;
+		return this.path;
+	}
+
+	/**
+	 * Returns the number of cells in the last path from buildPath.
+	 * @return the path length, counting the start
+	 */
+	int getPathLength() {
+		return this.pathLength;
+	}
+
+	private boolean before(int a, int b) {
+		if (this.priority[a] != this.priority[b]) {
+			return this.priority[a] < this.priority[b];
+		}
+		return this.cost[a] > this.cost[b];
+	}
+
+	private void siftUp(int i) {
+		int slot = this.heap[i];
+		while (i > 0) {
+			int up = (i - 1) >> 1;
+			if (!before(slot, this.heap[up])) {
+				break;
+			}
+			this.heap[i] = this.heap[up];
+			this.heapIndex[this.heap[i]] = i;
+			i = up;
+		}
+		this.heap[i] = slot;
+		this.heapIndex[slot] = i;
+	}
+
+	private void siftDown(int i) {
+		int slot = this.heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= this.heapSize) {
+				break;
+			}
+			if (child + 1 < this.heapSize && before(this.heap[child + 1], this.heap[child])) {
+				child++;
+			}
+			if (!before(this.heap[child], slot)) {
+				break;
+			}
+			this.heap[i] = this.heap[child];
+			this.heapIndex[this.heap[i]] = i;
+			i = child;
+		}
+		this.heap[i] = slot;
+		this.heapIndex[slot] = i;
+	}
+}
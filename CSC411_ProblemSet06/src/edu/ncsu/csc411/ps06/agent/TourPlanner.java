@@ -0,0 +1,332 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.ncsu.csc411.ps06.environment.DistanceField;
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Position;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+import edu.ncsu.csc411.ps06.environment.TileStorage;
+
+/**
+ * True shortest-path distances between the points of interest on the map
+ * (every chip, key, door and the portal), and the order in which to visit
+ * the chips. Each point of interest has a doors-open DistanceField from
+ * the Environment, so distance(poi, cell) is the length of the shortest
+ * path around the walls, which Manhattan distance only approximates.
+ *
+ * The chip order is the shortest open tour from the robot through every
+ * chip to the portal. Up to HELD_KARP_LIMIT chips it is solved exactly with
+ * the Held-Karp dynamic program. Above that it is built nearest neighbor
+ * first and then improved with 2-opt and Or-opt moves.
+ *
+ * A TourPlanner describes one version of the Environment (see
+ * Environment.getVersion). The DistanceFields are shared by every robot
+ * and kept by the Environment as long as the walls have not changed, and
+ * the previous planner's chip order is reused as a starting point.
+ */
+class TourPlanner {
+	/** The most chips whose order is solved exactly */
+	static final int HELD_KARP_LIMIT = 16;
+	/** The most distance entries (points of interest times cells) to keep */
+	static final long MAX_DISTANCE_CELLS = 1L << 24;
+	private static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+	private final Environment env;
+	private final long layoutVersion;
+	private final Map<Integer, DistanceField> distances;
+	private final int[] tour;
+	private final boolean exact;
+
+	private TourPlanner(Environment env, Map<Integer, DistanceField> distances, int[] tour, boolean exact) {
+		this.env = env;
+		this.layoutVersion = env.getLayoutVersion();
+		this.distances = distances;
+		this.tour = tour;
+		this.exact = exact;
+	}
+
+	/**
+	 * Runs the searches and solves the chip order for the robot at start.
+	 * @param env the Environment
+	 * @param start the grid index the robot starts the tour from
+	 * @param previous the planner for an earlier version, or null
+	 * @return the planner, or null if the distances would not fit in
+	 * MAX_DISTANCE_CELLS or the map is too big for DistanceFields
+	 */
+	static TourPlanner build(Environment env, int start, TourPlanner previous) {
+		ArrayList<Integer> pois = new ArrayList<>();
+		for (ArrayList<Position> positions : env.getEnvironmentPositions().values()) {
+			for (Position p : positions) {
+				pois.add(env.getIndex(p));
+			}
+		}
+		long cells = (long) env.getRows() * env.getCols();
+		if (cells * pois.size() > MAX_DISTANCE_CELLS || cells > TileStorage.DENSE_LIMIT)
+			return null;
+
+		// Every robot shares the Environment's searches, which it keeps until
+		// a wall or water is placed or removed
+		boolean reuse = previous != null && previous.layoutVersion == env.getLayoutVersion();
+		Map<Integer, DistanceField> distances = new HashMap<>();
+		for (int poi : pois) {
+			distances.put(poi, env.getDistanceField(env.getPosition(poi)));
+		}
+
+		int[] chips = new int[env.getEnvironmentPositions().get(TileStatus.CHIP).size()];
+		int count = 0;
+		for (Position p : env.getEnvironmentPositions().get(TileStatus.CHIP)) {
+			chips[count++] = env.getIndex(p);
+		}
+		Arrays.sort(chips);
+		ArrayList<Position> goals = env.getEnvironmentPositions().get(TileStatus.GOAL);
+		int goal = goals.isEmpty() ? -1 : env.getIndex(goals.get(0));
+		// The last tour minus the chips collected since is a good place to start
+		int[] initial = null;
+		if (reuse && previous.tour.length > chips.length) {
+			initial = Arrays.stream(previous.tour).filter(c -> Arrays.binarySearch(chips, c) >= 0).toArray();
+			if (initial.length != chips.length)
+				initial = null;
+		}
+		// The rest of an exact tour is still the best way on from its first chip
+		if (initial != null && previous.exact && initial.length == previous.tour.length - 1
+				&& Arrays.binarySearch(chips, previous.tour[0]) < 0)
+			return new TourPlanner(env, distances, initial, true);
+		TourPlanner planner = new TourPlanner(env, distances, null, false);
+		int[] tour = planner.solve(start, chips, goal, initial);
+		return new TourPlanner(env, distances, tour, chips.length <= HELD_KARP_LIMIT);
+	}
+
+	/**
+	 * Returns the length of the shortest path from a point of interest to a
+	 * cell, with every door open.
+	 * @param poi the grid index of a chip, key, door or the portal
+	 * @param cell any grid index
+	 * @return the distance, or Integer.MAX_VALUE / 4 if there is no path
+	 */
+	int distance(int poi, int cell) {
+		return lookup(this.distances.get(poi), cell);
+	}
+
+	/**
+	 * Returns the skip-th tile of a status to head for from a cell, passing
+	 * over the cell itself. Chips come in tour order and everything else
+	 * nearest first.
+	 * @param status the kind of tile
+	 * @param from the grid index the robot is on
+	 * @param skip how many tiles to pass over first
+	 * @return the grid index of the tile, or -1 if there are not enough
+	 */
+	int next(TileStatus status, int from, int skip) {
+		int[] order;
+		if (status == TileStatus.CHIP) {
+			order = this.tour;
+		} else {
+			ArrayList<Position> positions = this.env.getEnvironmentPositions().get(status);
+			// Sorted by (distance << 32 | index) so ties go to the lower index
+			long[] keys = new long[positions.size()];
+			for (int i = 0; i < keys.length; i++) {
+				int cell = this.env.getIndex(positions.get(i));
+				keys[i] = (long) distance(cell, from) << 32 | cell;
+			}
+			Arrays.sort(keys);
+			order = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				order[i] = (int) keys[i];
+			}
+		}
+		for (int cell : order) {
+			if (cell != from && skip-- == 0)
+				return cell;
+		}
+		return -1;
+	}
+
+	/* Orders the chips. The solvers work on a distance matrix over stops:
+	 * 0 to n - 1 are the chips, n is the start and n + 1 the goal. */
+	private int[] solve(int start, int[] chips, int goal, int[] initial) {
+		int n = chips.length;
+		int[] stops = Arrays.copyOf(chips, n + 2);
+		stops[n] = start;
+		stops[n + 1] = goal;
+		int[][] matrix = new int[n + 2][n + 2];
+		for (int i = 0; i < n + 2; i++) {
+			// Every stop but the start is a point of interest with its own search
+			DistanceField from = i == n || stops[i] < 0 ? null : this.distances.get(stops[i]);
+			for (int j = 0; j < n + 2; j++) {
+				if (from != null && stops[j] >= 0)
+					matrix[i][j] = matrix[j][i] = lookup(from, stops[j]);
+			}
+		}
+		int[] order;
+		if (n <= HELD_KARP_LIMIT) {
+			order = heldKarp(matrix, n);
+		} else if (initial != null) {
+			// Map the previous tour's cells back to stops
+			order = new int[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = Arrays.binarySearch(chips, initial[i]);
+			}
+			order = improve(matrix, order);
+		} else {
+			order = improve(matrix, nearestNeighbor(matrix, n));
+		}
+		int[] tour = new int[n];
+		for (int i = 0; i < n; i++) {
+			tour[i] = chips[order[i]];
+		}
+		return tour;
+	}
+
+	/* Exact open tour: best[mask][j] is the shortest walk from the start through mask ending at chip j */
+	static int[] heldKarp(int[][] matrix, int n) {
+		if (n == 0)
+			return new int[0];
+		int[][] best = new int[1 << n][n];
+		for (int[] row : best) {
+			Arrays.fill(row, UNREACHABLE);
+		}
+		for (int j = 0; j < n; j++) {
+			best[1 << j][j] = matrix[n][j];
+		}
+		for (int mask = 1; mask < 1 << n; mask++) {
+			for (int j = 0; j < n; j++) {
+				if ((mask & (1 << j)) == 0 || best[mask][j] >= UNREACHABLE)
+					continue;
+				int[] from = matrix[j];
+				for (int k = 0; k < n; k++) {
+					if ((mask & (1 << k)) != 0)
+						continue;
+					int cost = best[mask][j] + from[k];
+					if (cost < best[mask | 1 << k][k])
+						best[mask | 1 << k][k] = cost;
+				}
+			}
+		}
+		int full = (1 << n) - 1;
+		int last = 0;
+		int lastCost = Integer.MAX_VALUE;
+		for (int j = 0; j < n; j++) {
+			int cost = best[full][j] + matrix[j][n + 1];
+			if (cost < lastCost) {
+				lastCost = cost;
+				last = j;
+			}
+		}
+		// Some chip is walled off, so there is no exact answer to recover
+		if (lastCost >= UNREACHABLE)
+			return improve(matrix, nearestNeighbor(matrix, n));
+
+		// Walk the table backwards to recover the order
+		int[] order = new int[n];
+		int mask = full;
+		for (int i = n - 1; i > 0; i--) {
+			order[i] = last;
+			int previousMask = mask & ~(1 << last);
+			for (int j = 0; j < n; j++) {
+				if ((previousMask & (1 << j)) != 0 && best[previousMask][j] + matrix[j][last] == best[mask][last]) {
+					last = j;
+					break;
+				}
+			}
+			mask = previousMask;
+		}
+		order[0] = last;
+		return order;
+	}
+
+	static int[] nearestNeighbor(int[][] matrix, int n) {
+		int[] order = new int[n];
+		boolean[] used = new boolean[n];
+		int current = n;
+		for (int i = 0; i < n; i++) {
+			int best = -1;
+			for (int j = 0; j < n; j++) {
+				if (!used[j] && (best < 0 || matrix[current][j] < matrix[current][best]))
+					best = j;
+			}
+			used[best] = true;
+			order[i] = best;
+			current = best;
+		}
+		return order;
+	}
+
+	/* 2-opt segment reversals and Or-opt moves of 1 to 3 chips until neither
+	 * helps. The tour runs from the start, through order, to the goal. */
+	static int[] improve(int[][] matrix, int[] order) {
+		int n = order.length;
+		int start = n;
+		int goal = n + 1;
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			for (int i = 0; i < n - 1; i++) {
+				for (int j = i + 1; j < n; j++) {
+					int before = i == 0 ? start : order[i - 1];
+					int after = j == n - 1 ? goal : order[j + 1];
+					int delta = matrix[before][order[j]] + matrix[order[i]][after]
+							- matrix[before][order[i]] - matrix[order[j]][after];
+					if (delta < 0) {
+						reverse(order, i, j);
+						improved = true;
+					}
+				}
+			}
+			for (int size = 1; size <= 3; size++) {
+				for (int i = 0; i + size <= n; i++) {
+					int first = order[i];
+					int last = order[i + size - 1];
+					int before = i == 0 ? start : order[i - 1];
+					int after = i + size == n ? goal : order[i + size];
+					int removed = matrix[before][first] + matrix[last][after] - matrix[before][after];
+					// Try each gap between two stops that stay put
+					for (int gap = 0; gap <= n; gap++) {
+						if (gap >= i && gap <= i + size)
+							continue;
+						int left = gap == 0 ? start : order[gap - 1];
+						int right = gap == n ? goal : order[gap];
+						int added = matrix[left][first] + matrix[last][right] - matrix[left][right];
+						if (added < removed) {
+							order = move(order, i, size, gap < i ? gap : gap - size);
+							improved = true;
+							break;
+						}
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	private static void reverse(int[] tour, int i, int j) {
+		for (; i < j; i++, j--) {
+			int swap = tour[i];
+			tour[i] = tour[j];
+			tour[j] = swap;
+		}
+	}
+
+	/* Moves tour[from, from + size) so that it starts at position to */
+	private static int[] move(int[] tour, int from, int size, int to) {
+		int[] rest = new int[tour.length - size];
+		System.arraycopy(tour, 0, rest, 0, from);
+		System.arraycopy(tour, from + size, rest, from, tour.length - from - size);
+		int[] moved = new int[tour.length];
+		System.arraycopy(rest, 0, moved, 0, to);
+		System.arraycopy(tour, from, moved, to, size);
+		System.arraycopy(rest, to, moved, to + size, rest.length - to);
+		return moved;
+	}
+
+	/* Reads a distance, keeping unreachable cells small enough to add up */
+	private static int lookup(DistanceField from, int cell) {
+		if (from == null)
+			return UNREACHABLE;
+		int distance = from.getDistance(cell);
+		return distance == DistanceField.UNREACHABLE ? UNREACHABLE : distance;
+	}
+}
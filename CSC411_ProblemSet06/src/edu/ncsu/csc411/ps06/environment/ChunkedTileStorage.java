@@ -0,0 +1,98 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.Arrays;
+
+/**
+ * Stores tiles in 64x64 chunks for very large, mostly uniform maps. A chunk
+ * whose tiles all share one status is kept as that single value. Its
+ * 4096-byte array is only created the first time a different status is
+ * written into it. A 10,000 x 10,000 map of walls with a few carved rooms
+ * therefore costs a few kilobytes per room instead of 100 MB.
+ */
+public class ChunkedTileStorage implements TileStorage {
+  private static final int CHUNK_BITS = 6;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final int cols;
+  private final int chunkCols;
+  private final byte[][] chunks;
+  private final byte[] uniform;
+
+  /**
+   * Builds storage for a rows x cols map with every tile set to fill.
+   * No chunk is materialized until it is written to.
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   * @param fill - the initial TileStatus of every tile
+   */
+  public ChunkedTileStorage(int rows, int cols, TileStatus fill) {
+    Math.multiplyExact(rows, cols); // grid indices must fit in an int
+    this.cols = cols;
+    this.chunkCols = (cols + CHUNK_MASK) >> CHUNK_BITS;
+    int chunkRows = (rows + CHUNK_MASK) >> CHUNK_BITS;
+    this.chunks = new byte[chunkRows * this.chunkCols][];
+    this.uniform = new byte[chunkRows * this.chunkCols];
+    Arrays.fill(this.uniform, (byte) fill.ordinal());
+  }
+
+  private ChunkedTileStorage(ChunkedTileStorage other) {
+    this.cols = other.cols;
+    this.chunkCols = other.chunkCols;
+    this.uniform = other.uniform.clone();
+    this.chunks = new byte[other.chunks.length][];
+    for (int i = 0; i < this.chunks.length; i++) {
+      if (other.chunks[i] != null) {
+        this.chunks[i] = other.chunks[i].clone();
+      }
+    }
+  }
+
+  /**
+   * Returns how many chunks have been materialized, to help size maps.
+   * @return the number of chunks holding a full tile array
+   */
+  public int getMaterializedChunks() {
+    int count = 0;
+    for (byte[] chunk : this.chunks) {
+      if (chunk != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public byte get(int index) {
+    int row = index / this.cols;
+    int col = index - row * this.cols;
+    int chunk = (row >> CHUNK_BITS) * this.chunkCols + (col >> CHUNK_BITS);
+    byte[] tiles = this.chunks[chunk];
+    if (tiles == null) {
+      return this.uniform[chunk];
+    }
+    return tiles[((row & CHUNK_MASK) << CHUNK_BITS) | (col & CHUNK_MASK)];
+  }
+
+  @Override
+  public void set(int index, byte status) {
+    int row = index / this.cols;
+    int col = index - row * this.cols;
+    int chunk = (row >> CHUNK_BITS) * this.chunkCols + (col >> CHUNK_BITS);
+    byte[] tiles = this.chunks[chunk];
+    if (tiles == null) {
+      if (this.uniform[chunk] == status) {
+        return;
+      }
+      tiles = new byte[CHUNK_SIZE * CHUNK_SIZE];
+      Arrays.fill(tiles, this.uniform[chunk]);
+      this.chunks[chunk] = tiles;
+    }
+    tiles[((row & CHUNK_MASK) << CHUNK_BITS) | (col & CHUNK_MASK)] = status;
+  }
+
+  @Override
+  public TileStorage copy() {
+    return new ChunkedTileStorage(this);
+  }
+}
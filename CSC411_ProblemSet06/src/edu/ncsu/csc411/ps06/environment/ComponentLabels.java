@@ -0,0 +1,58 @@
+package edu.ncsu.csc411.ps06.environment;
+
+/**
+ * Labels the connected components of the cells that any Robot can cross
+ * without a key. They start as the rooms of a RoomGraph, with every closed
+ * door a component of its own, and each door that opens merges the
+ * components around it. The label of each node is stored directly, so
+ * looking up a cell's component is two array reads. Merging relabels every
+ * node, but the graph only has tens of nodes and doors open rarely.
+ * Components can only grow, so Environment builds new labels when a door
+ * is closed again by undo or the layout changes.
+ */
+final class ComponentLabels {
+  private final RoomGraph rooms;
+  private final int[] labels;
+
+  /* Starts from the rooms and merges the doors that are already open */
+  ComponentLabels(Environment env, RoomGraph rooms) {
+    this.rooms = rooms;
+    this.labels = new int[rooms.getNodeCount()];
+    for (int node = 0; node < this.labels.length; node++) {
+      this.labels[node] = node;
+    }
+    for (int node = rooms.getRoomCount(); node < this.labels.length; node++) {
+      if (!RoomGraph.isDoor(env.getTileStatus(rooms.getDoorCell(node))))
+        doorOpened(node);
+    }
+  }
+
+  /* Merges an opened door with everything next to it */
+  void doorOpened(int node) {
+    for (int neighbor : this.rooms.getNeighbors(node)) {
+      merge(this.labels[node], this.labels[neighbor]);
+    }
+  }
+
+  private void merge(int a, int b) {
+    if (a == b)
+      return;
+    int keep = Math.min(a, b);
+    int drop = Math.max(a, b);
+    for (int node = 0; node < this.labels.length; node++) {
+      if (this.labels[node] == drop)
+        this.labels[node] = keep;
+    }
+  }
+
+  /* The component of a cell, or -1 for walls and water */
+  int getComponent(int index) {
+    int node = this.rooms.getNode(index);
+    return node < 0 ? -1 : this.labels[node];
+  }
+
+  /* The node of a cell in the RoomGraph the labels were built on */
+  int getNode(int index) {
+    return this.rooms.getNode(index);
+  }
+}
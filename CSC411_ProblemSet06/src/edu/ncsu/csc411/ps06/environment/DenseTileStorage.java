@@ -0,0 +1,41 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.Arrays;
+
+/**
+ * Stores every tile in one flat byte array, one byte per cell. This is the
+ * fastest layout and the default for ordinary maps.
+ */
+public class DenseTileStorage implements TileStorage {
+  private final byte[] grid;
+
+  /**
+   * Builds storage for a rows x cols map with every tile set to fill.
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   * @param fill - the initial TileStatus of every tile
+   */
+  public DenseTileStorage(int rows, int cols, TileStatus fill) {
+    this(new byte[Math.multiplyExact(rows, cols)]);
+    Arrays.fill(this.grid, (byte) fill.ordinal());
+  }
+
+  private DenseTileStorage(byte[] grid) {
+    this.grid = grid;
+  }
+
+  @Override
+  public byte get(int index) {
+    return this.grid[index];
+  }
+
+  @Override
+  public void set(int index, byte status) {
+    this.grid[index] = status;
+  }
+
+  @Override
+  public TileStorage copy() {
+    return new DenseTileStorage(this.grid.clone());
+  }
+}
@@ -0,0 +1,103 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.Arrays;
+
+/**
+ * The number of moves from every cell of the grid to one target cell,
+ * found with a single breadth-first search out from the target. A Robot
+ * takes its next step by moving to the neighbor with the smallest
+ * distance, so any number of Robots can walk to the same target without
+ * each running its own search. A field either follows the door rules for
+ * one set of keys, or treats every door as open so that only walls and
+ * water block it. Fields are made and shared through
+ * Environment.getDistanceField and never change once built.
+ */
+public final class DistanceField {
+  /** The distance of a cell from which the target cannot be reached */
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final Environment env;
+  private final int target;
+  private final boolean doorsOpen;
+  private final int inventory;
+  private final int[] distances;
+
+  /* Searches outwards from the target, only through cells that a Robot
+   * carrying inventory could move onto, or through every door */
+  DistanceField(Environment env, int target, boolean doorsOpen, int inventory, int remainingChips) {
+    this.env = env;
+    this.target = target;
+    this.doorsOpen = doorsOpen;
+    this.inventory = inventory;
+    this.distances = new int[env.getRows() * env.getCols()];
+    Arrays.fill(this.distances, UNREACHABLE);
+    int[] queue = new int[this.distances.length];
+    int head = 0;
+    int tail = 0;
+    this.distances[target] = 0;
+    queue[tail++] = target;
+    while (head < tail) {
+      int cell = queue[head++];
+      for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+        int next = env.getNeighborIndex(cell, direction);
+        if (next >= 0 && this.distances[next] == UNREACHABLE
+            && passes(env.getTileStatus(next), remainingChips)) {
+          this.distances[next] = this.distances[cell] + 1;
+          queue[tail++] = next;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the grid index the distances are measured to.
+   * @return the target's grid index
+   */
+  public int getTarget() {
+    return this.target;
+  }
+
+  /**
+   * Returns the number of moves needed to reach the target.
+   * @param index - the grid index to start from
+   * @return the distance, or UNREACHABLE
+   */
+  public int getDistance(int index) {
+    return this.distances[index];
+  }
+
+  /**
+   * Returns the neighbor of a cell that is one move closer to the target.
+   * When several are, the first in Environment.getNeighborIndex order wins.
+   * @param index - the grid index to start from
+   * @return the grid index of the next step, or -1 at the target or if
+   * the target cannot be reached
+   */
+  public int nextStep(int index) {
+    int distance = this.distances[index];
+    if (distance == 0 || distance == UNREACHABLE)
+      return -1;
+    for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+      int next = this.env.getNeighborIndex(index, direction);
+      if (next >= 0 && this.distances[next] == distance - 1)
+        return next;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns true if the field treats every door as open.
+   * @return true if only walls and water block the field
+   */
+  public boolean isDoorsOpen() {
+    return this.doorsOpen;
+  }
+
+  /* Whether the search may enter a tile, used to tell whether a changed
+   * tile changes the field */
+  boolean passes(TileStatus status, int remainingChips) {
+    if (this.doorsOpen)
+      return status != TileStatus.WALL && status != TileStatus.WATER;
+    return Environment.isPassable(status, this.inventory, remainingChips);
+  }
+}
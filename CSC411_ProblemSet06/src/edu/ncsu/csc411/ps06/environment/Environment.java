@@ -1,8 +1,18 @@
 package edu.ncsu.csc411.ps06.environment;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import edu.ncsu.csc411.ps06.agent.Robot;
 
@@ -17,14 +27,61 @@ import edu.ncsu.csc411.ps06.agent.Robot;
  * DO NOT MODIFY.
  */
 public class Environment {
-  private Position[][] positions;
+  /** The number of neighbors getNeighborIndex can be asked for. */
+  public static final int NUM_DIRECTIONS = 4;
+  /* Neighbor offsets in the order below, left, above, right. This is the order
+   * getNeighborPositions has always iterated in, so searches that switch to
+   * getNeighborIndex keep the same tie-breaking. */
+  private static final int[] ROW_OFFSETS = {1, 0, -1, 0};
+  private static final int[] COL_OFFSETS = {0, -1, 0, 1};
+  private static final String[] DIRECTION_NAMES = {"below", "left", "above", "right"};
+  private static final TileStatus[] STATUSES = TileStatus.values();
+  private static final TileStatus[] COLORED_DOORS = {TileStatus.DOOR_BLUE, TileStatus.DOOR_GREEN,
+      TileStatus.DOOR_RED, TileStatus.DOOR_YELLOW};
+  private TileStorage grid;
   private Map<Position, Tile> tiles;
   private ArrayList<Robot> robots;
-  private Map<Robot, Position> robotPositions;
-  private Map<Robot, ArrayList<String>> robotHoldings;
+  private Map<Robot, RobotState> robotStates;
+  /* The same RobotStates in the order of robots, walked by index when a
+   * tile changes so that applyAction and undo do not allocate iterators */
+  private ArrayList<RobotState> states;
   private int rows, cols;
   private Position target;
   private Map<TileStatus, ArrayList<Position>> envPositions;
+  private Map<TileStatus, SpatialIndex> spatialIndices;
+  private int numRemainingChips;
+  private ArrayList<EnvironmentListener> listeners;
+  private int tick;
+  private boolean goalReached;
+  private boolean parallelDecisions;
+  private long stateHash;
+  private long version;
+  private long layoutVersion;
+  /* The grid index changed at each of the last CHANGE_LOG_SIZE versions,
+   * and the TileStatus ordinal it had before */
+  private static final int CHANGE_LOG_SIZE = 1 << 12;
+  private final int[] changeLog = new int[CHANGE_LOG_SIZE];
+  private final byte[] changedFrom = new byte[CHANGE_LOG_SIZE];
+  /* Shared DistanceFields by target index and the doors they pass, at most
+   * MAX_DISTANCE_FIELD_CELLS distances in all */
+  private static final long MAX_DISTANCE_FIELD_CELLS = 1L << 25;
+  private final Map<Long, DistanceField> distanceFields = new ConcurrentHashMap<Long, DistanceField>();
+  /* The RoomGraph of the layout it was built for, made on first use, and
+   * never made for maps of more than TileStorage.DENSE_LIMIT cells */
+  private RoomGraph roomGraph;
+  private long roomGraphLayout = -1;
+  /* The component labels of getComponent, made on first use and dropped
+   * when a door closes again or the layout changes */
+  private volatile ComponentLabels components;
+  /* The undo log for applyAction, UNDO_STRIDE ints per record, and the
+   * Position each record took out of envPositions, so undo can put the
+   * same one back */
+  private static final int UNDO_STRIDE = 4;
+  private int[] undoLog = new int[UNDO_STRIDE * 64];
+  private Position[] collectedLog = new Position[64];
+  private Position collected;
+  private int undoSize;
+  private boolean silent;
 
   /**
    * Calls Environment(int rows, int columns).
@@ -35,50 +92,37 @@ public class Environment {
   
   /**
    * Builds an Environment that is rows tall and columns wide.
-   * Also instantiates many of the class variables, as well as
-   * builds the connections between Position objects.
+   * Also instantiates many of the class variables. Tile statuses
+   * are stored as TileStatus ordinals indexed by row * columns + col,
+   * which start out as all BLANK. Small maps use one dense array, while
+   * very large maps are stored in chunks (see TileStorage.forSize).
    * @param rows - the number of rows
    * @param columns 0 the number of columns
    */
 	public Environment(int rows, int columns) {
+		this(rows, columns, TileStorage.forSize(rows, columns));
+	}
+
+	/**
+   * Builds an Environment that is rows tall and columns wide on top of
+   * the given TileStorage, for example a ChunkedTileStorage filled with
+   * walls for a huge maze. The storage should only hold BLANK, WALL and
+   * WATER tiles; items, doors and robots are added afterwards with setTile
+   * so that they are tracked. No Position objects are kept per tile, so
+   * the memory used is essentially that of the TileStorage.
+   * @param rows - the number of rows
+   * @param columns - the number of columns
+   * @param storage - the TileStorage holding the tiles
+   */
+	public Environment(int rows, int columns, TileStorage storage) {
 		this.rows = rows;
 		this.cols = columns;
-		this.positions = new Position[this.rows][this.cols];
-		this.tiles = new HashMap<Position, Tile>();
+		this.grid = storage;
 		this.robots = new ArrayList<Robot>();
-		this.robotPositions = new HashMap<Robot, Position>();
-		this.robotHoldings = new HashMap<Robot, ArrayList<String>>();
+		this.robotStates = new HashMap<Robot, RobotState>();
+		this.states = new ArrayList<RobotState>();
+		this.listeners = new ArrayList<EnvironmentListener>();
 		buildEnvPositionMap();
-		for(int row = 0; row < rows; row++) {
-			for (int col = 0; col < cols; col++) {
-				// Create a new position at (row, col)
-				Position p = new Position(row, col);
-				this.positions[row][col] = p;
-
-				// And set it to BLANK
-				Tile t = new Tile(TileStatus.BLANK);
-				// Set the newly made dirty tile t to position p
-				this.tiles.put(positions[row][col], t);
-			}
-		}
-
-		// Establish neighbors for each Position
-		for(int row = 0; row < rows; row++) {
-			for (int col = 0; col < cols; col++) {
-			  if (row > 0) {
-          this.positions[row][col].setAbove(positions[row - 1][col]);
-        }
-        if (row < this.rows - 1) {
-          this.positions[row][col].setBelow(positions[row + 1][col]);
-        }
-        if (col > 0) {
-          this.positions[row][col].setLeft(positions[row][col - 1]);
-        }
-        if (col < this.cols - 1) {
-          this.positions[row][col].setRight(positions[row][col + 1]);
-        }
-			}
-		}
 	}
 
 	/** 
@@ -106,71 +150,112 @@ public class Environment {
    * @param map - the String array containing these values
    */
 	public Environment(String[][] map) {
-		this(map.length, map[0].length);
+		this(map, TileStorage.forSize(map.length, map[0].length));
+	}
+
+	/**
+   * Builds the Environment described by map, as with Environment(String[][] map),
+   * but keeps its tiles in the given TileStorage, such as an OffHeapTileStorage.
+   * @param map - the String array containing the tile acronyms
+   * @param storage - an all-BLANK TileStorage with room for every tile of map
+   */
+	public Environment(String[][] map, TileStorage storage) {
+		this(map.length, map[0].length, storage);
 		for (int row = 0; row < map.length; row++) {
 			for (int col = 0; col < map[row].length; col++) {
-				String tile = map[row][col];
-				Position p = this.positions[row][col];
-				switch(tile) {
-				case "ST": 
-					Robot robot = new Robot(this);
-					addRobot(robot, p);
-					this.tiles.put(p, new Tile(TileStatus.BLANK));
-					break;
-				case "BL": tiles.put(p, new Tile(TileStatus.BLANK)); break;
-				case "WL": tiles.put(p, new Tile(TileStatus.WALL)); break;
-				case "WA": tiles.put(p, new Tile(TileStatus.WATER)); break;
-				case "CH": 
-					this.tiles.put(p, new Tile(TileStatus.CHIP));
-					this.envPositions.get(TileStatus.CHIP).add(p);
-					break;
-				case "PL": 
-					this.tiles.put(p, new Tile(TileStatus.GOAL));
-					this.envPositions.get(TileStatus.GOAL).add(p);
-					this.target = p;
-					break;
-				case "DP":
-					this.tiles.put(p, new Tile(TileStatus.DOOR_GOAL)); 
-					this.envPositions.get(TileStatus.DOOR_GOAL).add(p);
-					break;
-				case "DG":
-					this.tiles.put(p, new Tile(TileStatus.DOOR_GREEN)); 
-					this.envPositions.get(TileStatus.DOOR_GREEN).add(p);
-					break;
-				case "DY":
-					this.tiles.put(p, new Tile(TileStatus.DOOR_YELLOW)); 
-					this.envPositions.get(TileStatus.DOOR_YELLOW).add(p);
-					break;
-				case "DB":
-					this.tiles.put(p, new Tile(TileStatus.DOOR_BLUE)); 
-					this.envPositions.get(TileStatus.DOOR_BLUE).add(p);
-					break;
-				case "DR":
-					this.tiles.put(p, new Tile(TileStatus.DOOR_RED)); 
-					this.envPositions.get(TileStatus.DOOR_RED).add(p);
-					break;
-				case "KG": 
-					this.tiles.put(p, new Tile(TileStatus.KEY_GREEN));
-					this.envPositions.get(TileStatus.KEY_GREEN).add(p);
-					break;
-				case "KY": 
-					this.tiles.put(p, new Tile(TileStatus.KEY_YELLOW));
-					this.envPositions.get(TileStatus.KEY_YELLOW).add(p);
-					break;
-				case "KB": 
-					this.tiles.put(p, new Tile(TileStatus.KEY_BLUE));
-					this.envPositions.get(TileStatus.KEY_BLUE).add(p);
-					break;
-				case "KR": 
-					this.tiles.put(p, new Tile(TileStatus.KEY_RED));
-					this.envPositions.get(TileStatus.KEY_RED).add(p);
-					break;
-				default: throw new IllegalArgumentException("Tile Not Found - " + tile);
-				}
+				if (!map[row][col].equals("ST"))
+					setTile(row, col, map[row][col]);
+			}
+		}
+		// Robots go in last, so each passability bitset is built once from
+		// the finished map rather than patched tile by tile
+		for (int row = 0; row < map.length; row++) {
+			for (int col = 0; col < map[row].length; col++) {
+				if (map[row][col].equals("ST"))
+					setTile(row, col, map[row][col]);
 			}
 		}
 	}
 
+	/**
+   * Places one tile, using the same acronyms as the (String[][] map)
+   * constructor, and keeps envPositions, the chip count and the state hash
+   * in step. Any item or door already on the tile is replaced. "ST" places
+   * a new Robot on a BLANK tile. This lets very large maps be built without
+   * a String for every tile.
+   * @param row - the row
+   * @param col - the column
+   * @param tile - the tile acronym, e.g. "WL" or "CH"
+   */
+	public void setTile(int row, int col, String tile) {
+		this.layoutVersion++;
+		this.components = null;
+		Position p = new Position(row, col);
+		TileStatus previous = getTileStatus(p);
+		if (this.envPositions.containsKey(previous)) {
+			removeFromEvironment(previous, getIndex(p));
+			if (p.equals(this.target))
+				this.target = null;
+		}
+		switch(tile) {
+		case "ST": 
+			Robot robot = new Robot(this);
+			addRobot(robot, p);
+			setTileStatus(p, TileStatus.BLANK);
+			break;
+		case "BL": setTileStatus(p, TileStatus.BLANK); break;
+		case "WL": setTileStatus(p, TileStatus.WALL); break;
+		case "WA": setTileStatus(p, TileStatus.WATER); break;
+		case "CH": 
+			setTileStatus(p, TileStatus.CHIP);
+			trackPosition(TileStatus.CHIP, p);
+			setRemainingChips(this.numRemainingChips + 1);
+			break;
+		case "PL": 
+			setTileStatus(p, TileStatus.GOAL);
+			trackPosition(TileStatus.GOAL, p);
+			this.target = p;
+			break;
+		case "DP":
+			setTileStatus(p, TileStatus.DOOR_GOAL); 
+			trackPosition(TileStatus.DOOR_GOAL, p);
+			break;
+		case "DG":
+			setTileStatus(p, TileStatus.DOOR_GREEN); 
+			trackPosition(TileStatus.DOOR_GREEN, p);
+			break;
+		case "DY":
+			setTileStatus(p, TileStatus.DOOR_YELLOW); 
+			trackPosition(TileStatus.DOOR_YELLOW, p);
+			break;
+		case "DB":
+			setTileStatus(p, TileStatus.DOOR_BLUE); 
+			trackPosition(TileStatus.DOOR_BLUE, p);
+			break;
+		case "DR":
+			setTileStatus(p, TileStatus.DOOR_RED); 
+			trackPosition(TileStatus.DOOR_RED, p);
+			break;
+		case "KG": 
+			setTileStatus(p, TileStatus.KEY_GREEN);
+			trackPosition(TileStatus.KEY_GREEN, p);
+			break;
+		case "KY": 
+			setTileStatus(p, TileStatus.KEY_YELLOW);
+			trackPosition(TileStatus.KEY_YELLOW, p);
+			break;
+		case "KB": 
+			setTileStatus(p, TileStatus.KEY_BLUE);
+			trackPosition(TileStatus.KEY_BLUE, p);
+			break;
+		case "KR": 
+			setTileStatus(p, TileStatus.KEY_RED);
+			trackPosition(TileStatus.KEY_RED, p);
+			break;
+		default: throw new IllegalArgumentException("Tile Not Found - " + tile);
+		}
+	}
+
 	private void buildEnvPositionMap() {
 		this.envPositions = new HashMap<TileStatus, ArrayList<Position>>();
 		this.envPositions.put(TileStatus.CHIP, new ArrayList<Position>());
@@ -184,21 +269,59 @@ public class Environment {
 		this.envPositions.put(TileStatus.DOOR_RED, new ArrayList<Position>());
 		this.envPositions.put(TileStatus.DOOR_YELLOW, new ArrayList<Position>());
 		this.envPositions.put(TileStatus.DOOR_GOAL, new ArrayList<Position>());
+		this.spatialIndices = new HashMap<TileStatus, SpatialIndex>();
+		for (TileStatus status : this.envPositions.keySet()) {
+			this.spatialIndices.put(status, new SpatialIndex(this.rows, this.cols));
+		}
+	}
+
+	/* Records an item or door in both envPositions and its SpatialIndex */
+	private void trackPosition(TileStatus status, Position p) {
+		this.envPositions.get(status).add(p);
+		this.spatialIndices.get(status).add(getIndex(p));
+		this.stateHash ^= ZobristKeys.tile(getIndex(p), status);
 	}
 
 	/* Traditional Getters */
-	protected TileStatus getTileStatus(Position p) { return tiles.get(p).getStatus(); }
-	public Position getRobotPosition(Robot robot) { return this.robotPositions.get(robot); }
+	public TileStatus getTileStatus(Position p) { return getTileStatus(p.getRow(), p.getCol()); }
+	public TileStatus getTileStatus(int row, int col) { return STATUSES[grid.get(row * cols + col)]; }
+	public TileStatus getTileStatus(int index) { return STATUSES[grid.get(index)]; }
+	public Position getRobotPosition(Robot robot) { return getPosition(this.robotStates.get(robot).index); }
 	public Map<TileStatus, ArrayList<Position>> getEnvironmentPositions() { return this.envPositions; }
-	public Map<Position, Tile> getTiles() { return tiles; }
+
+	/**
+	 * Returns the SpatialIndex of every remaining tile with a given status,
+	 * for nearest-k and within-radius queries. Indices exist for the same
+	 * statuses as getEnvironmentPositions (chips, keys, doors and the goal).
+	 * @param status - the TileStatus to look up
+	 * @return the SpatialIndex, or null if that status is not tracked
+	 */
+	public SpatialIndex getSpatialIndex(TileStatus status) { return this.spatialIndices.get(status); }
+	/**
+	 * Returns a read-only Map view of the tiles, keyed by Position. The view
+	 * is built on first use and reads straight from the tile grid, so it
+	 * always reflects the current state of the Environment. Prefer
+	 * getTileStatus for single lookups.
+	 * @return a Map (dictionary) of every Position and its Tile
+	 */
+	public Map<Position, Tile> getTiles() {
+		if (this.tiles == null) {
+			this.tiles = new TileMap();
+		}
+		return this.tiles;
+	}
 	public ArrayList<Robot> getRobots() { return this.robots; }
 	public int getRows() { return this.rows; }
 	public int getCols() { return this.cols; }
 
 	protected void addRobot(Robot robot, Position p) {
-		this.robotPositions.put(robot, p);
-		this.robotHoldings.put(robot, new ArrayList<String>());
+		RobotState state = new RobotState(this.robots.size(), getIndex(p));
+		state.passable = buildPassability(state.inventory);
+		this.robotStates.put(robot, state);
+		this.states.add(state);
 		this.robots.add(robot);
+		this.stateHash ^= ZobristKeys.robot(state.slot, getIndex(p));
+		this.stateHash ^= ZobristKeys.inventory(state.slot, state.inventory);
 	}
 
 	/**
@@ -213,19 +336,13 @@ public class Environment {
 	public Map<String, Tile> getNeighborTiles(Robot robot) {
 		Map<String, Tile> neighbors = new HashMap<String, Tile>();
 
-		Position robotPos = getRobotPosition(robot);
-		neighbors.put("self", tiles.get(robotPos));
-		if(robotPos.getAbove() != null) {
-			neighbors.put("above", tiles.get(robotPos.getAbove()));
-		}
-		if(robotPos.getBelow() != null) {
-			neighbors.put("below", tiles.get(robotPos.getBelow()));
-		}
-		if(robotPos.getLeft() != null) {
-			neighbors.put("left", tiles.get(robotPos.getLeft()));
-		}
-		if(robotPos.getRight() != null) {
-			neighbors.put("right", tiles.get(robotPos.getRight()));
+		int index = this.robotStates.get(robot).index;
+		neighbors.put("self", Tile.of(getTileStatus(index)));
+		for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+			int next = getNeighborIndex(index, direction);
+			if (next != -1) {
+				neighbors.put(DIRECTION_NAMES[direction], Tile.of(getTileStatus(next)));
+			}
 		}
 
 		return neighbors;
@@ -243,22 +360,54 @@ public class Environment {
 	public Map<String, Position> getNeighborPositions(Position p) {
 		Map<String, Position> neighbors = new HashMap<String, Position>();
 		
-		if(p.getAbove() != null) {
-			neighbors.put("above", p.getAbove());
-		}
-		if(p.getBelow() != null) {
-			neighbors.put("below", p.getBelow());
-		}
-		if(p.getLeft() != null) {
-			neighbors.put("left", p.getLeft());
-		}
-		if(p.getRight() != null) {
-			neighbors.put("right", p.getRight());
+		int index = getIndex(p);
+		for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+			int next = getNeighborIndex(index, direction);
+			if (next != -1) {
+				neighbors.put(DIRECTION_NAMES[direction], getPosition(next));
+			}
 		}
 		
 		return neighbors;
 	}
 	
+	/**
+   * Returns the grid index of a Position, row * cols + col. Indices let
+   * search code walk the Environment with getNeighborIndex and plain
+   * int arrays instead of Position-keyed maps.
+   * @param p - the Position
+   * @return the index of p
+   */
+	public int getIndex(Position p) {
+		return p.getRow() * this.cols + p.getCol();
+	}
+
+	/**
+   * Returns the Position at a grid index. Positions are created on demand,
+   * so compare them with equals rather than ==.
+   * @param index - an index returned by getIndex or getNeighborIndex
+   * @return the Position at that index
+   */
+	public Position getPosition(int index) {
+		return new Position(index / this.cols, index % this.cols);
+	}
+
+	/**
+   * The allocation-free counterpart to getNeighborPositions. Directions run
+   * from 0 to NUM_DIRECTIONS - 1 in the order below, left, above, right,
+   * matching the order getNeighborPositions iterates in.
+   * @param index - the grid index to center this method call on
+   * @param direction - which neighbor to return
+   * @return the neighbor's grid index, or -1 if it is outside the environment
+   */
+	public int getNeighborIndex(int index, int direction) {
+		int row = index / this.cols + ROW_OFFSETS[direction];
+		int col = index % this.cols + COL_OFFSETS[direction];
+		if (row < 0 || row >= this.rows || col < 0 || col >= this.cols)
+			return -1;
+		return row * this.cols + col;
+	}
+
 	/** 
    * Returns the Position of the DOOR_GOAL tile.
    * @return the Goal Position
@@ -268,28 +417,34 @@ public class Environment {
 	}
 	
 	/** 
-   * Counts number of chips remaining.
+   * Returns the number of chips remaining. The count is kept up to date
+   * by removeFromEvironment, so this no longer scans the whole map.
    * @return an integer
    */
 	public int getNumRemainingChips() {
-		int count = 0;
-		for (int row = 0; row < rows; row++) {
-			for (int col = 0; col < cols; col++) {
-				Position p = positions[row][col];
-				if (this.tiles.get(p).getStatus() == TileStatus.CHIP)
-					count++;
-			}
-		}
-		return count;
+		return this.numRemainingChips;
+	}
+
+	/** 
+   * Returns the inventory of the Robot parameter as a read-only
+   * List of key names, e.g. "KEY_BLUE". The List is a live view of
+   * the inventory returned by getRobotInventory.
+   * @param robot - the Robot whose inventory we are pulling
+   * @return a List of the Robot's inventory
+   */
+	public List<String> getRobotHoldings(Robot robot) {
+		return this.robotStates.get(robot).getHoldings();
 	}
 
 	/** 
-   * Returns the inventory of the Robot parameter.
+   * Returns the inventory of the Robot parameter packed into an int.
+   * Use the Inventory helpers to read it, e.g.
+   * Inventory.contains(env.getRobotInventory(robot), TileStatus.KEY_BLUE).
    * @param robot - the Robot whose inventory we are pulling
-   * @return an ArrayList of the Robot's inventory
+   * @return the Robot's packed inventory
    */
-	public ArrayList<String> getRobotHoldings(Robot robot) {
-		return this.robotHoldings.get(robot);
+	public int getRobotInventory(Robot robot) {
+		return this.robotStates.get(robot).inventory;
 	}
 	
 
@@ -302,36 +457,97 @@ public class Environment {
 	 * having collected all the chips.
 	 */
 	protected boolean validPos(int row, int col, Robot robot) {
-		try {
-			ArrayList<String> inventory = this.robotHoldings.get(robot);
-			Position p = positions[row][col];
-			TileStatus status = this.tiles.get(p).getStatus();
-
-			// Cannot pass through the final door without collecting all the chips
-			boolean doorGoalMissingChip = status == TileStatus.DOOR_GOAL && getNumRemainingChips() > 0;
-			if(doorGoalMissingChip)
-				return false;
-			
-			// Door Bouncer - cannot pass through a given door without having its respective key
-			boolean doorBlueKey = status == TileStatus.DOOR_BLUE && !inventory.contains("KEY_BLUE");
-			if(doorBlueKey)
-				return false;
-			boolean doorGreenKey = status == TileStatus.DOOR_GREEN && !inventory.contains("KEY_GREEN");
-			if(doorGreenKey)
-				return false;
-			boolean doorRedKey = status == TileStatus.DOOR_RED && !inventory.contains("KEY_RED");
-			if(doorRedKey)
-				return false;
-			boolean doorYellowKey = status == TileStatus.DOOR_YELLOW && !inventory.contains("KEY_YELLOW");
-			if(doorYellowKey)
-				return false;
-			
-			// Finally, checking the position is within the Environment and not a wall.
-			boolean withinWorld = row >= 0 && row < this.rows && col >= 0 && col < this.cols;
-			boolean notWall = (status != TileStatus.WALL) && (status != TileStatus.WATER);
-			return withinWorld && notWall;
-		} catch (ArrayIndexOutOfBoundsException e) {
+		// The grid is flattened, so an out of range column would otherwise
+		// wrap around onto the neighboring row.
+		boolean withinWorld = row >= 0 && row < this.rows && col >= 0 && col < this.cols;
+		if(!withinWorld)
 			return false;
+
+		return isPassable(robot, row * this.cols + col);
+	}
+
+	/**
+   * Tests whether a Robot could move onto a tile right now, by the same
+   * rules as validPos. Each Robot has a bitset over the grid that is only
+   * updated when it picks up or spends a key, when a tile changes, or when
+   * the last chip is collected, so this is a single bit test that planners
+   * can call freely.
+   * @param robot - the Robot that would move
+   * @param index - the grid index of the tile, which must be on the map
+   * @return true if the Robot can move onto the tile
+   */
+	public boolean isPassable(Robot robot, int index) {
+		long[] passable = this.robotStates.get(robot).passable;
+		return (passable[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+   * The door and wall rules behind validPos. They are shared with
+   * EnvironmentSnapshot and the Robot's planners, so that simulated
+   * moves are judged exactly like real ones.
+   * @param status - the TileStatus being moved onto
+   * @param inventory - the mover's packed inventory
+   * @param remainingChips - the number of chips left on the map
+   * @return true if the tile can be moved onto
+   */
+	public static boolean isPassable(TileStatus status, int inventory, int remainingChips) {
+		// Cannot pass through the final door without collecting all the chips
+		boolean doorGoalMissingChip = status == TileStatus.DOOR_GOAL && remainingChips > 0;
+		if(doorGoalMissingChip)
+			return false;
+		
+		// Door Bouncer - cannot pass through a given door without having its respective key
+		TileStatus requiredKey = Inventory.keyFor(status);
+		boolean doorMissingKey = requiredKey != null && !Inventory.contains(inventory, requiredKey);
+		if(doorMissingKey)
+			return false;
+		
+		// Finally, checking the position is not a wall.
+		boolean notWall = (status != TileStatus.WALL) && (status != TileStatus.WATER);
+		return notWall;
+	}
+
+	/**
+   * Captures the current state of the world from one Robot's point of view,
+   * so that planners can try out sequences of actions with
+   * EnvironmentSnapshot.apply without touching this Environment. Taking the
+   * snapshot copies the tile grid once; every fork after that only copies
+   * the cells that changed.
+   * @param robot - the Robot whose position and inventory are captured
+   * @return an immutable snapshot of the Environment
+   */
+	public EnvironmentSnapshot snapshot(Robot robot) {
+		RobotState state = this.robotStates.get(robot);
+		int goalIndex = this.target == null ? -1 : getIndex(this.target);
+		return new EnvironmentSnapshot(this.rows, this.cols, this.grid.copy(), goalIndex,
+				state.index, state.inventory, this.numRemainingChips);
+	}
+
+	/**
+   * Registers a listener to be told about every change
+   * updateEnvironment makes from now on.
+   * @param listener - the EnvironmentListener to add
+   */
+	public void addListener(EnvironmentListener listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+   * Stops a listener from receiving further changes.
+   * @param listener - the EnvironmentListener to remove
+   */
+	public void removeListener(EnvironmentListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/* Delivers an event at a grid index to the listeners. Nothing is
+	 * allocated when no listener is registered. */
+	private void publish(EnvironmentEvent.Type type, Robot robot, int index, TileStatus status) {
+		if (this.silent || this.listeners.isEmpty())
+			return;
+		EnvironmentEvent event = new EnvironmentEvent(type, this.tick, robot, getPosition(index), status);
+		for (EnvironmentListener listener : this.listeners) {
+			listener.onEvent(event);
 		}
 	}
 
@@ -342,80 +558,484 @@ public class Environment {
    * @param col - the Robot's new column
    */
 	protected void updateRobotPos(Robot robot, int row, int col) {
-		Position p = positions[row][col];
-		robotPositions.put(robot, p);
+		int index = row * this.cols + col;
+		RobotState state = robotStates.get(robot);
+		this.stateHash ^= ZobristKeys.robot(state.slot, state.index);
+		this.stateHash ^= ZobristKeys.robot(state.slot, index);
+		state.index = index;
+		publish(EnvironmentEvent.Type.ROBOT_MOVED, robot, index, getTileStatus(index));
+	}
+
+	/**
+   * Makes a move for depth-first search or Monte Carlo rollouts. The
+   * Robot takes the action exactly as it would inside updateEnvironment,
+   * checked by validPos and collecting whatever it was standing on. The
+   * change is also written to an undo log, and the returned record can be
+   * passed to undo to put everything back. Listeners are not told about
+   * these moves, and the tick count does not advance. Records must be
+   * undone in the reverse order they were made. Once the log has grown to
+   * the search depth, neither call allocates: the Robot's position is kept
+   * as a grid index, and an item that is put back reuses the Position it
+   * was listed under.
+   * @param robot - the Robot to move
+   * @param action - the Action it takes
+   * @return the undo record for this move
+   */
+	public int applyAction(Robot robot, Action action) {
+		RobotState state = this.robotStates.get(robot);
+		TileStatus underfoot = getTileStatus(state.index);
+		if (this.undoSize + UNDO_STRIDE > this.undoLog.length) {
+			this.undoLog = Arrays.copyOf(this.undoLog, this.undoLog.length * 2);
+			this.collectedLog = Arrays.copyOf(this.collectedLog, this.undoLog.length / UNDO_STRIDE);
+		}
+		int record = this.undoSize;
+		this.undoLog[record] = state.slot;
+		this.undoLog[record + 1] = state.index;
+		this.undoLog[record + 2] = state.inventory;
+		// The status under the robot, and whether the goal had been reached
+		this.undoLog[record + 3] = underfoot.ordinal() << 1 | (this.goalReached ? 1 : 0);
+		this.undoSize += UNDO_STRIDE;
+
+		this.silent = true;
+		this.collected = null;
+		commitAction(robot, action, null);
+		this.collectedLog[record / UNDO_STRIDE] = this.collected;
+		this.silent = false;
+		return record;
 	}
 
-	/** Gets the new state of the world after robot actions. */
+	/**
+   * Takes back a move made by applyAction, along with every move made after
+   * it, restoring each Robot's position and inventory, the collected tiles,
+   * envPositions, the chip count and the state hash.
+   * @param record - a record returned by applyAction
+   */
+	public void undo(int record) {
+		if (record < 0 || record > this.undoSize - UNDO_STRIDE || record % UNDO_STRIDE != 0)
+			throw new IllegalArgumentException("Not an open undo record - " + record);
+		while (this.undoSize > record) {
+			this.undoSize -= UNDO_STRIDE;
+			int entry = this.undoSize;
+			RobotState state = this.robotStates.get(this.robots.get(this.undoLog[entry]));
+			int previous = this.undoLog[entry + 1];
+			TileStatus underfoot = STATUSES[this.undoLog[entry + 3] >> 1];
+			this.goalReached = (this.undoLog[entry + 3] & 1) == 1;
+
+			// Put back whatever the robot collected from its previous tile,
+			// with the same Position that was taken out of envPositions
+			Position collected = this.collectedLog[entry / UNDO_STRIDE];
+			this.collectedLog[entry / UNDO_STRIDE] = null;
+			if (collected != null) {
+				setTileStatus(collected, underfoot);
+				trackPosition(underfoot, collected);
+				if (underfoot == TileStatus.CHIP)
+					setRemainingChips(this.numRemainingChips + 1);
+			}
+			setInventory(state, this.undoLog[entry + 2]);
+			this.stateHash ^= ZobristKeys.robot(state.slot, state.index);
+			this.stateHash ^= ZobristKeys.robot(state.slot, previous);
+			state.index = previous;
+		}
+	}
+
+	/**
+   * Switches between the two ways updateEnvironment can run a tick.
+   * By default each Robot decides and then moves in turn, so later Robots
+   * see the moves of earlier ones. With parallel decisions, every Robot
+   * first decides at the same time on a ForkJoin pool against the
+   * unchanged world. The moves are then committed one Robot at a time in
+   * the order of getRobots(). If several Robots try to move onto the same
+   * cell, the first one in that order gets it and the rest stay put.
+   * Items go to whichever Robot is committed first.
+   * @param parallel - true to decide in parallel, false for the default
+   */
+	public void setParallelDecisions(boolean parallel) {
+		this.parallelDecisions = parallel;
+	}
+
+	/** 
+   * Gets the new state of the world after robot actions. Every change
+   * is reported to the registered EnvironmentListeners as it is made.
+   */
 	public void updateEnvironment() {
-		for(Robot robot : robots) {
-			Action action = robot.getAction();
-			Position robotPos = getRobotPosition(robot);
-			int row = robotPos.getRow();
-			int col = robotPos.getCol();
-			switch(action) {
-			case MOVE_DOWN:
-        if (validPos(row + 1, col, robot))
-          updateRobotPos(robot, row + 1, col);
-        break;
-      case MOVE_LEFT:
-        if (validPos(row, col - 1, robot))
-          updateRobotPos(robot, row, col - 1);
-        break;
-      case MOVE_RIGHT:
-        if (validPos(row, col + 1, robot))
-          updateRobotPos(robot, row, col + 1);
-        break;
-      case MOVE_UP:
-        if (validPos(row - 1, col, robot))
-          updateRobotPos(robot, row - 1, col);
-        break;
-      case DO_NOTHING: // pass to default
-      default:
-        break;
+		this.tick++;
+		if (!this.parallelDecisions) {
+			for(Robot robot : robots) {
+				commitAction(robot, robot.getAction(), null);
 			}
+			return;
+		}
+
+		// Phase 1: nothing is written while the robots decide, so each one
+		// sees the same consistent world.
+		Action[] actions = new Action[robots.size()];
+		IntStream.range(0, actions.length).parallel()
+				.forEach(i -> actions[i] = robots.get(i).getAction());
+
+		// Phase 2: commit the moves in a deterministic order
+		Set<Integer> claimed = new HashSet<Integer>();
+		for (int i = 0; i < actions.length; i++) {
+			commitAction(robots.get(i), actions[i], claimed);
+		}
+	}
+
+	/* Moves a Robot according to its action and collects whatever it was
+	 * standing on. When claimed is not null, a move onto a cell another
+	 * Robot already moved onto this tick is refused. Package-private so
+	 * tests can drive the Environment with chosen actions.
+	 */
+	void commitAction(Robot robot, Action action, Set<Integer> claimed) {
+		RobotState state = this.robotStates.get(robot);
+		int robotIndex = state.index;
+		int row = robotIndex / this.cols;
+		int col = robotIndex % this.cols;
+		int nextRow = row;
+		int nextCol = col;
+		switch(action) {
+		case MOVE_DOWN:
+			nextRow++;
+			break;
+		case MOVE_LEFT:
+			nextCol--;
+			break;
+		case MOVE_RIGHT:
+			nextCol++;
+			break;
+		case MOVE_UP:
+			nextRow--;
+			break;
+		case DO_NOTHING: // pass to default
+		default:
+			break;
+		}
+		boolean moved = nextRow != row || nextCol != col;
+		if (moved && validPos(nextRow, nextCol, robot)) {
+			if (claimed == null || claimed.add(nextRow * this.cols + nextCol))
+				updateRobotPos(robot, nextRow, nextCol);
+		}
+
+		TileStatus status = getTileStatus(robotIndex);
+		if(status == TileStatus.CHIP) {
+			removeFromEvironment(status, robotIndex);
+			publish(EnvironmentEvent.Type.ITEM_PICKED_UP, robot, robotIndex, status);
+		} else if(Inventory.isKey(status)) {
+			setInventory(state, Inventory.add(state.inventory, status));
+			removeFromEvironment(status, robotIndex);
+			publish(EnvironmentEvent.Type.ITEM_PICKED_UP, robot, robotIndex, status);
+		} else if(Inventory.keyFor(status) != null) {
+			setInventory(state, Inventory.remove(state.inventory, Inventory.keyFor(status)));
+			removeFromEvironment(status, robotIndex);
+			publish(EnvironmentEvent.Type.DOOR_OPENED, robot, robotIndex, status);
+		} else if(status == TileStatus.DOOR_GOAL) {
+			removeFromEvironment(status, robotIndex);
+			publish(EnvironmentEvent.Type.DOOR_OPENED, robot, robotIndex, status);
+		} 
+
+		if(!this.goalReached && isTarget(state.index) && getNumRemainingChips() == 0) {
+			this.goalReached = true;
+			publish(EnvironmentEvent.Type.GOAL_REACHED, robot, state.index, TileStatus.GOAL);
+		}
+	}
 
-			TileStatus status = tiles.get(robotPos).getStatus();
-			ArrayList<String> inventory = this.robotHoldings.get(robot);
-			if(status == TileStatus.CHIP) {
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.KEY_BLUE) {
-				inventory.add("KEY_BLUE");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.KEY_GREEN) {
-				inventory.add("KEY_GREEN");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.KEY_RED) {
-				inventory.add("KEY_RED");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.KEY_YELLOW) {
-				inventory.add("KEY_YELLOW");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.DOOR_BLUE) {
-				inventory.remove("KEY_BLUE");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.DOOR_GREEN) {
-				inventory.remove("KEY_GREEN");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.DOOR_RED) {
-				inventory.remove("KEY_RED");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.DOOR_YELLOW) {
-				inventory.remove("KEY_YELLOW");
-				removeFromEvironment(status, robotPos);
-			} else if(status == TileStatus.DOOR_GOAL) {
-				removeFromEvironment(status, robotPos);
-			} 
-		}
-	}
-
-	private void removeFromEvironment(TileStatus tile, Position robotPos) {
-		this.tiles.put(robotPos, new Tile(TileStatus.BLANK));
-		this.envPositions.get(tile).remove(robotPos);
+	private boolean isTarget(int index) {
+		return this.target != null && getIndex(this.target) == index;
+	}
+
+	/* Takes an item or door off the map, leaving the Position removed from
+	 * envPositions in collected for applyAction */
+	private void removeFromEvironment(TileStatus tile, int index) {
+		ArrayList<Position> positions = this.envPositions.get(tile);
+		for (int i = 0; i < positions.size(); i++) {
+			if (getIndex(positions.get(i)) == index) {
+				this.collected = positions.remove(i);
+				break;
+			}
+		}
+		setTileStatus(index, TileStatus.BLANK);
+		if (tile == TileStatus.CHIP)
+			setRemainingChips(this.numRemainingChips - 1);
+		this.spatialIndices.get(tile).remove(index);
+		this.stateHash ^= ZobristKeys.tile(index, tile);
 		//System.out.println("UPDATED " + tile + ": ");
 		//System.out.println(this.getEnvironmentPositions().get(tile));
 	}
 	
+	private void setInventory(RobotState state, int inventory) {
+		this.stateHash ^= ZobristKeys.inventory(state.slot, state.inventory);
+		this.stateHash ^= ZobristKeys.inventory(state.slot, inventory);
+		int previous = state.inventory;
+		state.inventory = inventory;
+		// Only doors whose key was gained or used up change passability
+		for (TileStatus door : COLORED_DOORS) {
+			TileStatus key = Inventory.keyFor(door);
+			if (Inventory.contains(previous, key) != Inventory.contains(inventory, key))
+				refreshPassability(state, door);
+		}
+	}
+
+	private void setTileStatus(Position p, TileStatus status) {
+		setTileStatus(p.getRow() * this.cols + p.getCol(), status);
+	}
+
+	private void setTileStatus(int index, TileStatus status) {
+		TileStatus previous = getTileStatus(index);
+		this.grid.set(index, (byte) status.ordinal());
+		this.version++;
+		this.changeLog[(int) (this.version & (CHANGE_LOG_SIZE - 1))] = index;
+		this.changedFrom[(int) (this.version & (CHANGE_LOG_SIZE - 1))] = (byte) previous.ordinal();
+		if (!this.distanceFields.isEmpty())
+			dropDistanceFields(previous, status);
+		ComponentLabels labels = this.components;
+		if (labels != null && blocks(previous) != blocks(status)) {
+			if (RoomGraph.isDoor(previous))
+				labels.doorOpened(labels.getNode(index));
+			else
+				this.components = null;
+		}
+		for (int i = 0; i < this.states.size(); i++) {
+			refreshPassability(this.states.get(i), index);
+		}
+	}
+
+	/* The DOOR_GOAL only changes passability when the count reaches or leaves zero */
+	private void setRemainingChips(int chips) {
+		boolean wasZero = this.numRemainingChips == 0;
+		this.numRemainingChips = chips;
+		if (wasZero != (chips == 0)) {
+			for (int i = 0; i < this.states.size(); i++) {
+				refreshPassability(this.states.get(i), TileStatus.DOOR_GOAL);
+			}
+			if (!this.distanceFields.isEmpty() && !this.envPositions.get(TileStatus.DOOR_GOAL).isEmpty())
+				this.distanceFields.values().removeIf(field -> !field.isDoorsOpen());
+		}
+	}
+
+	/* Builds a passability bitset from scratch. Robots with the same
+	 * inventory share the same bits, so an existing one is copied if possible. */
+	private long[] buildPassability(int inventory) {
+		for (RobotState other : this.robotStates.values()) {
+			if (other.inventory == inventory)
+				return other.passable.clone();
+		}
+		int size = this.rows * this.cols;
+		long[] passable = new long[(size + 63) >>> 6];
+		for (int index = 0; index < size; index++) {
+			if (isPassable(getTileStatus(index), inventory, this.numRemainingChips))
+				passable[index >>> 6] |= 1L << index;
+		}
+		return passable;
+	}
+
+	private void refreshPassability(RobotState state, int index) {
+		if (isPassable(getTileStatus(index), state.inventory, this.numRemainingChips))
+			state.passable[index >>> 6] |= 1L << index;
+		else
+			state.passable[index >>> 6] &= ~(1L << index);
+	}
+
+	private void refreshPassability(RobotState state, TileStatus status) {
+		ArrayList<Position> positions = this.envPositions.get(status);
+		for (int i = 0; i < positions.size(); i++) {
+			refreshPassability(state, getIndex(positions.get(i)));
+		}
+	}
+
+	/**
+   * Returns how far every cell is from a target for a Robot, so that it
+   * can walk there with DistanceField.nextStep instead of searching. One
+   * field is shared by every Robot whose keys open the same doors, and it
+   * is only searched again after a tile changes in a way that opens or
+   * blocks a cell for those Robots. Picking up items and opening doors the
+   * Robots could already pass does not. This may be called by several
+   * Robots at once while they decide in parallel. A field holds a distance
+   * for every cell, so maps of more than TileStorage.DENSE_LIMIT cells,
+   * which are stored in chunks, have none and must be searched instead.
+   * @param target - the Position to measure distances to
+   * @param robot - the Robot that will use the field
+   * @return the DistanceField for the target, or null if the map is too
+   * big for one
+   */
+	public DistanceField getDistanceField(Position target, Robot robot) {
+		int inventory = this.robotStates.get(robot).inventory;
+		long doors = 0;
+		for (int i = 0; i < COLORED_DOORS.length; i++) {
+			if (Inventory.contains(inventory, Inventory.keyFor(COLORED_DOORS[i])))
+				doors |= 1L << i;
+		}
+		return getDistanceField(getIndex(target), false, inventory, doors);
+	}
+
+	/**
+   * Returns how far every cell is from a target with every door open, so
+   * that only walls and water are in the way. Shared and kept like the
+   * fields for Robots, and only searched again when setTile adds or removes
+   * a wall or water. Maps too big for a field have none, as above.
+   * @param target - the Position to measure distances to
+   * @return the DistanceField for the target, or null if the map is too
+   * big for one
+   */
+	public DistanceField getDistanceField(Position target) {
+		return getDistanceField(getIndex(target), true, Inventory.EMPTY, 1L << COLORED_DOORS.length);
+	}
+
+	/**
+   * Returns the rooms and doors of the map, see RoomGraph. The graph is
+   * built on first use and shared by every Robot. Picking up items and
+   * opening doors do not change it, so it is only built again after
+   * setTile changes the layout. This may be called by several Robots at
+   * once while they decide in parallel. The graph labels every cell, so
+   * maps of more than TileStorage.DENSE_LIMIT cells, which are stored in
+   * chunks, have none.
+   * @return the RoomGraph of the current layout, or null if the map is too
+   * big for one
+   */
+	public synchronized RoomGraph getRoomGraph() {
+		if ((long) this.rows * this.cols > TileStorage.DENSE_LIMIT)
+			return null;
+		if (this.roomGraph == null || this.roomGraphLayout != this.layoutVersion) {
+			this.roomGraph = new RoomGraph(this);
+			this.roomGraphLayout = this.layoutVersion;
+		}
+		return this.roomGraph;
+	}
+
+	/**
+   * Returns which connected component a cell is in, where components are
+   * joined by cells that any Robot can cross without a key. Two cells with
+   * the same component can always reach each other. Every closed door is a
+   * component of its own, and when a door opens, the components on each
+   * side are merged on the spot. The labels are built from getRoomGraph on
+   * first use, so this is O(1) after that. Planners can compare the
+   * components of the start and the goal before searching at all. This may
+   * be called by several Robots at once while they decide in parallel.
+   * Maps without a RoomGraph have no labels either.
+   * @param index - the grid index of the cell
+   * @return the component, or -1 for walls and water and on maps without
+   * a RoomGraph
+   */
+	public int getComponent(int index) {
+		ComponentLabels labels = this.components;
+		if (labels == null)
+			labels = buildComponents();
+		return labels == null ? -1 : labels.getComponent(index);
+	}
+
+	private synchronized ComponentLabels buildComponents() {
+		RoomGraph rooms = getRoomGraph();
+		if (this.components == null && rooms != null)
+			this.components = new ComponentLabels(this, rooms);
+		return this.components;
+	}
+
+	/* Whether a tile stops a Robot that holds no keys, see RoomGraph */
+	private static boolean blocks(TileStatus status) {
+		return status == TileStatus.WALL || status == TileStatus.WATER || RoomGraph.isDoor(status);
+	}
+
+	/* Finds or makes a field, or returns null above TileStorage.DENSE_LIMIT
+	 * cells. The key is the target index and either the colored doors the
+	 * field passes or the doors-open flag above them. */
+	private DistanceField getDistanceField(int target, boolean doorsOpen, int inventory, long doors) {
+		if ((long) this.rows * this.cols > TileStorage.DENSE_LIMIT)
+			return null;
+		long key = (long) target << (COLORED_DOORS.length + 1) | doors;
+		DistanceField field = this.distanceFields.get(key);
+		if (field != null)
+			return field;
+		if ((long) (this.distanceFields.size() + 1) * this.rows * this.cols > MAX_DISTANCE_FIELD_CELLS)
+			this.distanceFields.clear();
+		// Robots asking for the same field at once wait for a single search
+		return this.distanceFields.computeIfAbsent(key,
+				k -> new DistanceField(this, target, doorsOpen, inventory, this.numRemainingChips));
+	}
+
+	/* Forgets the DistanceFields a tile change opens or blocks a cell in */
+	private void dropDistanceFields(TileStatus previous, TileStatus status) {
+		this.distanceFields.values().removeIf(field ->
+				field.passes(previous, this.numRemainingChips) != field.passes(status, this.numRemainingChips));
+	}
+
+	/**
+   * Returns a 64-bit Zobrist fingerprint of the state of the world: where
+   * every Robot is, what each one carries, and which chips, keys and doors
+   * remain. Equal states always have equal hashes, and different states
+   * almost never do, so the hash can key transposition tables, detect a
+   * run that keeps revisiting the same state, or deduplicate trial outcomes.
+   * It is updated incrementally as the world changes, so this call is O(1).
+   * @return the current state hash
+   */
+	public long getStateHash() {
+		return this.stateHash;
+	}
+
+	/**
+   * Returns a counter that goes up every time any tile changes: an item is
+   * picked up, a door is opened, a move is undone or setTile is called.
+   * Robots are not tiles, so moving them leaves it alone. Planners can
+   * cache work done on the map and throw it away only when this changes.
+   * @return the current tile version
+   */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+   * Tells which tiles changed after an earlier getVersion, so that a
+   * planner can repair what it knows about those cells instead of starting
+   * over. A tile appears once for every change to it, in order. Only the
+   * most recent changes are kept.
+   * @param since - a value returned by getVersion
+   * @return the grid indices of the tiles changed since then, or null if
+   * too many tiles have changed to list them
+   */
+	public int[] getChangedCells(long since) {
+		long changes = this.version - since;
+		if (changes < 0 || changes > CHANGE_LOG_SIZE)
+			return null;
+		int[] cells = new int[(int) changes];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = this.changeLog[(int) ((since + 1 + i) & (CHANGE_LOG_SIZE - 1))];
+		}
+		return cells;
+	}
+
+	/**
+   * Tells what a tile was before one of the changes listed by
+   * getChangedCells, e.g. whether a cell that is BLANK now was a door that
+   * opened or an item that was picked up.
+   * @param since - the value passed to getChangedCells
+   * @param i - the place of the change in the array it returned
+   * @return the TileStatus the tile had before that change
+   */
+	public TileStatus getChangedFrom(long since, int i) {
+		return STATUSES[this.changedFrom[(int) ((since + 1 + i) & (CHANGE_LOG_SIZE - 1))]];
+	}
+
+	/**
+   * Returns a counter that only goes up when setTile is called. Picking up
+   * items and opening doors leave it alone, so distances that only depend
+   * on the walls and water can be kept while this stays the same.
+   * @return the current layout version
+   */
+	public long getLayoutVersion() {
+		return this.layoutVersion;
+	}
+
+	/* Recomputes the state hash from scratch; getStateHash must always agree. */
+	long recomputeStateHash() {
+		long hash = 0;
+		for (Map.Entry<TileStatus, ArrayList<Position>> entry : this.envPositions.entrySet()) {
+			for (Position p : entry.getValue()) {
+				hash ^= ZobristKeys.tile(getIndex(p), entry.getKey());
+			}
+		}
+		for (RobotState state : this.robotStates.values()) {
+			hash ^= ZobristKeys.robot(state.slot, state.index);
+			hash ^= ZobristKeys.inventory(state.slot, state.inventory);
+		}
+		return hash;
+	}
+
 	/** Prints the number of chips remaining and whether the goal condition was met. */
 	public void printPerformanceMeasure() {
 		System.out.println("Simulation Complete");
@@ -433,11 +1053,68 @@ public class Environment {
    */
 	public boolean goalConditionMet() {
 		for(Robot robot : robots) {
-			Position robotPos = getRobotPosition(robot);
-			if (robotPos.equals(this.target)) {
+			if (isTarget(this.robotStates.get(robot).index)) {
 				return getNumRemainingChips() == 0;
 			}
 		}
 		return false;
 	}
+
+	/*
+	 * Read-only Map view over the tile grid returned by getTiles(). Lookups
+	 * go straight to the grid and hand back the shared Tile for that status.
+	 */
+	private class TileMap extends AbstractMap<Position, Tile> {
+		@Override
+		public Tile get(Object key) {
+			if (!(key instanceof Position))
+				return null;
+			Position p = (Position) key;
+			if (p.getRow() < 0 || p.getRow() >= rows || p.getCol() < 0 || p.getCol() >= cols)
+				return null;
+			return Tile.of(getTileStatus(p));
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public int size() {
+			return rows * cols;
+		}
+
+		@Override
+		public Set<Map.Entry<Position, Tile>> entrySet() {
+			return new AbstractSet<Map.Entry<Position, Tile>>() {
+				@Override
+				public int size() {
+					return rows * cols;
+				}
+
+				@Override
+				public Iterator<Map.Entry<Position, Tile>> iterator() {
+					return new Iterator<Map.Entry<Position, Tile>>() {
+						private int index = 0;
+
+						@Override
+						public boolean hasNext() {
+							return index < rows * cols;
+						}
+
+						@Override
+						public Map.Entry<Position, Tile> next() {
+							if (!hasNext())
+								throw new NoSuchElementException();
+							Position p = getPosition(index);
+							Tile t = Tile.of(getTileStatus(index));
+							index++;
+							return new AbstractMap.SimpleImmutableEntry<Position, Tile>(p, t);
+						}
+					};
+				}
+			};
+		}
+	}
 }
@@ -0,0 +1,48 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+
+/**
+ * Describes a single change made by Environment.updateEnvironment(),
+ * such as a Robot moving or picking up a key. Events are delivered
+ * to every registered EnvironmentListener in the order they happen.
+ */
+public final class EnvironmentEvent {
+  /** The kinds of change the Environment reports. */
+  public enum Type {
+    /** A Robot moved onto a new Position. The status is the tile it moved onto. */
+    ROBOT_MOVED,
+    /** A Robot picked up a chip or key. The status is the item collected. */
+    ITEM_PICKED_UP,
+    /** A Robot opened a colored door or the DOOR_GOAL. The status is the door. */
+    DOOR_OPENED,
+    /** A Robot reached the portal with every chip collected. */
+    GOAL_REACHED;
+  }
+
+  private final Type type;
+  private final int tick;
+  private final Robot robot;
+  private final Position position;
+  private final TileStatus status;
+
+  EnvironmentEvent(Type type, int tick, Robot robot, Position position, TileStatus status) {
+    this.type = type;
+    this.tick = tick;
+    this.robot = robot;
+    this.position = position;
+    this.status = status;
+  }
+
+  /* Traditional Getters */
+  public Type getType() { return this.type; }
+  public int getTick() { return this.tick; }
+  public Robot getRobot() { return this.robot; }
+  public Position getPosition() { return this.position; }
+  public TileStatus getStatus() { return this.status; }
+
+  @Override
+  public String toString() {
+    return String.format("[TIME STEP %03d] %s %s at %s", this.tick, this.type, this.status, this.position);
+  }
+}
@@ -0,0 +1,16 @@
+package edu.ncsu.csc411.ps06.environment;
+
+/**
+ * Receives the changes made by Environment.updateEnvironment(). Register
+ * a listener with Environment.addListener to keep a cache up to date
+ * incrementally instead of rescanning the Environment every tick.
+ * Listeners are called on the thread running the simulation, so they
+ * should return quickly.
+ */
+public interface EnvironmentListener {
+  /**
+   * Called once for every change, in the order the changes happen.
+   * @param event - the change
+   */
+  void onEvent(EnvironmentEvent event);
+}
@@ -0,0 +1,170 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.Arrays;
+
+/**
+ * An immutable copy of the world as seen by a single Robot, returned by
+ * Environment.snapshot. Calling apply(Action) never changes a snapshot;
+ * it returns a new one. This lets a planner look several moves ahead
+ * (picking up a key, opening a door) without mutating the live
+ * Environment.
+ *
+ * Forks are cheap because every snapshot descended from the same
+ * Environment.snapshot call shares one tile grid that is never written.
+ * Each snapshot only stores the short, sorted list of cells that have
+ * changed since then, so apply costs O(changed cells) rather than a copy
+ * of the whole map. Tiles are referenced by their grid index,
+ * row * cols + col, as with Environment.getIndex.
+ *
+ * Moves are judged by the same rules as Environment.validPos. Items are
+ * picked up in the same way as Environment.updateEnvironment, which
+ * collects the tile the robot stood on at the start of the tick. An item
+ * therefore disappears on the tick after the robot steps onto it.
+ */
+public final class EnvironmentSnapshot {
+  private static final TileStatus[] STATUSES = TileStatus.values();
+  private static final byte BLANK = (byte) TileStatus.BLANK.ordinal();
+
+  private final int rows;
+  private final int cols;
+  private final TileStorage base;
+  private final int goalIndex;
+  private final int[] changedCells;
+  private final byte[] changedStatuses;
+  private final int robotIndex;
+  private final int inventory;
+  private final int remainingChips;
+
+  EnvironmentSnapshot(int rows, int cols, TileStorage base, int goalIndex,
+      int robotIndex, int inventory, int remainingChips) {
+    this(rows, cols, base, goalIndex, new int[0], new byte[0],
+        robotIndex, inventory, remainingChips);
+  }
+
+  private EnvironmentSnapshot(int rows, int cols, TileStorage base, int goalIndex,
+      int[] changedCells, byte[] changedStatuses,
+      int robotIndex, int inventory, int remainingChips) {
+    this.rows = rows;
+    this.cols = cols;
+    this.base = base;
+    this.goalIndex = goalIndex;
+    this.changedCells = changedCells;
+    this.changedStatuses = changedStatuses;
+    this.robotIndex = robotIndex;
+    this.inventory = inventory;
+    this.remainingChips = remainingChips;
+  }
+
+  /* Traditional Getters */
+  public int getRows() { return this.rows; }
+  public int getCols() { return this.cols; }
+  public int getRobotIndex() { return this.robotIndex; }
+  public int getInventory() { return this.inventory; }
+  public int getNumRemainingChips() { return this.remainingChips; }
+
+  /**
+   * Returns the status of the tile at a grid index in this snapshot.
+   * @param index - the grid index, row * cols + col
+   * @return the TileStatus at that index
+   */
+  public TileStatus getTileStatus(int index) {
+    int changed = Arrays.binarySearch(this.changedCells, index);
+    if (changed >= 0) {
+      return STATUSES[this.changedStatuses[changed]];
+    }
+    return STATUSES[this.base.get(index)];
+  }
+
+  /**
+   * Checks if the robot stands on the portal with every chip collected,
+   * the same test as Environment.goalConditionMet.
+   * @return true if the goal condition has been met, else false
+   */
+  public boolean goalConditionMet() {
+    return this.robotIndex == this.goalIndex && this.remainingChips == 0;
+  }
+
+  /**
+   * Returns the snapshot that results from the robot taking one action.
+   * A move that Environment.validPos would reject leaves the robot in
+   * place, but the tile it stands on is still collected.
+   * @param action - the Action to simulate
+   * @return the resulting snapshot, which is this snapshot if nothing changed
+   */
+  public EnvironmentSnapshot apply(Action action) {
+    int row = this.robotIndex / this.cols;
+    int col = this.robotIndex % this.cols;
+    switch (action) {
+      case MOVE_DOWN: row++; break;
+      case MOVE_LEFT: col--; break;
+      case MOVE_RIGHT: col++; break;
+      case MOVE_UP: row--; break;
+      case DO_NOTHING: // pass to default
+      default: break;
+    }
+    int nextIndex = this.robotIndex;
+    boolean withinWorld = row >= 0 && row < this.rows && col >= 0 && col < this.cols;
+    if (withinWorld) {
+      int candidate = row * this.cols + col;
+      if (Environment.isPassable(getTileStatus(candidate), this.inventory, this.remainingChips)) {
+        nextIndex = candidate;
+      }
+    }
+
+    // Collect whatever was under the robot at the start of the tick
+    TileStatus status = getTileStatus(this.robotIndex);
+    int nextInventory = this.inventory;
+    int nextChips = this.remainingChips;
+    boolean collected = true;
+    if (status == TileStatus.CHIP) {
+      nextChips--;
+    } else if (Inventory.isKey(status)) {
+      nextInventory = Inventory.add(nextInventory, status);
+    } else if (Inventory.keyFor(status) != null) {
+      nextInventory = Inventory.remove(nextInventory, Inventory.keyFor(status));
+    } else if (status != TileStatus.DOOR_GOAL) {
+      collected = false;
+    }
+
+    if (!collected) {
+      if (nextIndex == this.robotIndex) {
+        return this;
+      }
+      return new EnvironmentSnapshot(this.rows, this.cols, this.base, this.goalIndex,
+          this.changedCells, this.changedStatuses, nextIndex, nextInventory, nextChips);
+    }
+    return withBlank(this.robotIndex, nextIndex, nextInventory, nextChips);
+  }
+
+  /* Forks this snapshot with the tile at index cleared to BLANK, copying only
+   * the changed cell list. */
+  private EnvironmentSnapshot withBlank(int index, int nextIndex, int nextInventory, int nextChips) {
+    int changed = Arrays.binarySearch(this.changedCells, index);
+    int[] cells;
+    byte[] statuses;
+    if (changed >= 0) {
+      cells = this.changedCells;
+      statuses = this.changedStatuses.clone();
+      statuses[changed] = BLANK;
+    } else {
+      int insert = -changed - 1;
+      int size = this.changedCells.length;
+      cells = new int[size + 1];
+      statuses = new byte[size + 1];
+      System.arraycopy(this.changedCells, 0, cells, 0, insert);
+      System.arraycopy(this.changedStatuses, 0, statuses, 0, insert);
+      cells[insert] = index;
+      statuses[insert] = BLANK;
+      System.arraycopy(this.changedCells, insert, cells, insert + 1, size - insert);
+      System.arraycopy(this.changedStatuses, insert, statuses, insert + 1, size - insert);
+    }
+    return new EnvironmentSnapshot(this.rows, this.cols, this.base, this.goalIndex,
+        cells, statuses, nextIndex, nextInventory, nextChips);
+  }
+
+  @Override
+  public String toString() {
+    return "EnvironmentSnapshot [robot=" + this.robotIndex + ", inventory=" + this.inventory
+        + ", chips=" + this.remainingChips + ", changed=" + this.changedCells.length + "]";
+  }
+}
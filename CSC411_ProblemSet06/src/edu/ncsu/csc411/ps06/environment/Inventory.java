@@ -0,0 +1,160 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Helpers for a Robot's inventory, which the Environment stores packed
+ * into a single int. Each key color gets an 8-bit lane counting how many
+ * of that key the Robot is carrying, so checking for a key is a shift and
+ * a mask, and a whole inventory can be copied or compared as one value.
+ * Keys are counted rather than flagged because a map may contain several
+ * keys (and doors) of the same color.
+ */
+public final class Inventory {
+  /** An inventory holding no keys. */
+  public static final int EMPTY = 0;
+
+  private static final int LANE_BITS = 8;
+  private static final int LANE_MASK = (1 << LANE_BITS) - 1;
+  private static final TileStatus[] KEYS = {
+      TileStatus.KEY_BLUE, TileStatus.KEY_GREEN, TileStatus.KEY_RED, TileStatus.KEY_YELLOW
+  };
+
+  private Inventory() { }
+
+  /**
+   * Returns which lane a key is stored in.
+   * @param key - the key
+   * @return the lane, or -1 if the TileStatus is not a key
+   */
+  private static int lane(TileStatus key) {
+    switch (key) {
+      case KEY_BLUE: return 0;
+      case KEY_GREEN: return 1;
+      case KEY_RED: return 2;
+      case KEY_YELLOW: return 3;
+      default: return -1;
+    }
+  }
+
+  /**
+   * Checks whether a TileStatus is one of the four keys.
+   * @param status - the TileStatus
+   * @return true if status is a key
+   */
+  public static boolean isKey(TileStatus status) {
+    return lane(status) >= 0;
+  }
+
+  /**
+   * Returns the key required to pass through a colored door.
+   * @param door - the door's TileStatus
+   * @return the matching key, or null if status is not a colored door
+   */
+  public static TileStatus keyFor(TileStatus door) {
+    switch (door) {
+      case DOOR_BLUE: return TileStatus.KEY_BLUE;
+      case DOOR_GREEN: return TileStatus.KEY_GREEN;
+      case DOOR_RED: return TileStatus.KEY_RED;
+      case DOOR_YELLOW: return TileStatus.KEY_YELLOW;
+      default: return null;
+    }
+  }
+
+  /**
+   * Returns how many of a key the inventory holds.
+   * @param inventory - the packed inventory
+   * @param key - the key
+   * @return the number held
+   */
+  public static int count(int inventory, TileStatus key) {
+    int lane = lane(key);
+    if (lane < 0) {
+      return 0;
+    }
+    return (inventory >>> (lane * LANE_BITS)) & LANE_MASK;
+  }
+
+  /**
+   * Checks whether the inventory holds at least one of a key.
+   * @param inventory - the packed inventory
+   * @param key - the key
+   * @return true if the key is held
+   */
+  public static boolean contains(int inventory, TileStatus key) {
+    return count(inventory, key) > 0;
+  }
+
+  /**
+   * Returns the inventory with one more of a key. The count stops at 255.
+   * @param inventory - the packed inventory
+   * @param key - the key picked up
+   * @return the updated inventory
+   */
+  public static int add(int inventory, TileStatus key) {
+    int lane = lane(key);
+    if (lane < 0 || count(inventory, key) == LANE_MASK) {
+      return inventory;
+    }
+    return inventory + (1 << (lane * LANE_BITS));
+  }
+
+  /**
+   * Returns the inventory with one fewer of a key. Removing a key that
+   * is not held leaves the inventory unchanged.
+   * @param inventory - the packed inventory
+   * @param key - the key used up
+   * @return the updated inventory
+   */
+  public static int remove(int inventory, TileStatus key) {
+    int lane = lane(key);
+    if (lane < 0 || count(inventory, key) == 0) {
+      return inventory;
+    }
+    return inventory - (1 << (lane * LANE_BITS));
+  }
+
+  /**
+   * Returns a read-only List view of an inventory, with one "KEY_*" String
+   * per key held. This is the format getRobotHoldings has always returned.
+   * @param holder - supplies the current packed inventory
+   * @return the List view
+   */
+  static List<String> asList(RobotState holder) {
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        if (index >= 0) {
+          for (TileStatus key : KEYS) {
+            int count = count(holder.inventory, key);
+            if (index < count) {
+              return key.name();
+            }
+            index -= count;
+          }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index);
+      }
+
+      @Override
+      public int size() {
+        int size = 0;
+        for (TileStatus key : KEYS) {
+          size += count(holder.inventory, key);
+        }
+        return size;
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        for (TileStatus key : KEYS) {
+          if (key.name().equals(o)) {
+            return Inventory.contains(holder.inventory, key);
+          }
+        }
+        return false;
+      }
+    };
+  }
+}
@@ -0,0 +1,100 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Stores every tile outside the Java heap, one byte per cell, in a direct
+ * ByteBuffer. The garbage collector never has to scan or copy the tiles,
+ * which matters for generated maps with hundreds of millions of cells.
+ * The buffer can also be a memory-mapped file (see mapped), in which case
+ * the operating system pages tiles in and out as the robots reach them.
+ *
+ * A single buffer holds at most Integer.MAX_VALUE tiles.
+ */
+public class OffHeapTileStorage implements TileStorage {
+  private final ByteBuffer tiles;
+
+  /**
+   * Allocates off-heap storage for a rows x cols map with every tile set
+   * to fill.
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   * @param fill - the initial TileStatus of every tile
+   */
+  public OffHeapTileStorage(int rows, int cols, TileStatus fill) {
+    this(ByteBuffer.allocateDirect(Math.multiplyExact(rows, cols)));
+    fill(fill);
+  }
+
+  private OffHeapTileStorage(ByteBuffer tiles) {
+    this.tiles = tiles;
+  }
+
+  /**
+   * Creates storage for a rows x cols map backed by a memory-mapped file,
+   * with every tile set to fill. The file is created if it does not exist
+   * and is resized to one byte per tile. The mapping stays valid after the
+   * file channel is closed.
+   * @param file - the file to map
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   * @param fill - the initial TileStatus of every tile
+   * @return the new storage
+   * @throws UncheckedIOException if the file cannot be created or mapped
+   */
+  public static OffHeapTileStorage mapped(Path file, int rows, int cols, TileStatus fill) {
+    int size = Math.multiplyExact(rows, cols);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      channel.truncate(size);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      OffHeapTileStorage storage = new OffHeapTileStorage(buffer);
+      storage.fill(fill);
+      return storage;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not map " + file, e);
+    }
+  }
+
+  private void fill(TileStatus status) {
+    byte value = (byte) status.ordinal();
+    byte[] block = new byte[8192];
+    Arrays.fill(block, value);
+    ByteBuffer view = this.tiles.duplicate();
+    view.clear();
+    while (view.remaining() >= block.length) {
+      view.put(block);
+    }
+    view.put(block, 0, view.remaining());
+  }
+
+  @Override
+  public byte get(int index) {
+    return this.tiles.get(index);
+  }
+
+  @Override
+  public void set(int index, byte status) {
+    this.tiles.put(index, status);
+  }
+
+  /**
+   * Copies the tiles into a new direct buffer. A copy of mapped storage
+   * is not backed by the file.
+   */
+  @Override
+  public TileStorage copy() {
+    ByteBuffer copy = ByteBuffer.allocateDirect(this.tiles.capacity());
+    ByteBuffer source = this.tiles.duplicate();
+    source.clear();
+    copy.put(source);
+    return new OffHeapTileStorage(copy);
+  }
+}
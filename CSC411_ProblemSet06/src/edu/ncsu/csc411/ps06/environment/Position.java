@@ -11,10 +11,6 @@ package edu.ncsu.csc411.ps06.environment;
 public class Position {
   private int row; 
   private int col;
-  private Position above;
-  private Position below;
-  private Position left;
-  private Position right;
 
   /**
    * Instantiates a Position for the row, col combination
@@ -42,40 +38,26 @@ public class Position {
     return this.col;
   }
 
-  protected void setAbove(Position neighbor) {
-    this.above = neighbor;
-    neighbor.below = this;
-  }
-
-  protected void setBelow(Position neighbor) {
-    this.below = neighbor;
-    neighbor.above = this;
-  }
-
-  protected void setLeft(Position neighbor) {
-    this.left = neighbor;
-    neighbor.right = this;
-  }
-
-  protected void setRight(Position neighbor) {
-    this.right = neighbor;
-    neighbor.left = this;
-  }
-
-  protected Position getAbove() {
-    return this.above;
-  }
-
-  protected Position getBelow() {
-    return this.below;
-  }
-
-  protected Position getLeft() {
-    return this.left;
+  /**
+   * Positions are equal when they name the same [row, col]. The Environment
+   * creates Positions on demand rather than keeping one per tile, so two
+   * lookups of the same tile may return different but equal objects.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Position)) {
+      return false;
+    }
+    Position other = (Position) o;
+    return this.row == other.row && this.col == other.col;
   }
 
-  protected Position getRight() {
-    return this.right;
+  @Override
+  public int hashCode() {
+    return 31 * this.row + this.col;
   }
 
   @Override
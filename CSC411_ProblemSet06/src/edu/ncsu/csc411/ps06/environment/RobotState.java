@@ -0,0 +1,34 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.List;
+
+/**
+ * The Environment's record of a single Robot: where it is and what it is
+ * carrying. Keeping both in one object means each Robot costs a single
+ * map lookup per move.
+ */
+class RobotState {
+  /** The Robot's position in Environment.getRobots() */
+  final int slot;
+  /** The grid index of the Robot's current Position */
+  int index;
+  /** The Robot's keys, packed as described in Inventory */
+  int inventory;
+  /** One bit per grid index, set where this Robot can currently move */
+  long[] passable;
+  /** Read-only String view of inventory, created on first use */
+  private List<String> holdings;
+
+  RobotState(int slot, int index) {
+    this.slot = slot;
+    this.index = index;
+    this.inventory = Inventory.EMPTY;
+  }
+
+  List<String> getHoldings() {
+    if (this.holdings == null) {
+      this.holdings = Inventory.asList(this);
+    }
+    return this.holdings;
+  }
+}
@@ -0,0 +1,269 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The map boiled down to its rooms and the doors between them. Every cell
+ * that is not a wall, water or a door belongs to a room, which is a
+ * flood-filled region the robot can cross freely, and every door is a node
+ * of its own, linked to the rooms and doors next to it. Maps have a
+ * handful of rooms and doors, so questions about which rooms can be
+ * reached with which keys are answered on tens of nodes instead of
+ * searching thousands of cells.
+ *
+ * The graph only depends on where the walls, water and doors were when it
+ * was built. Doors that have been opened since are read from the live
+ * tiles, so it is kept until setTile changes the layout; see
+ * Environment.getRoomGraph.
+ */
+public final class RoomGraph {
+  private final Environment env;
+  private final int[] nodes;
+  private final int rooms;
+  private final int[] doorCells;
+  /* The neighbors of node n are neighbors[offsets[n]] to neighbors[offsets[n + 1] - 1] */
+  private final int[] offsets;
+  private final int[] neighbors;
+
+  /* Labels the rooms, numbers the doors after them and links each door to
+   * the nodes around it */
+  RoomGraph(Environment env) {
+    this.env = env;
+    int cells = env.getRows() * env.getCols();
+    this.nodes = new int[cells];
+    Arrays.fill(this.nodes, -1);
+    int[] queue = new int[cells];
+    int rooms = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      if (this.nodes[cell] >= 0 || !isFloor(env.getTileStatus(cell)))
+        continue;
+      int head = 0;
+      int tail = 0;
+      this.nodes[cell] = rooms;
+      queue[tail++] = cell;
+      while (head < tail) {
+        int current = queue[head++];
+        for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+          int next = env.getNeighborIndex(current, direction);
+          if (next >= 0 && this.nodes[next] < 0 && isFloor(env.getTileStatus(next))) {
+            this.nodes[next] = rooms;
+            queue[tail++] = next;
+          }
+        }
+      }
+      rooms++;
+    }
+    this.rooms = rooms;
+
+    int doors = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      if (isDoor(env.getTileStatus(cell)))
+        queue[doors++] = cell;
+    }
+    this.doorCells = Arrays.copyOf(queue, doors);
+    for (int i = 0; i < doors; i++) {
+      this.nodes[this.doorCells[i]] = rooms + i;
+    }
+
+    // Each door links both ways to whatever node is on each side of it
+    int[] degree = new int[rooms + doors + 1];
+    for (int i = 0; i < doors; i++) {
+      for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+        int next = env.getNeighborIndex(this.doorCells[i], direction);
+        if (next >= 0 && this.nodes[next] >= 0) {
+          degree[rooms + i]++;
+          degree[this.nodes[next]]++;
+        }
+      }
+    }
+    this.offsets = new int[rooms + doors + 1];
+    for (int node = 0; node < rooms + doors; node++) {
+      this.offsets[node + 1] = this.offsets[node] + degree[node];
+    }
+    this.neighbors = new int[this.offsets[rooms + doors]];
+    int[] filled = Arrays.copyOf(this.offsets, rooms + doors);
+    for (int i = 0; i < doors; i++) {
+      int door = rooms + i;
+      for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+        int next = env.getNeighborIndex(this.doorCells[i], direction);
+        if (next >= 0 && this.nodes[next] >= 0) {
+          this.neighbors[filled[door]++] = this.nodes[next];
+          this.neighbors[filled[this.nodes[next]]++] = door;
+        }
+      }
+    }
+  }
+
+  /* Colored doors and the DOOR_GOAL; shared with ComponentLabels */
+  static boolean isDoor(TileStatus status) {
+    return status == TileStatus.DOOR_GOAL || Inventory.keyFor(status) != null;
+  }
+
+  private static boolean isFloor(TileStatus status) {
+    return status != TileStatus.WALL && status != TileStatus.WATER && !isDoor(status);
+  }
+
+  /**
+   * Returns the number of rooms. Rooms are nodes 0 to getRoomCount() - 1.
+   * @return the number of rooms
+   */
+  public int getRoomCount() {
+    return this.rooms;
+  }
+
+  /**
+   * Returns the number of nodes, rooms and doors together.
+   * @return the number of nodes
+   */
+  public int getNodeCount() {
+    return this.rooms + this.doorCells.length;
+  }
+
+  /**
+   * Returns the node a cell belongs to: its room, or its own node if it
+   * is a door.
+   * @param index - the grid index
+   * @return the node, or -1 for walls and water
+   */
+  public int getNode(int index) {
+    return this.nodes[index];
+  }
+
+  /* The grid index of a door node */
+  int getDoorCell(int node) {
+    return this.doorCells[node - this.rooms];
+  }
+
+  /* The nodes linked to a node, as a new array */
+  int[] getNeighbors(int node) {
+    return Arrays.copyOfRange(this.neighbors, this.offsets[node], this.offsets[node + 1]);
+  }
+
+  /**
+   * Finds every node a Robot could get to from a cell, with the same door
+   * rules as Environment.isPassable. A cell can be reached exactly when
+   * its node is marked, so a whole batch of subgoals can then be checked
+   * in O(1) each.
+   * @param start - the grid index to start from
+   * @param inventory - the keys the Robot will be carrying
+   * @param remainingChips - the chips that will still be on the map
+   * @return whether each node can be reached, indexed by node
+   */
+  public boolean[] reachableFrom(int start, int inventory, int remainingChips) {
+    boolean[] reached = new boolean[getNodeCount()];
+    int node = this.nodes[start];
+    if (node < 0)
+      return reached;
+    int[] queue = new int[reached.length];
+    int head = 0;
+    int tail = 0;
+    reached[node] = true;
+    queue[tail++] = node;
+    while (head < tail) {
+      int current = queue[head++];
+      // Doors only lead on once the Robot can move onto them
+      if (current >= this.rooms && current != node && !Environment.isPassable(
+          this.env.getTileStatus(this.doorCells[current - this.rooms]), inventory, remainingChips))
+        continue;
+      for (int i = this.offsets[current]; i < this.offsets[current + 1]; i++) {
+        int next = this.neighbors[i];
+        if (!reached[next]) {
+          reached[next] = true;
+          queue[tail++] = next;
+        }
+      }
+    }
+    // A door counts as reached only if it can be moved onto
+    for (int i = 0; i < this.doorCells.length; i++) {
+      int door = this.rooms + i;
+      if (reached[door] && door != node
+          && !Environment.isPassable(this.env.getTileStatus(this.doorCells[i]), inventory, remainingChips))
+        reached[door] = false;
+    }
+    return reached;
+  }
+
+  /**
+   * Orders the keys on the map by when they can be collected. Starting
+   * from a cell, every key in the rooms that can be reached comes first.
+   * Then each door that the keys held can open is opened, in grid order,
+   * using up one key each as the Environment does, and the keys that this
+   * makes reachable come next. The DOOR_GOAL is only opened when nothing
+   * else can be. Keys within one round are in grid order, and keys that
+   * can never be reached this way are left out.
+   * @param start - the grid index to start from
+   * @param inventory - the keys already held
+   * @return the grid indices of the keys, in collection order
+   */
+  public int[] getKeyOrder(int start, int inventory) {
+    List<Integer> keys = new ArrayList<Integer>();
+    for (TileStatus key : new TileStatus[] {
+        TileStatus.KEY_BLUE, TileStatus.KEY_GREEN, TileStatus.KEY_RED, TileStatus.KEY_YELLOW}) {
+      for (Position p : this.env.getEnvironmentPositions().get(key)) {
+        keys.add(this.env.getIndex(p));
+      }
+    }
+    keys.sort(null);
+    int[] order = new int[keys.size()];
+    int ordered = 0;
+    boolean[] taken = new boolean[keys.size()];
+    boolean[] reached = new boolean[getNodeCount()];
+    boolean[] opened = new boolean[this.doorCells.length];
+    // Doors are queued once when reached and again when opened
+    int[] queue = new int[reached.length + this.doorCells.length];
+    int tail = 0;
+    if (this.nodes[start] < 0)
+      return order;
+    reached[this.nodes[start]] = true;
+    queue[tail++] = this.nodes[start];
+    int head = 0;
+    while (true) {
+      // Spread through the rooms and the doors that are open
+      while (head < tail) {
+        int current = queue[head++];
+        if (current >= this.rooms && current != this.nodes[start] && !opened[current - this.rooms]
+            && isDoor(this.env.getTileStatus(this.doorCells[current - this.rooms])))
+          continue;
+        for (int i = this.offsets[current]; i < this.offsets[current + 1]; i++) {
+          int next = this.neighbors[i];
+          if (!reached[next]) {
+            reached[next] = true;
+            queue[tail++] = next;
+          }
+        }
+      }
+      for (int i = 0; i < taken.length; i++) {
+        int cell = keys.get(i);
+        if (!taken[i] && reached[this.nodes[cell]]) {
+          taken[i] = true;
+          order[ordered++] = cell;
+          inventory = Inventory.add(inventory, this.env.getTileStatus(cell));
+        }
+      }
+      // Open the doors at the edge of what is reached that the keys allow
+      int before = tail;
+      int portal = -1;
+      for (int i = 0; i < this.doorCells.length; i++) {
+        TileStatus status = this.env.getTileStatus(this.doorCells[i]);
+        if (opened[i] || !reached[this.rooms + i] || !isDoor(status))
+          continue;
+        TileStatus key = Inventory.keyFor(status);
+        if (key == null) {
+          portal = i;
+        } else if (Inventory.contains(inventory, key)) {
+          inventory = Inventory.remove(inventory, key);
+          opened[i] = true;
+          queue[tail++] = this.rooms + i;
+        }
+      }
+      if (tail == before && portal >= 0) {
+        opened[portal] = true;
+        queue[tail++] = this.rooms + portal;
+      }
+      if (tail == before)
+        return Arrays.copyOf(order, ordered);
+    }
+  }
+}
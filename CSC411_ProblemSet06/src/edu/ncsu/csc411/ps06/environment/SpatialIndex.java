@@ -0,0 +1,206 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.Arrays;
+
+/**
+ * A bucket grid over the cells holding one kind of TileStatus, used to
+ * answer "which chips are closest to me?" without scanning every chip.
+ * The map is divided into square buckets of BUCKET_SIZE x BUCKET_SIZE
+ * cells, and each bucket lists the grid indices (row * cols + col) of the
+ * cells it contains. Queries search outward from the query's bucket one
+ * ring at a time and stop as soon as no farther bucket can hold a closer
+ * cell. Removing a cell only touches its own bucket. Distances are
+ * Manhattan distances, and ties are broken by grid index so the results
+ * are deterministic.
+ */
+public class SpatialIndex {
+  private static final int BUCKET_SIZE = 16;
+
+  private final int rows;
+  private final int cols;
+  private final int bucketRows;
+  private final int bucketCols;
+  private int[][] buckets;
+  private int[] bucketSizes;
+  private int size;
+
+  /**
+   * Builds an empty index for an Environment that is rows tall and
+   * columns wide. The bucket table is only allocated once a cell is
+   * added, so indices for statuses a huge map never uses stay small.
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   */
+  public SpatialIndex(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    this.bucketRows = (rows + BUCKET_SIZE - 1) / BUCKET_SIZE;
+    this.bucketCols = (cols + BUCKET_SIZE - 1) / BUCKET_SIZE;
+  }
+
+  private int bucketOf(int index) {
+    int row = index / this.cols;
+    int col = index % this.cols;
+    return (row / BUCKET_SIZE) * this.bucketCols + col / BUCKET_SIZE;
+  }
+
+  /**
+   * Returns the number of cells in the index.
+   * @return the size
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Adds a cell to the index.
+   * @param index - the cell's grid index
+   */
+  public void add(int index) {
+    if (this.buckets == null) {
+      this.buckets = new int[this.bucketRows * this.bucketCols][];
+      this.bucketSizes = new int[this.bucketRows * this.bucketCols];
+    }
+    int bucket = bucketOf(index);
+    int[] cells = this.buckets[bucket];
+    if (cells == null) {
+      cells = new int[4];
+    } else if (this.bucketSizes[bucket] == cells.length) {
+      cells = Arrays.copyOf(cells, cells.length * 2);
+    }
+    cells[this.bucketSizes[bucket]++] = index;
+    this.buckets[bucket] = cells;
+    this.size++;
+  }
+
+  /**
+   * Removes a cell from the index.
+   * @param index - the cell's grid index
+   * @return true if the cell was in the index
+   */
+  public boolean remove(int index) {
+    if (this.size == 0) {
+      return false;
+    }
+    int bucket = bucketOf(index);
+    int[] cells = this.buckets[bucket];
+    for (int i = 0; i < this.bucketSizes[bucket]; i++) {
+      if (cells[i] == index) {
+        cells[i] = cells[--this.bucketSizes[bucket]];
+        this.size--;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int distance(int index, int row, int col) {
+    return Math.abs(index / this.cols - row) + Math.abs(index % this.cols - col);
+  }
+
+  /* Orders cells by distance from (row, col), then by grid index. */
+  private boolean closer(int a, int b, int row, int col) {
+    int da = distance(a, row, col);
+    int db = distance(b, row, col);
+    return da < db || (da == db && a < b);
+  }
+
+  /**
+   * Returns the k cells closest to (row, col), nearest first.
+   * @param row - the query row
+   * @param col - the query column
+   * @param k - the maximum number of cells to return
+   * @return up to k grid indices, sorted by distance
+   */
+  public int[] nearest(int row, int col, int k) {
+    int[] best = new int[Math.min(k, this.size)];
+    if (best.length == 0) {
+      return best;
+    }
+    int found = 0;
+    int bucketRow = Math.max(0, Math.min(row / BUCKET_SIZE, this.bucketRows - 1));
+    int bucketCol = Math.max(0, Math.min(col / BUCKET_SIZE, this.bucketCols - 1));
+    int maxRing = Math.max(Math.max(bucketRow, this.bucketRows - 1 - bucketRow),
+        Math.max(bucketCol, this.bucketCols - 1 - bucketCol));
+    for (int ring = 0; ring <= maxRing; ring++) {
+      // Every cell in this ring is at least (ring - 1) * BUCKET_SIZE + 1 away
+      if (found == best.length && ring > 0
+          && distance(best[found - 1], row, col) <= (ring - 1) * BUCKET_SIZE) {
+        break;
+      }
+      for (int br = bucketRow - ring; br <= bucketRow + ring; br++) {
+        if (br < 0 || br >= this.bucketRows) {
+          continue;
+        }
+        boolean edgeRow = br == bucketRow - ring || br == bucketRow + ring;
+        int step = edgeRow ? 1 : 2 * ring;
+        for (int bc = bucketCol - ring; bc <= bucketCol + ring; bc += step) {
+          if (bc < 0 || bc >= this.bucketCols) {
+            continue;
+          }
+          int bucket = br * this.bucketCols + bc;
+          int[] cells = this.buckets[bucket];
+          for (int i = 0; i < this.bucketSizes[bucket]; i++) {
+            found = insert(best, found, cells[i], row, col);
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /* Insertion step of a bounded insertion sort; returns the new count. */
+  private int insert(int[] best, int found, int cell, int row, int col) {
+    if (found == best.length && !closer(cell, best[found - 1], row, col)) {
+      return found;
+    }
+    int i = found == best.length ? found - 1 : found++;
+    while (i > 0 && closer(cell, best[i - 1], row, col)) {
+      best[i] = best[i - 1];
+      i--;
+    }
+    best[i] = cell;
+    return found;
+  }
+
+  /**
+   * Returns every cell within a Manhattan radius of (row, col).
+   * @param row - the query row
+   * @param col - the query column
+   * @param radius - the largest distance to include
+   * @return the grid indices found, sorted by distance
+   */
+  public int[] withinRadius(int row, int col, int radius) {
+    // Collected as (distance << 32 | index) so one sort orders them
+    long[] keys = new long[0];
+    int found = 0;
+    if (this.size == 0) {
+      return new int[0];
+    }
+    int firstRow = Math.max(0, row - radius) / BUCKET_SIZE;
+    int lastRow = Math.min(this.rows - 1, row + radius) / BUCKET_SIZE;
+    int firstCol = Math.max(0, col - radius) / BUCKET_SIZE;
+    int lastCol = Math.min(this.cols - 1, col + radius) / BUCKET_SIZE;
+    for (int br = firstRow; br <= lastRow; br++) {
+      for (int bc = firstCol; bc <= lastCol; bc++) {
+        int bucket = br * this.bucketCols + bc;
+        int[] cells = this.buckets[bucket];
+        for (int i = 0; i < this.bucketSizes[bucket]; i++) {
+          int distance = distance(cells[i], row, col);
+          if (distance <= radius) {
+            if (found == keys.length) {
+              keys = Arrays.copyOf(keys, Math.max(4, found * 2));
+            }
+            keys[found++] = ((long) distance << 32) | cells[i];
+          }
+        }
+      }
+    }
+    Arrays.sort(keys, 0, found);
+    int[] result = new int[found];
+    for (int i = 0; i < found; i++) {
+      result[i] = (int) keys[i];
+    }
+    return result;
+  }
+}
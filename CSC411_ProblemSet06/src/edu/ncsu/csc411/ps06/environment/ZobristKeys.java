@@ -0,0 +1,43 @@
+package edu.ncsu.csc411.ps06.environment;
+
+/**
+ * The random keys behind Environment.getStateHash(). A classic Zobrist
+ * table would need one random number per (cell, status) pair, which is
+ * far too much memory for very large maps. Instead, each key is derived
+ * on demand by running its coordinates through the SplitMix64 finalizer.
+ * That gives the same well-mixed 64-bit values at no memory cost.
+ */
+final class ZobristKeys {
+  private static final long SEED = 0x411C5C06L;
+  private static final long TILE = 1;
+  private static final long ROBOT = 2;
+  private static final long INVENTORY = 3;
+
+  private ZobristKeys() { }
+
+  /* SplitMix64 finalizer */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static long key(long kind, long a, long b) {
+    return mix(mix(mix(SEED ^ kind) ^ a) ^ b);
+  }
+
+  /** The key for an item or door with the given status at a grid index. */
+  static long tile(int index, TileStatus status) {
+    return key(TILE, index, status.ordinal());
+  }
+
+  /** The key for the robot in a given slot standing at a grid index. */
+  static long robot(int slot, int index) {
+    return key(ROBOT, slot, index);
+  }
+
+  /** The key for the robot in a given slot holding a packed inventory. */
+  static long inventory(int slot, int inventory) {
+    return key(INVENTORY, slot, inventory);
+  }
+}
@@ -0,0 +1,243 @@
+package edu.ncsu.csc411.ps06.simulation;
+
+import edu.ncsu.csc411.ps06.agent.Pathfinder;
+import edu.ncsu.csc411.ps06.agent.Robot;
+import edu.ncsu.csc411.ps06.environment.ChunkedTileStorage;
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.OffHeapTileStorage;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+import edu.ncsu.csc411.ps06.utils.MapGenerator;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * A small benchmark harness for the simulation. Each scenario builds
+ * a synthetic map with MapGenerator, runs a number of warm-up ticks so
+ * the JIT has compiled the hot paths, and then reports the number of
+ * Environment.updateEnvironment() calls per second over the measured ticks.
+ * Feel free to modify the class variables to adjust the scenarios.
+ */
+public class BenchmarkSimulation {
+	private static int WARMUP_TICKS = 50;
+	private static int MEASURED_TICKS = 200;
+	private static int[] SIZES = {100, 1000};
+	private static long SEED = 411;
+	private static int[] ROBOT_COUNTS = {1, 8, 64, 512};
+	private static int MULTI_ROBOT_SIZE = 600;
+	private static int MULTI_ROBOT_TICKS = 20;
+	private static int SPARSE_SIZE = 10000;
+	private static int SPARSE_ROOM = 200;
+	private static String[] PLANNER_MAPS = {"maps/public/map04.txt", "maps/public/map08.txt", "maps/public/map10.txt"};
+	private static int MAX_MOVES = 1000;
+	private static int NUM_PUBLIC_MAPS = 10;
+	private static String[] DOOR_MAPS = {"maps/public/map02.txt", "maps/public/map03.txt", "maps/public/map04.txt",
+			"maps/public/map10.txt"};
+	private static int[] VAULT_SIZES = {100, 300};
+	private static int[] CANDIDATE_COUNTS = {1, 4};
+
+	/**
+	 * Runs the given number of ticks on the environment and returns
+	 * the observed throughput.
+	 * @param env - the Environment to update
+	 * @param ticks - the number of ticks to time
+	 * @return ticks per second
+	 */
+	public static double ticksPerSecond(Environment env, int ticks) {
+		long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			env.updateEnvironment();
+		}
+		long elapsed = System.nanoTime() - start;
+		return ticks / (elapsed / 1e9);
+	}
+
+	// Benchmarks a single robot collecting chips on square maps of each size
+	private static void benchmarkMapSizes() {
+		for (int size : SIZES) {
+			String[][] map = MapGenerator.generate(size, size, size, 1, SEED);
+			Environment env = new Environment(map);
+			ticksPerSecond(env, WARMUP_TICKS);
+			double rate = ticksPerSecond(env, MEASURED_TICKS);
+			System.out.printf("%dx%d map, %d chips: %.1f ticks/sec\n", size, size, size, rate);
+		}
+	}
+
+	// Benchmarks how quickly the Robot's A* search expands nodes on the largest map
+	private static void benchmarkExpansionRate() {
+		int size = SIZES[SIZES.length - 1];
+		String[][] map = MapGenerator.generate(size, size, size, 1, SEED);
+		Environment env = new Environment(map);
+		Robot robot = env.getRobots().get(0);
+		ticksPerSecond(env, WARMUP_TICKS);
+		long expanded = robot.getNodesExpanded();
+		long start = System.nanoTime();
+		ticksPerSecond(env, MEASURED_TICKS);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		expanded = robot.getNodesExpanded() - expanded;
+		System.out.printf("%dx%d map: %d A* expansions, %.0f expansions/sec\n", size, size, expanded, expanded / seconds);
+	}
+
+	// Compares per-tick wall time of sequential and parallel robot decisions
+	private static void benchmarkRobotCounts() {
+		for (int robots : ROBOT_COUNTS) {
+			for (boolean parallel : new boolean[] {false, true}) {
+				String[][] map = MapGenerator.generate(MULTI_ROBOT_SIZE, MULTI_ROBOT_SIZE, MULTI_ROBOT_SIZE, robots, SEED);
+				Environment env = new Environment(map);
+				env.setParallelDecisions(parallel);
+				ticksPerSecond(env, MULTI_ROBOT_TICKS / 4);
+				double rate = ticksPerSecond(env, MULTI_ROBOT_TICKS);
+				String mode = parallel ? "parallel" : "sequential";
+				System.out.printf("%d robots, %s decisions: %.2f ms/tick\n", robots, mode, 1000 / rate);
+			}
+		}
+	}
+
+	// Measures per-tick time when every robot only has to walk to the portal,
+	// which they all do by reading one shared DistanceField
+	private static void benchmarkGoalPhase() {
+		for (int robots : ROBOT_COUNTS) {
+			String[][] map = MapGenerator.generate(MULTI_ROBOT_SIZE, MULTI_ROBOT_SIZE, 0, robots, SEED);
+			Environment env = new Environment(map);
+			ticksPerSecond(env, MULTI_ROBOT_TICKS / 4);
+			double rate = ticksPerSecond(env, MULTI_ROBOT_TICKS);
+			System.out.printf("%d robots walking to the portal: %.2f ms/tick, %.4f ms/robot\n", robots, 1000 / rate,
+					1000 / rate / robots);
+		}
+	}
+
+	// Compares the default heap storage with off-heap storage on the largest map
+	private static void benchmarkOffHeapStorage() {
+		int size = SIZES[SIZES.length - 1];
+		String[][] map = MapGenerator.generate(size, size, size, 1, SEED);
+		for (boolean offHeap : new boolean[] {false, true}) {
+			Environment env = offHeap
+					? new Environment(map, new OffHeapTileStorage(size, size, TileStatus.BLANK))
+					: new Environment(map);
+			ticksPerSecond(env, WARMUP_TICKS);
+			double rate = ticksPerSecond(env, MEASURED_TICKS);
+			String storage = offHeap ? "off-heap" : "heap";
+			System.out.printf("%dx%d map, %s storage: %.1f ticks/sec\n", size, size, storage, rate);
+		}
+	}
+
+	// Compares the moves and planning time of the greedy and optimal planners
+	private static void benchmarkPlanners() {
+		for (String file : PLANNER_MAPS) {
+			for (boolean optimal : new boolean[] {false, true}) {
+				Environment env = new Environment(MapManager.loadMap(file));
+				Robot robot = env.getRobots().get(0);
+				robot.setOptimalPlanning(optimal);
+				long start = System.nanoTime();
+				int moves = 0;
+				while (!env.goalConditionMet() && moves < MAX_MOVES) {
+					env.updateEnvironment();
+					moves++;
+				}
+				double ms = (System.nanoTime() - start) / 1e6;
+				String planner = optimal ? "optimal" : "greedy";
+				System.out.printf("%s, %s planner: %d moves, %d expansions, %.1f ms\n", file, planner, moves,
+						robot.getNodesExpanded(), ms);
+			}
+		}
+	}
+
+	// Runs one environment with a pathfinder until the goal or MAX_MOVES
+	private static void runPathfinder(String name, Environment env, Pathfinder pathfinder) {
+		Robot robot = env.getRobots().get(0);
+		robot.setPathfinder(pathfinder);
+		long start = System.nanoTime();
+		int moves = 0;
+		while (!env.goalConditionMet() && moves < MAX_MOVES) {
+			env.updateEnvironment();
+			moves++;
+		}
+		double ms = (System.nanoTime() - start) / 1e6;
+		System.out.printf("%s, %s: %d moves, %d expansions (%.1f per tick), %.1f ms\n", name, pathfinder, moves,
+				robot.getNodesExpanded(), (double) robot.getNodesExpanded() / moves, ms);
+	}
+
+	// Compares expansions and latency of each pathfinder on the public and synthetic maps
+	private static void benchmarkPathfinders() {
+		for (Pathfinder pathfinder : Pathfinder.values()) {
+			// Warm up so the first map is not timed with cold code
+			runPathfinder("warm-up", new Environment(MapManager.loadMap("maps/public/map06.txt")), pathfinder);
+		}
+		for (int map = 1; map <= NUM_PUBLIC_MAPS; map++) {
+			String file = String.format("maps/public/map%02d.txt", map);
+			for (Pathfinder pathfinder : Pathfinder.values()) {
+				runPathfinder(file, new Environment(MapManager.loadMap(file)), pathfinder);
+			}
+		}
+		for (int size : SIZES) {
+			String[][] map = MapGenerator.generate(size, size, size / 10, 1, SEED);
+			for (Pathfinder pathfinder : Pathfinder.values()) {
+				runPathfinder(size + "x" + size, new Environment(map), pathfinder);
+			}
+		}
+	}
+
+	// Runs one environment with a number of subgoals searched at once until the goal or MAX_MOVES
+	private static void runCandidates(String name, Environment env, int candidates) {
+		Robot robot = env.getRobots().get(0);
+		robot.setParallelCandidates(candidates);
+		long start = System.nanoTime();
+		int moves = 0;
+		while (!env.goalConditionMet() && moves < MAX_MOVES) {
+			env.updateEnvironment();
+			moves++;
+		}
+		double ms = (System.nanoTime() - start) / 1e6;
+		System.out.printf("%s, %d at once: %d moves, %d expansions, %.1f ms\n", name, candidates, moves,
+				robot.getNodesExpanded(), ms);
+	}
+
+	// Compares searching subgoals one at a time and in parallel on maps full of keys and doors
+	private static void benchmarkParallelCandidates() {
+		for (int candidates : CANDIDATE_COUNTS) {
+			runCandidates("warm-up", new Environment(MapManager.loadMap("maps/public/map04.txt")), candidates);
+		}
+		for (String file : DOOR_MAPS) {
+			for (int candidates : CANDIDATE_COUNTS) {
+				runCandidates(file, new Environment(MapManager.loadMap(file)), candidates);
+			}
+		}
+		for (int size : VAULT_SIZES) {
+			String[][] map = MapGenerator.generateVaults(size, size, size / 10, size / 10, SEED);
+			for (int candidates : CANDIDATE_COUNTS) {
+				runCandidates(size + "x" + size + " vaults", new Environment(map), candidates);
+			}
+		}
+	}
+
+	// Benchmarks a huge map of walls with one carved room, stored in chunks
+	private static void benchmarkSparseMap() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long before = runtime.totalMemory() - runtime.freeMemory();
+		ChunkedTileStorage storage = new ChunkedTileStorage(SPARSE_SIZE, SPARSE_SIZE, TileStatus.WALL);
+		Environment env = new Environment(SPARSE_SIZE, SPARSE_SIZE, storage);
+		String[][] room = MapGenerator.generate(SPARSE_ROOM, SPARSE_ROOM, SPARSE_ROOM, 1, SEED);
+		for (int row = 0; row < SPARSE_ROOM; row++) {
+			for (int col = 0; col < SPARSE_ROOM; col++) {
+				env.setTile(row, col, room[row][col]);
+			}
+		}
+		System.gc();
+		long used = runtime.totalMemory() - runtime.freeMemory() - before;
+		ticksPerSecond(env, WARMUP_TICKS);
+		double rate = ticksPerSecond(env, MEASURED_TICKS);
+		System.out.printf("%dx%d sparse map, %d chunks materialized, %.1f MB: %.1f ticks/sec\n", SPARSE_SIZE, SPARSE_SIZE,
+				storage.getMaterializedChunks(), used / 1e6, rate);
+	}
+
+	public static void main(String[] args) {
+		benchmarkMapSizes();
+		benchmarkExpansionRate();
+		benchmarkRobotCounts();
+		benchmarkGoalPhase();
+		benchmarkSparseMap();
+		benchmarkOffHeapStorage();
+		benchmarkPlanners();
+		benchmarkPathfinders();
+		benchmarkParallelCandidates();
+	}
+}
@@ -25,6 +25,14 @@ public class RunSimulation {
 		this.env = new Environment(map);
 		RunSimulation.ITERATIONS = iterations;
 		RunSimulation.DEBUG = debug;
+		// In debug mode, print every change to the world as an audit log
+		if (debug) {
+			this.env.addListener(event -> {
+				if (RunSimulation.DEBUG) {
+					System.out.println(event);
+				}
+			});
+		}
 	}
 	
 	public void disableSimErrors() {
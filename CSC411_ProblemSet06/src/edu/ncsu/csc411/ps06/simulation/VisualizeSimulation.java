@@ -11,6 +11,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -300,7 +301,7 @@ class InventoryPanel extends JPanel {
 	
 	public void updateHoldings() {
 		for(Robot robot : robots) {
-			ArrayList<String> inventory = env.getRobotHoldings(robot);
+			List<String> inventory = env.getRobotHoldings(robot);
 			for(Entry<String, Boolean> entry : this.itemStatus.entrySet()) {
 				String key = entry.getKey();
 				if (inventory.contains(key)) {
@@ -324,7 +325,7 @@ class InventoryPanel extends JPanel {
 		
 		// Paint Item Tiles
 		for(Robot robot : robots) {
-			ArrayList<String> inventory = env.getRobotHoldings(robot);
+			List<String> inventory = env.getRobotHoldings(robot);
 			int count = 0;
 			for(Entry<String, Boolean> entry : this.itemStatus.entrySet()) {
 				String key = entry.getKey();
@@ -0,0 +1,115 @@
+package edu.ncsu.csc411.ps06.utils;
+
+import java.util.Random;
+
+/**
+ * Builds synthetic maps in the same String[][] format that MapManager
+ * produces, so that very large environments can be created for
+ * benchmarking without having to store them in map/.
+ */
+public class MapGenerator {
+  /**
+   * Generates an open rows x columns map. The robots start along the top
+   * row, the portal sits in the bottom-right corner behind a DOOR_GOAL,
+   * and the chips are scattered over the remaining blank tiles.
+   *
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   * @param chips - the number of chips to scatter
+   * @param robots - the number of robots (ST tiles) to place
+   * @param seed - the seed for the random chip placement
+   * @return the generated map
+   */
+	public static String[][] generate(int rows, int cols, int chips, int robots, long seed) {
+		if (robots > cols || chips > (rows - 2) * cols - robots) {
+			throw new IllegalArgumentException("Map too small - " + rows + "x" + cols);
+		}
+		String[][] map = new String[rows][cols];
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				map[row][col] = "BL";
+			}
+		}
+		for (int i = 0; i < robots; i++) {
+			map[0][i] = "ST";
+		}
+		map[rows - 1][cols - 1] = "PL";
+		map[rows - 1][cols - 2] = "DP";
+		map[rows - 2][cols - 1] = "WL";
+		map[rows - 2][cols - 2] = "WL";
+
+		// Scatter the chips over the blank tiles, away from the portal corner
+		Random random = new Random(seed);
+		int placed = 0;
+		while (placed < chips) {
+			int row = random.nextInt(rows - 2);
+			int col = random.nextInt(cols);
+			if (map[row][col].equals("BL")) {
+				map[row][col] = "CH";
+				placed++;
+			}
+		}
+		return map;
+	}
+
+  /**
+   * Generates a map like generate, with locked vaults added on top. Each
+   * vault is a 7x7 walled room with a colored door in its top wall, and
+   * keeps the chips that were scattered inside it. A key for each vault's
+   * door is dropped somewhere outside the vaults, so the map can be solved,
+   * but many of the closest chips are behind doors the robot cannot open yet.
+   *
+   * @param rows - the number of rows
+   * @param cols - the number of columns
+   * @param chips - the number of chips to scatter
+   * @param vaults - the number of vaults to build
+   * @param seed - the seed for the random placement
+   * @return the generated map
+   */
+	public static String[][] generateVaults(int rows, int cols, int chips, int vaults, long seed) {
+		String[][] map = generate(rows, cols, chips, 1, seed);
+		boolean[][] inVault = new boolean[rows][cols];
+		String[] doors = {"DG", "DB", "DY", "DR"};
+		String[] keys = {"KG", "KB", "KY", "KR"};
+		Random random = new Random(seed + 1);
+		for (int i = 0; i < vaults; i++) {
+			// Keep clear of the start row and the portal corner
+			int top = 1 + random.nextInt(rows - 10);
+			int left = random.nextInt(cols - 7);
+			if (overlapsVault(inVault, top, left)) {
+				continue;
+			}
+			for (int row = top; row < top + 7; row++) {
+				for (int col = left; col < left + 7; col++) {
+					inVault[row][col] = true;
+					if (row == top || row == top + 6 || col == left || col == left + 6) {
+						map[row][col] = "WL";
+					}
+				}
+			}
+			map[top][left + 3] = doors[i % doors.length];
+			while (true) {
+				int row = random.nextInt(rows - 2);
+				int col = random.nextInt(cols);
+				if (!inVault[row][col] && map[row][col].equals("BL")) {
+					map[row][col] = keys[i % keys.length];
+					break;
+				}
+			}
+		}
+		return map;
+	}
+
+	private static boolean overlapsVault(boolean[][] inVault, int top, int left) {
+		// One cell of space around each vault keeps every door reachable
+		for (int row = Math.max(0, top - 1); row < Math.min(inVault.length, top + 8); row++) {
+			for (int col = Math.max(0, left - 1); col < Math.min(inVault[row].length, left + 8); col++) {
+				if (inVault[row][col]) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
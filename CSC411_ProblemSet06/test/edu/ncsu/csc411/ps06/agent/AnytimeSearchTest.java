@@ -0,0 +1,199 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Inventory;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+import edu.ncsu.csc411.ps06.utils.MapGenerator;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks AnytimeSearch against breadth-first search: the weight reported
+ * by getSolvedInflation bounds the length of the path followed, the last
+ * search finds a shortest path, and a deadline that has already passed
+ * still yields a step.
+ */
+public class AnytimeSearchTest {
+	private final int NUM_MAPS = 10;
+	private final int NUM_LARGE_MAPS = 3;
+	private final int LARGE_SIZE = 60;
+	private final int NUM_QUERIES = 40; // Random start and goal pairs per map
+	private final long SEED = 411;
+	private final TileStatus[] KEYS = {TileStatus.KEY_BLUE, TileStatus.KEY_GREEN, TileStatus.KEY_RED, TileStatus.KEY_YELLOW};
+
+	/* A deadline that has already passed, so each call only gets the few
+	 * expansions made before the clock is first read */
+	private final long PAST = System.nanoTime() - 1;
+	private final long FUTURE = Long.MAX_VALUE;
+
+	private ArrayList<Environment> maps() {
+		ArrayList<Environment> maps = new ArrayList<>();
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			maps.add(new Environment(MapManager.loadMap(String.format("maps/public/map%02d.txt", map))));
+		}
+		for (int map = 0; map < NUM_LARGE_MAPS; map++) {
+			maps.add(new Environment(MapGenerator.generateVaults(LARGE_SIZE, LARGE_SIZE, 20, 4, SEED + map)));
+		}
+		return maps;
+	}
+
+	/* Breadth-first distances from start for a robot with the given keys, -1 where unreachable */
+	private int[] bfs(Environment env, int start, int inventory, int remainingChips) {
+		int[] distance = new int[env.getRows() * env.getCols()];
+		Arrays.fill(distance, -1);
+		distance[start] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(start);
+		while (!queue.isEmpty()) {
+			int current = queue.poll();
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = env.getNeighborIndex(current, direction);
+				if (next >= 0 && distance[next] < 0
+						&& Environment.isPassable(env.getTileStatus(next), inventory, remainingChips)) {
+					distance[next] = distance[current] + 1;
+					queue.add(next);
+				}
+			}
+		}
+		return distance;
+	}
+
+	/* The cells a robot with no keys could stand on */
+	private ArrayList<Integer> openCells(Environment env) {
+		ArrayList<Integer> open = new ArrayList<>();
+		for (int cell = 0; cell < env.getRows() * env.getCols(); cell++) {
+			if (Environment.isPassable(env.getTileStatus(cell), 0, 0))
+				open.add(cell);
+		}
+		return open;
+	}
+
+	private int randomInventory(Random random) {
+		int inventory = 0;
+		for (TileStatus key : KEYS) {
+			if (random.nextBoolean())
+				inventory = Inventory.add(inventory, key);
+		}
+		return inventory;
+	}
+
+	private void assertNeighbor(Environment env, int from, int to, int inventory, int remainingChips, String msg) {
+		int rowStep = Math.abs(to / env.getCols() - from / env.getCols());
+		int colStep = Math.abs(to % env.getCols() - from % env.getCols());
+		assertEquals(1, rowStep + colStep, msg + " moves one cell");
+		assertTrue(Environment.isPassable(env.getTileStatus(to), inventory, remainingChips),
+				msg + " steps onto a cell it can pass");
+	}
+
+	/**
+	 * Searches a little at a time until the first search finishes, then
+	 * walks the path from there, still searching a little at each step.
+	 * The walk is never longer than getSolvedInflation tenths times the
+	 * shortest path, and unreachable goals give no step once solved.
+	 */
+	@Test
+	public void testSolvedInflationBoundsPath() {
+		Random random = new Random(SEED);
+		for (Environment env : maps()) {
+			int cells = env.getRows() * env.getCols();
+			ArrayList<Integer> open = openCells(env);
+			AnytimeSearch search = null;
+			for (int query = 0; query < NUM_QUERIES; query++) {
+				int start = open.get(random.nextInt(open.size()));
+				int goal = open.get(random.nextInt(open.size()));
+				int inventory = randomInventory(random);
+				int remainingChips = random.nextInt(2);
+				String msg = String.format("%dx%d map from %d to %d", env.getRows(), env.getCols(), start, goal);
+				// Half the queries reuse the last search through setGoal
+				if (search == null || random.nextBoolean()) {
+					search = new AnytimeSearch(env, goal);
+				} else {
+					search.setGoal(goal);
+				}
+				int distance = bfs(env, start, inventory, remainingChips)[goal];
+
+				int step = search.nextStep(start, inventory, remainingChips, PAST);
+				if (start == goal) {
+					assertEquals(-1, step, msg + " is at the goal");
+					continue;
+				}
+				for (int call = 0; call < cells && search.getSolvedInflation() == 0; call++) {
+					step = search.nextStep(start, inventory, remainingChips, PAST);
+				}
+				int inflation = search.getSolvedInflation();
+				assertTrue(inflation >= 10 && inflation <= AnytimeSearch.START_INFLATION, msg + " solved, weight " + inflation);
+				if (distance < 0) {
+					assertEquals(-1, step, msg + " has no step");
+					continue;
+				}
+
+				int moves = 0;
+				for (int cell = start; cell != goal; moves++) {
+					assertTrue(moves < cells, msg + " reaches the goal");
+					int next = search.nextStep(cell, inventory, remainingChips, PAST);
+					assertNeighbor(env, cell, next, inventory, remainingChips, msg);
+					cell = next;
+				}
+				assertTrue(moves * 10 <= inflation * distance,
+						msg + ": " + moves + " moves, shortest " + distance + ", weight " + inflation);
+			}
+		}
+	}
+
+	/**
+	 * Given all the time it needs, the search lowers the weight to 1 and
+	 * steps along a shortest path.
+	 */
+	@Test
+	public void testFinalSearchIsShortest() {
+		Random random = new Random(SEED);
+		for (Environment env : maps()) {
+			ArrayList<Integer> open = openCells(env);
+			for (int query = 0; query < NUM_QUERIES; query++) {
+				int start = open.get(random.nextInt(open.size()));
+				int goal = open.get(random.nextInt(open.size()));
+				int inventory = randomInventory(random);
+				int remainingChips = random.nextInt(2);
+				String msg = String.format("%dx%d map from %d to %d", env.getRows(), env.getCols(), start, goal);
+				AnytimeSearch search = new AnytimeSearch(env, goal);
+				int distance = bfs(env, start, inventory, remainingChips)[goal];
+				int step = search.nextStep(start, inventory, remainingChips, FUTURE);
+				if (start == goal) {
+					assertEquals(-1, step, msg + " is at the goal");
+					continue;
+				}
+				assertEquals(10, search.getSolvedInflation(), msg + " finishes at weight 1");
+				if (distance < 0) {
+					assertEquals(-1, step, msg + " has no step");
+					continue;
+				}
+				assertNeighbor(env, start, step, inventory, remainingChips, msg);
+				assertEquals(distance - 1, bfs(env, step, inventory, remainingChips)[goal], msg + " steps along a shortest path");
+			}
+		}
+	}
+
+	/**
+	 * With a deadline that has already passed and the goal too far away
+	 * for the first few expansions to reach the robot, the search still
+	 * returns a step: the open neighbor closest to the goal.
+	 */
+	@Test
+	public void testPastDeadlineStillSteps() {
+		Environment env = new Environment(LARGE_SIZE, LARGE_SIZE);
+		int goal = LARGE_SIZE * LARGE_SIZE - 1;
+		AnytimeSearch search = new AnytimeSearch(env, goal);
+		int step = search.nextStep(0, 0, 0, PAST);
+		assertEquals(0, search.getSolvedInflation(), "No search has finished");
+		assertTrue(step == 1 || step == LARGE_SIZE, "A step towards the goal: " + step);
+	}
+}
@@ -0,0 +1,148 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.RandomPlay;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+
+/**
+ * Checks that D* Lite, repairing its search as the robot moves, keys are
+ * picked up, doors open and undo puts them back, always steps along a
+ * shortest path found by breadth-first search.
+ */
+public class DStarLiteTest {
+	private final int NUM_ACTIONS = 500; // Random actions per map
+	private final int NUM_GOALS = 4; // Goals kept searches for, the portal and random cells
+	private final int RETARGET_EVERY = 25; // Actions between goals of the recycled search
+	private final long SEED = 411;
+
+	/* The searches for the map being played, one per goal, and one that is
+	 * pointed at the next goal every RETARGET_EVERY checks */
+	private Environment env;
+	private int[] goals;
+	private DStarLite[] searches;
+	private DStarLite recycled;
+	private int recycledGoal;
+	private int checks;
+	/* The keys and doors seen at the last check, to count the changes covered */
+	private int lastInventory;
+	private int lastDoors;
+	private int inventoryChanges;
+	private int doorChanges;
+
+	/* Breadth-first distances from start for a robot with the given keys, -1 where unreachable */
+	private int[] bfs(Environment env, int start, int inventory, int remainingChips) {
+		int[] distance = new int[env.getRows() * env.getCols()];
+		Arrays.fill(distance, -1);
+		distance[start] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(start);
+		while (!queue.isEmpty()) {
+			int current = queue.poll();
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = env.getNeighborIndex(current, direction);
+				if (next >= 0 && distance[next] < 0
+						&& Environment.isPassable(env.getTileStatus(next), inventory, remainingChips)) {
+					distance[next] = distance[current] + 1;
+					queue.add(next);
+				}
+			}
+		}
+		return distance;
+	}
+
+	private int countDoors(Environment env) {
+		int doors = 0;
+		for (TileStatus door : new TileStatus[] {TileStatus.DOOR_BLUE, TileStatus.DOOR_GREEN, TileStatus.DOOR_RED,
+				TileStatus.DOOR_YELLOW, TileStatus.DOOR_GOAL}) {
+			doors += env.getEnvironmentPositions().get(door).size();
+		}
+		return doors;
+	}
+
+	/* The step must be -1 exactly when the goal is reached or cut off, and
+	 * otherwise one move closer to the goal by breadth-first search */
+	private void assertShortestStep(int step, int start, int goal, int inventory, int remainingChips, String msg) {
+		int distance = bfs(this.env, start, inventory, remainingChips)[goal];
+		if (start == goal || distance < 0) {
+			assertEquals(-1, step, msg + " has no step");
+			return;
+		}
+		assertTrue(step >= 0, msg + " takes a step");
+		int[] onward = bfs(this.env, step, inventory, remainingChips);
+		assertTrue(Environment.isPassable(this.env.getTileStatus(step), inventory, remainingChips),
+				msg + " steps onto a cell it can pass");
+		assertEquals(distance - 1, onward[goal], msg + " steps along a shortest path");
+	}
+
+	private void check(Environment env, Robot robot, String msg) {
+		int start = env.getIndex(env.getRobotPosition(robot));
+		int inventory = env.getRobotInventory(robot);
+		int remainingChips = env.getNumRemainingChips();
+		if (env != this.env) {
+			// A new map: the portal and a few random open cells are the goals
+			this.env = env;
+			Random random = new Random(SEED);
+			ArrayList<Integer> open = new ArrayList<>();
+			for (int cell = 0; cell < env.getRows() * env.getCols(); cell++) {
+				TileStatus status = env.getTileStatus(cell);
+				if (status != TileStatus.WALL && status != TileStatus.WATER)
+					open.add(cell);
+			}
+			this.goals = new int[NUM_GOALS];
+			this.goals[0] = env.getIndex(env.getEnvironmentPositions().get(TileStatus.GOAL).get(0));
+			this.searches = new DStarLite[NUM_GOALS];
+			for (int i = 0; i < NUM_GOALS; i++) {
+				if (i > 0)
+					this.goals[i] = open.get(random.nextInt(open.size()));
+				this.searches[i] = new DStarLite(env, this.goals[i], start, inventory, remainingChips);
+			}
+			this.recycled = new DStarLite(env, this.goals[0], start, inventory, remainingChips);
+			this.recycledGoal = 0;
+			this.checks = 0;
+			this.lastInventory = inventory;
+			this.lastDoors = countDoors(env);
+		}
+		if (inventory != this.lastInventory)
+			this.inventoryChanges++;
+		if (countDoors(env) != this.lastDoors)
+			this.doorChanges++;
+		this.lastInventory = inventory;
+		this.lastDoors = countDoors(env);
+
+		for (int i = 0; i < NUM_GOALS; i++) {
+			int step = this.searches[i].nextStep(start, inventory, remainingChips);
+			assertShortestStep(step, start, this.goals[i], inventory, remainingChips, msg + " towards goal " + i);
+		}
+		if (++this.checks % RETARGET_EVERY == 0) {
+			this.recycledGoal = (this.recycledGoal + 1) % NUM_GOALS;
+			this.recycled.setGoal(this.goals[this.recycledGoal], start, inventory, remainingChips);
+		}
+		int step = this.recycled.nextStep(start, inventory, remainingChips);
+		assertShortestStep(step, start, this.goals[this.recycledGoal], inventory, remainingChips,
+				msg + " towards goal " + this.recycledGoal + " after setGoal");
+	}
+
+	/**
+	 * Plays random moves on every public map, undoing some, and checks the
+	 * next step of searches kept since the start of the map, and of one
+	 * search pointed at a new goal every so often, against breadth-first
+	 * search. The moves must pick up keys and open doors, so that the
+	 * repairs for changed tiles and changed keys are both exercised.
+	 */
+	@Test
+	public void testRepairsMatchBfs() {
+		RandomPlay.play(NUM_ACTIONS, this::check);
+		assertTrue(this.inventoryChanges > 0, "Keys were picked up or put back: " + this.inventoryChanges);
+		assertTrue(this.doorChanges > 0, "Doors were opened or put back: " + this.doorChanges);
+	}
+}
@@ -0,0 +1,168 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.Action;
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Inventory;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+import edu.ncsu.csc411.ps06.utils.MapGenerator;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks HierarchicalPathfinder against breadth-first search, and that
+ * opening or closing a door only searches the cluster holding it again.
+ */
+public class HierarchicalPathfinderTest {
+	private final int NUM_MAPS = 10;
+	private final int NUM_LARGE_MAPS = 4;
+	private final int LARGE_SIZE = 100;
+	private final int NUM_QUERIES = 200; // Random start and goal pairs per map
+	private final long SEED = 411;
+	private final TileStatus[] KEYS = {TileStatus.KEY_BLUE, TileStatus.KEY_GREEN, TileStatus.KEY_RED, TileStatus.KEY_YELLOW};
+
+	private int clusterOf(Environment env, int cell) {
+		int clusterCols = (env.getCols() + HierarchicalPathfinder.CLUSTER_SIZE - 1) / HierarchicalPathfinder.CLUSTER_SIZE;
+		return cell / env.getCols() / HierarchicalPathfinder.CLUSTER_SIZE * clusterCols
+				+ cell % env.getCols() / HierarchicalPathfinder.CLUSTER_SIZE;
+	}
+
+	/* Breadth-first parents from start, -2 where there is no path */
+	private int[] bfs(Environment env, int start, int inventory, int remainingChips) {
+		int[] parent = new int[env.getRows() * env.getCols()];
+		Arrays.fill(parent, -2);
+		parent[start] = -1;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(start);
+		while (!queue.isEmpty()) {
+			int current = queue.poll();
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = env.getNeighborIndex(current, direction);
+				if (next >= 0 && parent[next] == -2
+						&& Environment.isPassable(env.getTileStatus(next), inventory, remainingChips)) {
+					parent[next] = current;
+					queue.add(next);
+				}
+			}
+		}
+		return parent;
+	}
+
+	/* Random queries with random keys and chip counts. Reachability must
+	 * match breadth-first search, and each path must be walkable and within
+	 * CLUSTER_SIZE - 2 cells per cluster crossing of a shortest path. */
+	private void assertWithinBound(Environment env, Random random, String name) {
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(env);
+		ArrayList<Integer> open = new ArrayList<>();
+		for (int cell = 0; cell < env.getRows() * env.getCols(); cell++) {
+			TileStatus status = env.getTileStatus(cell);
+			if (status != TileStatus.WALL && status != TileStatus.WATER && Inventory.keyFor(status) == null
+					&& status != TileStatus.DOOR_GOAL)
+				open.add(cell);
+		}
+		for (int query = 0; query < NUM_QUERIES; query++) {
+			int start = open.get(random.nextInt(open.size()));
+			int goal = open.get(random.nextInt(open.size()));
+			if (start == goal)
+				continue;
+			int inventory = 0;
+			for (TileStatus key : KEYS) {
+				if (random.nextBoolean())
+					inventory = Inventory.add(inventory, key);
+			}
+			int remainingChips = random.nextInt(2);
+			String msg = String.format("%s from %d to %d with keys %d and %d chips", name, start, goal, inventory,
+					remainingChips);
+			int[] parent = bfs(env, start, inventory, remainingChips);
+			int[] path = hierarchy.findPath(start, goal, inventory, remainingChips);
+			if (parent[goal] == -2) {
+				assertNull(path, msg + " has no path");
+				continue;
+			}
+			assertTrue(path != null, msg + " finds a path");
+			int shortest = 0;
+			int crossings = 0;
+			for (int cell = goal; parent[cell] >= 0; cell = parent[cell]) {
+				shortest++;
+				if (clusterOf(env, cell) != clusterOf(env, parent[cell]))
+					crossings++;
+			}
+			int bound = shortest + (HierarchicalPathfinder.CLUSTER_SIZE - 2) * crossings;
+			assertTrue(path.length - 1 >= shortest && path.length - 1 <= bound,
+					msg + ": " + (path.length - 1) + " moves, shortest " + shortest + ", bound " + bound);
+			assertEquals(start, path[0], msg + " starts at the start");
+			assertEquals(goal, path[path.length - 1], msg + " ends at the goal");
+			for (int i = 1; i < path.length; i++) {
+				int rowStep = Math.abs(path[i] / env.getCols() - path[i - 1] / env.getCols());
+				int colStep = Math.abs(path[i] % env.getCols() - path[i - 1] % env.getCols());
+				assertEquals(1, rowStep + colStep, msg + " moves one cell at a time");
+				assertTrue(Environment.isPassable(env.getTileStatus(path[i]), inventory, remainingChips),
+						msg + " only crosses cells it can pass");
+			}
+		}
+	}
+
+	/**
+	 * On the public maps and on larger maps with locked vaults, paths are
+	 * found exactly when there is one, and are never longer than the bound
+	 * in the HierarchicalPathfinder documentation.
+	 */
+	@Test
+	public void testPathsWithinBound() {
+		Random random = new Random(SEED);
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			Environment env = new Environment(MapManager.loadMap(String.format("maps/public/map%02d.txt", map)));
+			assertWithinBound(env, random, String.format("Map %02d", map));
+		}
+		for (int map = 0; map < NUM_LARGE_MAPS; map++) {
+			Environment env = new Environment(MapGenerator.generateVaults(LARGE_SIZE, LARGE_SIZE, 40, 8, SEED + map));
+			assertWithinBound(env, random, "Vaults " + map);
+		}
+	}
+
+	/**
+	 * Picking up a key searches no cluster again, and opening a door, or an
+	 * undo closing it, only searches the cluster holding that door.
+	 */
+	@Test
+	public void testRefreshesOnlyTouchedClusters() {
+		// Two rows of three clusters, with a blue door in the first and one in the last
+		int size = HierarchicalPathfinder.CLUSTER_SIZE;
+		Environment env = new Environment(2 * size, 3 * size);
+		String[] corridor = {"ST", "KB", "BL", "DB"};
+		for (int col = 0; col < corridor.length; col++) {
+			env.setTile(0, col, corridor[col]);
+		}
+		env.setTile(2 * size - 1, 3 * size - 1, "DB");
+		Robot robot = env.getRobots().get(0);
+		HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(env);
+		int door = 3;
+		assertEquals(6, hierarchy.getClusterRefreshes(), "Every cluster is searched when built");
+
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		int inventory = env.getRobotInventory(robot);
+		assertTrue(hierarchy.findPath(0, door, inventory, 0) != null, "Path to the door with its key");
+		assertEquals(6, hierarchy.getClusterRefreshes(), "Picking up a key searches no cluster");
+
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		int record = env.applyAction(robot, Action.MOVE_RIGHT);
+		assertEquals(TileStatus.BLANK, env.getTileStatus(door), "The first door is open");
+		assertTrue(hierarchy.findPath(0, door, 0, 0) != null, "Path to the open door without a key");
+		assertEquals(7, hierarchy.getClusterRefreshes(), "Opening a door searches its cluster");
+
+		env.undo(record);
+		assertEquals(TileStatus.DOOR_BLUE, env.getTileStatus(door), "The first door is closed again");
+		assertNull(hierarchy.findPath(0, door, 0, 0), "No path to the closed door without a key");
+		assertEquals(8, hierarchy.getClusterRefreshes(), "Closing a door searches its cluster");
+	}
+}
@@ -0,0 +1,151 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks that JumpPointSearch finds paths exactly as long as breadth-first
+ * search on the public maps and on random walled grids. Starts and goals
+ * include every cell beside the end of a wall, where the jump rules decide
+ * whether to stop.
+ */
+public class JumpPointSearchTest {
+	private final int NUM_MAPS = 10;
+	private final int NUM_GRIDS = 40;
+	private final int GRID_SIZE = 16;
+	private final int NUM_RANDOM_GOALS = 10; // Random goals on top of the forced cells
+	private final long SEED = 411;
+
+	/* True where the cell can be moved onto */
+	private boolean isOpen(boolean[] open, int rows, int cols, int row, int col) {
+		return row >= 0 && row < rows && col >= 0 && col < cols && open[row * cols + col];
+	}
+
+	/* The open cells where a scan in some direction stops because a wall
+	 * beside it ends there, i.e. cells with a forced neighbor */
+	private ArrayList<Integer> forcedCells(boolean[] open, int rows, int cols) {
+		int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+		ArrayList<Integer> forced = new ArrayList<>();
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				boolean isForced = false;
+				for (int[] d : directions) {
+					for (int side = -1; side <= 1; side += 2) {
+						// The side cell is open but the one behind it is not
+						int sideRow = row + side * d[1];
+						int sideCol = col + side * d[0];
+						isForced |= isOpen(open, rows, cols, sideRow, sideCol)
+								&& !isOpen(open, rows, cols, sideRow - d[0], sideCol - d[1]);
+					}
+				}
+				if (open[row * cols + col] && isForced)
+					forced.add(row * cols + col);
+			}
+		}
+		return forced;
+	}
+
+	/* Breadth-first distances from start, -1 where there is no path */
+	private int[] bfs(Environment env, boolean[] open, int start) {
+		int[] distance = new int[open.length];
+		Arrays.fill(distance, -1);
+		distance[start] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(start);
+		while (!queue.isEmpty()) {
+			int current = queue.poll();
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = env.getNeighborIndex(current, direction);
+				if (next >= 0 && open[next] && distance[next] < 0) {
+					distance[next] = distance[current] + 1;
+					queue.add(next);
+				}
+			}
+		}
+		return distance;
+	}
+
+	/* Searches from every forced cell to every forced cell and a few random
+	 * open ones, and compares each path with breadth-first search */
+	private void assertMatchesBfs(Environment env, boolean[] open, Random random, String name) {
+		int rows = env.getRows();
+		int cols = env.getCols();
+		ArrayList<Integer> starts = forcedCells(open, rows, cols);
+		ArrayList<Integer> goals = new ArrayList<>(starts);
+		for (int i = 0; i < NUM_RANDOM_GOALS; i++) {
+			int cell = random.nextInt(open.length);
+			if (open[cell])
+				goals.add(cell);
+		}
+		JumpPointSearch search = new JumpPointSearch(env, index -> open[index]);
+		for (int start : starts) {
+			int[] distance = bfs(env, open, start);
+			for (int goal : goals) {
+				String msg = String.format("%s from %d to %d", name, start, goal);
+				int[] path = search.findPath(start, goal);
+				if (distance[goal] < 0) {
+					assertNull(path, msg + " has no path");
+					continue;
+				}
+				assertTrue(path != null, msg + " finds a path");
+				assertEquals(distance[goal], path.length - 1, msg + " path length");
+				assertEquals(start, path[0], msg + " starts at the start");
+				assertEquals(goal, path[path.length - 1], msg + " ends at the goal");
+				for (int i = 1; i < path.length; i++) {
+					int rowStep = Math.abs(path[i] / cols - path[i - 1] / cols);
+					int colStep = Math.abs(path[i] % cols - path[i - 1] % cols);
+					assertEquals(1, rowStep + colStep, msg + " moves one cell at a time");
+					assertTrue(open[path[i]], msg + " only crosses open cells");
+				}
+			}
+		}
+	}
+
+	/**
+	 * On every public map, with every door open, paths are as long as the
+	 * breadth-first ones.
+	 */
+	@Test
+	public void testPublicMapsMatchBfs() {
+		Random random = new Random(SEED);
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			Environment env = new Environment(MapManager.loadMap(String.format("maps/public/map%02d.txt", map)));
+			boolean[] open = new boolean[env.getRows() * env.getCols()];
+			for (int i = 0; i < open.length; i++) {
+				TileStatus status = env.getTileStatus(i);
+				open[i] = status != TileStatus.WALL && status != TileStatus.WATER;
+			}
+			assertMatchesBfs(env, open, random, String.format("Map %02d", map));
+		}
+	}
+
+	/**
+	 * On random grids from nearly empty to mostly walls, paths are as long
+	 * as the breadth-first ones, and walled-off goals have none.
+	 */
+	@Test
+	public void testRandomGridsMatchBfs() {
+		Random random = new Random(SEED);
+		Environment env = new Environment(GRID_SIZE, GRID_SIZE);
+		for (int grid = 0; grid < NUM_GRIDS; grid++) {
+			double density = 0.5 * grid / NUM_GRIDS;
+			boolean[] open = new boolean[GRID_SIZE * GRID_SIZE];
+			for (int i = 0; i < open.length; i++) {
+				open[i] = random.nextDouble() >= density;
+			}
+			assertMatchesBfs(env, open, random, String.format("Grid %d", grid));
+		}
+	}
+}
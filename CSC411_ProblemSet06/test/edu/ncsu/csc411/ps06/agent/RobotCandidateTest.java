@@ -0,0 +1,128 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Inventory;
+import edu.ncsu.csc411.ps06.environment.Position;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+import edu.ncsu.csc411.ps06.utils.MapGenerator;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks that the subgoal Robot.chooseCandidate picks from a batch
+ * searched in parallel is the one a serial evaluation of the same batch
+ * picks, and the one breadth-first search says is closest.
+ */
+public class RobotCandidateTest {
+	private final int NUM_MAPS = 10;
+	private final int NUM_VAULT_MAPS = 2;
+	private final int VAULT_SIZE = 60;
+	private final int NUM_TICKS = 60; // Ticks played per map, with batches checked after each
+	private final int MAX_CANDIDATES = 6;
+	private final long SEED = 411;
+	private final TileStatus[] KEYS = {TileStatus.KEY_BLUE, TileStatus.KEY_GREEN, TileStatus.KEY_RED, TileStatus.KEY_YELLOW};
+
+	/* Breadth-first distances from start for a robot with the given keys, -1 where unreachable */
+	private int[] bfs(Environment env, int start, int inventory, int remainingChips) {
+		int[] distance = new int[env.getRows() * env.getCols()];
+		Arrays.fill(distance, -1);
+		distance[start] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(start);
+		while (!queue.isEmpty()) {
+			int current = queue.poll();
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = env.getNeighborIndex(current, direction);
+				if (next >= 0 && distance[next] < 0
+						&& Environment.isPassable(env.getTileStatus(next), inventory, remainingChips)) {
+					distance[next] = distance[current] + 1;
+					queue.add(next);
+				}
+			}
+		}
+		return distance;
+	}
+
+	/* A random batch of chips, keys, doors and the portal, in random order */
+	private Position[] randomBatch(Environment env, Random random) {
+		ArrayList<Position> pois = new ArrayList<>();
+		for (ArrayList<Position> positions : env.getEnvironmentPositions().values()) {
+			pois.addAll(positions);
+		}
+		Collections.shuffle(pois, random);
+		int count = Math.min(pois.size(), 1 + random.nextInt(MAX_CANDIDATES));
+		return pois.subList(0, count).toArray(new Position[0]);
+	}
+
+	/* Checks one batch with the given keys and chip count */
+	private void assertSameWinner(Environment env, Robot robot, Position[] candidates, int inventory,
+			int remainingChips, String msg) {
+		int start = env.getIndex(env.getRobotPosition(robot));
+		int[] distance = bfs(env, start, inventory, remainingChips);
+		int expected = -1;
+		for (int i = 0; i < candidates.length; i++) {
+			int goal = env.getIndex(candidates[i]);
+			if (goal != start && distance[goal] >= 0
+					&& (expected < 0 || distance[goal] < distance[env.getIndex(candidates[expected])]))
+				expected = i;
+		}
+
+		int[][] parallelPaths = new int[candidates.length][];
+		int[][] serialPaths = new int[candidates.length][];
+		int parallel = robot.chooseCandidate(candidates, parallelPaths, inventory, remainingChips, true);
+		int serial = robot.chooseCandidate(candidates, serialPaths, inventory, remainingChips, false);
+		assertEquals(serial, parallel, msg + " parallel and serial winners");
+		assertEquals(expected, parallel, msg + " winner is the closest, the earliest on a tie");
+		if (parallel >= 0 && parallelPaths[parallel] != null) {
+			int goal = env.getIndex(candidates[parallel]);
+			assertTrue(Arrays.equals(serialPaths[parallel], parallelPaths[parallel]), msg + " same path");
+			assertEquals(distance[goal], parallelPaths[parallel].length - 1, msg + " shortest path");
+		}
+	}
+
+	/* Plays a map with the default planner and checks random batches after
+	 * every tick, with the robot's own keys and with random ones */
+	private void assertSameWinners(Environment env, Random random, String name) {
+		Robot robot = env.getRobots().get(0);
+		for (int tick = 0; tick < NUM_TICKS && !env.goalConditionMet(); tick++) {
+			String msg = String.format("%s after tick %d", name, tick);
+			assertSameWinner(env, robot, randomBatch(env, random), env.getRobotInventory(robot),
+					env.getNumRemainingChips(), msg);
+			int inventory = 0;
+			for (TileStatus key : KEYS) {
+				if (random.nextBoolean())
+					inventory = Inventory.add(inventory, key);
+			}
+			assertSameWinner(env, robot, randomBatch(env, random), inventory, random.nextInt(2), msg + " with other keys");
+			env.updateEnvironment();
+		}
+	}
+
+	/**
+	 * On the public maps and on maps of locked vaults, the parallel and
+	 * serial evaluations of random batches agree with each other and with
+	 * breadth-first search.
+	 */
+	@Test
+	public void testParallelMatchesSerial() {
+		Random random = new Random(SEED);
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			Environment env = new Environment(MapManager.loadMap(String.format("maps/public/map%02d.txt", map)));
+			assertSameWinners(env, random, String.format("Map %02d", map));
+		}
+		for (int map = 0; map < NUM_VAULT_MAPS; map++) {
+			String[][] vaults = MapGenerator.generateVaults(VAULT_SIZE, VAULT_SIZE, VAULT_SIZE / 10, VAULT_SIZE / 10, SEED + map);
+			assertSameWinners(new Environment(vaults), random, "Vaults " + map);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.Action;
+import edu.ncsu.csc411.ps06.environment.Environment;
+
+/**
+ * Checks when getAction replays its cached path and when it searches
+ * again, by watching getNodesExpanded.
+ */
+public class RobotPlanCacheTest {
+	/* The chip and the tile below the cell before it are both three steps
+	 * from the robot, and the chip wins the tie on grid index, so the robot
+	 * walks along the top row */
+	private final String[][] CORRIDOR = {
+			{"ST", "BL", "BL", "CH"},
+			{"WL", "WL", "BL", "WL"}};
+
+	private Environment corridor(String below) {
+		Environment env = new Environment(CORRIDOR.length, CORRIDOR[0].length);
+		for (int row = 0; row < CORRIDOR.length; row++) {
+			for (int col = 0; col < CORRIDOR[row].length; col++) {
+				env.setTile(row, col, CORRIDOR[row][col]);
+			}
+		}
+		env.setTile(1, 2, below);
+		return env;
+	}
+
+	/* Takes the Robot's next move and returns how many nodes it expanded for it */
+	private long step(Environment env, Robot robot, Action expected) {
+		long before = robot.getNodesExpanded();
+		Action action = robot.getAction();
+		assertEquals(expected, action, "Next move");
+		env.applyAction(robot, action);
+		return robot.getNodesExpanded() - before;
+	}
+
+	/**
+	 * Only the first move searches while nothing changes, and a tile
+	 * changing off the path, from one wall to another, keeps the path.
+	 */
+	@Test
+	public void testTileChangeOffPathReplays() {
+		Environment env = corridor("BL");
+		Robot robot = env.getRobots().get(0);
+		assertTrue(step(env, robot, Action.MOVE_RIGHT) > 0, "The first move searches");
+		env.setTile(1, 0, "WA");
+		assertEquals(0, step(env, robot, Action.MOVE_RIGHT), "A move after a change off the path is replayed");
+		assertEquals(0, step(env, robot, Action.MOVE_RIGHT), "The last move is replayed");
+	}
+
+	/**
+	 * A tile changing on the rest of the path makes the next move search
+	 * again, even when the path could still be walked.
+	 */
+	@Test
+	public void testTileChangeOnPathReplans() {
+		Environment env = corridor("BL");
+		Robot robot = env.getRobots().get(0);
+		assertTrue(step(env, robot, Action.MOVE_RIGHT) > 0, "The first move searches");
+		env.setTile(0, 2, "KB");
+		assertTrue(step(env, robot, Action.MOVE_RIGHT) > 0, "A move after a change on the path searches");
+	}
+
+	/**
+	 * A door the robot has no key for opening off the path makes the next
+	 * move search again, as it may open a shorter way.
+	 */
+	@Test
+	public void testDoorOpeningReplans() {
+		Environment env = corridor("DB");
+		Robot robot = env.getRobots().get(0);
+		assertTrue(step(env, robot, Action.MOVE_RIGHT) > 0, "The first move searches");
+		env.setTile(1, 2, "BL");
+		assertTrue(step(env, robot, Action.MOVE_RIGHT) > 0, "A move after a door opens searches");
+	}
+
+	/**
+	 * Stepping off the path and back onto it keeps the path when nothing
+	 * was picked up on the way, but not when the robot picked up a key.
+	 */
+	@Test
+	public void testInventoryChangeReplans() {
+		for (String below : new String[] {"BL", "KB"}) {
+			Environment env = corridor(below);
+			Robot robot = env.getRobots().get(0);
+			assertTrue(step(env, robot, Action.MOVE_RIGHT) > 0, below + ": the first move searches");
+			assertEquals(0, step(env, robot, Action.MOVE_RIGHT), below + ": the second move is replayed");
+			env.applyAction(robot, Action.MOVE_DOWN);
+			env.applyAction(robot, Action.MOVE_UP);
+			boolean pickedUp = env.getRobotInventory(robot) != 0;
+			assertEquals(below.equals("KB"), pickedUp, below + ": key picked up on the way");
+			long expanded = step(env, robot, Action.MOVE_RIGHT);
+			assertEquals(pickedUp, expanded > 0, below + ": the move after the detour searches");
+		}
+	}
+}
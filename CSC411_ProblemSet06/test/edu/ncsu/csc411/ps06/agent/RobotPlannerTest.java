@@ -0,0 +1,71 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Compares the optimal full-state planner with the default greedy planner
+ * on the public maps.
+ */
+public class RobotPlannerTest {
+	private final int NUM_MAPS = 10;
+	private final int ITERATIONS = 1000; // Number of iterations ("moves") per map
+	private String error = "Map %02d: optimal planner took %d moves, greedy planner %d";
+	/* A corridor with a chip, a blue key, a blue door, the DOOR_GOAL and the portal */
+	private final String[][] CORRIDOR = {{"ST", "CH", "KB", "BL", "DB", "DP", "PL"}};
+	/* A chip on either side of the robot. The nearer one is on the way to
+	 * the portal, so the shortest plan fetches the farther one first */
+	private final String[][] TWO_CHIPS = {{"CH", "BL", "BL", "ST", "BL", "CH", "BL", "BL", "PL"}};
+	/* The red key is down a dead end, away from the red door before the chip */
+	private final String[][] DEAD_END_KEY = {
+			{"ST", "BL", "DR", "CH", "PL"},
+			{"BL", "WL", "WL", "WL", "WL"},
+			{"KR", "BL", "BL", "BL", "BL"}};
+
+	/* Runs a public map until the goal is met and returns the number of moves taken */
+	private int solve(int map, boolean optimal) {
+		return solve(MapManager.loadMap(String.format("maps/public/map%02d.txt", map)), optimal);
+	}
+
+	/* Runs a map until the goal is met and returns the number of moves taken */
+	private int solve(String[][] map, boolean optimal) {
+		Environment env = new Environment(map);
+		env.getRobots().get(0).setOptimalPlanning(optimal);
+		for (int move = 1; move <= ITERATIONS; move++) {
+			env.updateEnvironment();
+			if (env.goalConditionMet()) {
+				return move;
+			}
+		}
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * The optimal planner must solve every public map in no more moves
+	 * than the greedy planner does.
+	 */
+	@Test
+	public void testOptimalNeverLongerThanGreedy() {
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			int greedy = solve(map, false);
+			int optimal = solve(map, true);
+			assertTrue(optimal <= greedy && optimal < Integer.MAX_VALUE, String.format(error, map, optimal, greedy));
+		}
+	}
+
+	/**
+	 * The optimal planner must take exactly the known shortest number of
+	 * moves on small maps worked out by hand.
+	 */
+	@Test
+	public void testKnownOptimalMoves() {
+		assertEquals(6, solve(CORRIDOR, true), "Corridor: walk straight to the portal");
+		assertEquals(11, solve(TWO_CHIPS, true), "Two chips: 3 moves left, then 8 right");
+		assertEquals(8, solve(DEAD_END_KEY, true), "Dead-end key: 2 moves down, then 6 to the portal");
+	}
+}
@@ -0,0 +1,136 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.environment.ChunkedTileStorage;
+import edu.ncsu.csc411.ps06.environment.Environment;
+import edu.ncsu.csc411.ps06.environment.Position;
+import edu.ncsu.csc411.ps06.environment.TileStatus;
+import edu.ncsu.csc411.ps06.utils.MapGenerator;
+
+/**
+ * Runs the sparse map of BenchmarkSimulation, a room carved out of a huge
+ * map of walls, and checks that searches on grids that big keep their
+ * workspace to the cells they reach, and that a Robot there still finds
+ * its way to the portal without a distance field.
+ */
+public class SearchWorkspaceTest {
+	private final int SIZE = 10000; // Rows and columns of the sparse map
+	private final int ROOM = 200; // Rows and columns of the room
+	private final int SMALL_ROOM = 20; // Rows and columns of the room played to the end
+	private final int TICKS = 200;
+	private final int NUM_SEARCHES = 50;
+	private final long SEED = 411;
+
+	/* Copies the room into the corner of a SIZE x SIZE map of walls */
+	private Environment sparseMap(String[][] room) {
+		Environment env = new Environment(SIZE, SIZE, new ChunkedTileStorage(SIZE, SIZE, TileStatus.WALL));
+		for (int row = 0; row < room.length; row++) {
+			for (int col = 0; col < room[row].length; col++) {
+				env.setTile(row, col, room[row][col]);
+			}
+		}
+		return env;
+	}
+
+	/* A* between two cells of a grid with the given number of columns,
+	 * returning the cells in the order they were expanded, then the path */
+	private int[] search(SearchWorkspace workspace, Environment env, int cols, int cells, int start, int goal) {
+		int[] trace = new int[2 * ROOM * ROOM];
+		int length = 0;
+		workspace.reset(cells);
+		workspace.push(start, 0, -1, 0);
+		while (!workspace.isEmpty()) {
+			int current = workspace.pop();
+			trace[length++] = current;
+			if (current == goal) {
+				int[] path = workspace.buildPath(goal);
+				System.arraycopy(path, 0, trace, length, workspace.getPathLength());
+				return Arrays.copyOf(trace, length + workspace.getPathLength());
+			}
+			int row = current / cols;
+			int col = current % cols;
+			int[][] steps = {{row - 1, col}, {row + 1, col}, {row, col - 1}, {row, col + 1}};
+			for (int[] step : steps) {
+				if (step[0] < 0 || step[0] >= ROOM || step[1] < 0 || step[1] >= ROOM
+						|| env.getTileStatus(step[0], step[1]) == TileStatus.WALL) {
+					continue;
+				}
+				int next = step[0] * cols + step[1];
+				int cost = workspace.getCost(current) + 1;
+				if (!workspace.isClosed(next) && cost < workspace.getCost(next)) {
+					int goalRow = goal / cols;
+					int goalCol = goal % cols;
+					workspace.push(next, cost, current, cost + Math.abs(step[0] - goalRow) + Math.abs(step[1] - goalCol));
+				}
+			}
+		}
+		return Arrays.copyOf(trace, length);
+	}
+
+	/**
+	 * The same searches expand the same cells in the same order and find
+	 * the same paths whether the workspace indexes its arrays by cell or,
+	 * on a grid too big for that, by hashed slot.
+	 */
+	@Test
+	public void testSparseSearchMatchesDense() {
+		Environment env = new Environment(MapGenerator.generate(ROOM, ROOM, ROOM, 1, SEED));
+		SearchWorkspace dense = new SearchWorkspace();
+		SearchWorkspace sparse = new SearchWorkspace();
+		Random random = new Random(SEED);
+		for (int i = 0; i < NUM_SEARCHES; i++) {
+			int startRow = random.nextInt(ROOM);
+			int startCol = random.nextInt(ROOM);
+			int goalRow = random.nextInt(ROOM);
+			int goalCol = random.nextInt(ROOM);
+			int[] expected = search(dense, env, ROOM, ROOM * ROOM, startRow * ROOM + startCol, goalRow * ROOM + goalCol);
+			int[] actual = search(sparse, env, SIZE, SIZE * SIZE, startRow * SIZE + startCol, goalRow * SIZE + goalCol);
+			for (int j = 0; j < actual.length; j++) {
+				actual[j] = actual[j] / SIZE * ROOM + actual[j] % SIZE;
+			}
+			assertArrayEquals(expected, actual, "Search " + i);
+		}
+	}
+
+	/**
+	 * A Robot in the room of a 10000x10000 map collects chips, and the
+	 * workspace only grows with the cells the searches reach, not with the
+	 * 10^8 cells of the map.
+	 */
+	@Test
+	public void testSparseMapStaysInRoom() {
+		Environment env = sparseMap(MapGenerator.generate(ROOM, ROOM, ROOM, 1, SEED));
+		int chips = env.getNumRemainingChips();
+		for (int tick = 0; tick < TICKS; tick++) {
+			env.updateEnvironment();
+		}
+		assertTrue(env.getNumRemainingChips() < chips, "Robot collects chips");
+		int capacity = SearchWorkspace.forCurrentThread().getCapacity();
+		assertTrue(capacity <= 2 * ROOM * ROOM, "Workspace holds " + capacity + " cells");
+	}
+
+	/**
+	 * A Robot in a small room of a 10000x10000 map collects every chip and
+	 * goes through the portal. The map is too big for distance fields, so
+	 * the goal phase searches instead of building a grid's worth of them.
+	 */
+	@Test
+	public void testSparseMapReachesPortal() {
+		Environment env = sparseMap(MapGenerator.generate(SMALL_ROOM, SMALL_ROOM, SMALL_ROOM / 4, 1, SEED));
+		Position portal = env.getEnvironmentPositions().get(TileStatus.GOAL).get(0);
+		assertNull(env.getDistanceField(portal, env.getRobots().get(0)), "No distance field on a chunked map");
+		assertNull(env.getDistanceField(portal), "No doors-open distance field on a chunked map");
+		for (int tick = 0; tick < TICKS && !env.goalConditionMet(); tick++) {
+			env.updateEnvironment();
+		}
+		assertTrue(env.goalConditionMet(), "Robot reaches the portal");
+	}
+}
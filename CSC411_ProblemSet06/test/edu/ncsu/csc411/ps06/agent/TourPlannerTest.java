@@ -0,0 +1,133 @@
+package edu.ncsu.csc411.ps06.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the chip order solvers of TourPlanner on random distance
+ * matrices: Held-Karp against every permutation, and that the 2-opt and
+ * Or-opt moves never make a tour longer.
+ */
+public class TourPlannerTest {
+	private final int MAX_EXACT_CHIPS = 7;
+	private final int MAX_CHIPS = 20;
+	private final int NUM_MATRICES = 50; // Random matrices per number of chips
+	private final int SIZE = 30; // Width and height of the grid the stops are on
+	private final long SEED = 411;
+
+	/* Manhattan distances between random cells, like the walled-off
+	 * distances of a map: stops 0 to n - 1 are the chips, n is the start
+	 * and n + 1 the goal */
+	private int[][] randomMatrix(Random random, int n) {
+		int[] rows = new int[n + 2];
+		int[] cols = new int[n + 2];
+		for (int i = 0; i < n + 2; i++) {
+			rows[i] = random.nextInt(SIZE);
+			cols[i] = random.nextInt(SIZE);
+		}
+		int[][] matrix = new int[n + 2][n + 2];
+		for (int i = 0; i < n + 2; i++) {
+			for (int j = 0; j < n + 2; j++) {
+				matrix[i][j] = Math.abs(rows[i] - rows[j]) + Math.abs(cols[i] - cols[j]);
+			}
+		}
+		return matrix;
+	}
+
+	/* The length of the walk from the start, through order, to the goal */
+	private int length(int[][] matrix, int[] order) {
+		int n = order.length;
+		int current = n;
+		int total = 0;
+		for (int stop : order) {
+			total += matrix[current][stop];
+			current = stop;
+		}
+		return total + matrix[current][n + 1];
+	}
+
+	/* The shortest length over every order of the chips from first on */
+	private int bruteForce(int[][] matrix, int[] order, int first) {
+		if (first == order.length)
+			return length(matrix, order);
+		int best = Integer.MAX_VALUE;
+		for (int i = first; i < order.length; i++) {
+			swap(order, first, i);
+			best = Math.min(best, bruteForce(matrix, order, first + 1));
+			swap(order, first, i);
+		}
+		return best;
+	}
+
+	private void swap(int[] order, int i, int j) {
+		int swap = order[i];
+		order[i] = order[j];
+		order[j] = swap;
+	}
+
+	private int[] identity(int n) {
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		return order;
+	}
+
+	private void assertPermutation(int[] order, int n, String msg) {
+		int[] sorted = order.clone();
+		Arrays.sort(sorted);
+		assertTrue(Arrays.equals(identity(n), sorted), msg + " visits every chip once: " + Arrays.toString(order));
+	}
+
+	/**
+	 * Held-Karp finds a tour exactly as short as the best of every
+	 * permutation, for up to MAX_EXACT_CHIPS chips.
+	 */
+	@Test
+	public void testHeldKarpMatchesBruteForce() {
+		Random random = new Random(SEED);
+		for (int n = 0; n <= MAX_EXACT_CHIPS; n++) {
+			for (int m = 0; m < NUM_MATRICES; m++) {
+				int[][] matrix = randomMatrix(random, n);
+				String msg = String.format("%d chips, matrix %d", n, m);
+				int[] order = TourPlanner.heldKarp(matrix, n);
+				assertPermutation(order, n, msg);
+				assertEquals(bruteForce(matrix, identity(n), 0), length(matrix, order), msg);
+			}
+		}
+	}
+
+	/**
+	 * Improving a random order or a nearest neighbor order with 2-opt and
+	 * Or-opt moves keeps every chip and never lengthens the tour.
+	 */
+	@Test
+	public void testLocalMovesNeverLengthen() {
+		Random random = new Random(SEED);
+		for (int n = 1; n <= MAX_CHIPS; n++) {
+			for (int m = 0; m < NUM_MATRICES; m++) {
+				int[][] matrix = randomMatrix(random, n);
+				String msg = String.format("%d chips, matrix %d", n, m);
+				int[] shuffled = identity(n);
+				for (int i = n - 1; i > 0; i--) {
+					swap(shuffled, i, random.nextInt(i + 1));
+				}
+				int[] nearest = TourPlanner.nearestNeighbor(matrix, n);
+				assertPermutation(nearest, n, msg + " nearest neighbor");
+				for (int[] initial : new int[][] {shuffled, nearest}) {
+					int before = length(matrix, initial);
+					// improve may reorder the array it is given
+					int[] improved = TourPlanner.improve(matrix, initial.clone());
+					assertPermutation(improved, n, msg);
+					assertTrue(length(matrix, improved) <= before,
+							msg + ": " + length(matrix, improved) + " after improving, " + before + " before");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+
+/**
+ * Checks that the DistanceFields the Environment shares and keeps between
+ * ticks always agree with a fresh search of the current tiles.
+ */
+public class EnvironmentDistanceFieldTest {
+	private final int NUM_ACTIONS = 500; // Random actions per map
+
+	private int[] distances(DistanceField field, int cells) {
+		int[] distances = new int[cells];
+		for (int i = 0; i < cells; i++) {
+			distances[i] = field.getDistance(i);
+		}
+		return distances;
+	}
+
+	private void assertFresh(Environment env, Robot robot, Position target, String msg) {
+		int cells = env.getRows() * env.getCols();
+		int index = env.getIndex(target);
+		DistanceField robotField = new DistanceField(env, index, false, env.getRobotInventory(robot),
+				env.getNumRemainingChips());
+		DistanceField openField = new DistanceField(env, index, true, Inventory.EMPTY, env.getNumRemainingChips());
+		assertArrayEquals(distances(robotField, cells), distances(env.getDistanceField(target, robot), cells), msg);
+		assertArrayEquals(distances(openField, cells), distances(env.getDistanceField(target), cells), msg);
+	}
+
+	/* The portal, which is never collected */
+	private Position portal(Environment env) {
+		return env.getEnvironmentPositions().get(TileStatus.GOAL).get(0);
+	}
+
+	/**
+	 * Plays every public map with random moves, undoing some of them, and
+	 * compares the shared fields to the portal with fresh ones after each.
+	 */
+	@Test
+	public void testSharedFieldsMatchFreshSearch() {
+		RandomPlay.play(NUM_ACTIONS, (env, robot, msg) -> assertFresh(env, robot, portal(env), msg));
+	}
+
+	/**
+	 * Two Robots behind a blue door share one field while neither holds a
+	 * key. Once one of them picks up the blue key they need different
+	 * fields, and each still matches a fresh search for that Robot.
+	 */
+	@Test
+	public void testRobotsWithDifferentKeys() {
+		Environment env = new Environment(2, 5);
+		String[][] rows = {{"ST", "KB", "BL", "DB", "PL"}, {"ST", "BL", "BL", "WL", "WL"}};
+		for (int row = 0; row < rows.length; row++) {
+			for (int col = 0; col < rows[row].length; col++) {
+				env.setTile(row, col, rows[row][col]);
+			}
+		}
+		Robot withKey = env.getRobots().get(0);
+		Robot without = env.getRobots().get(1);
+		Position target = portal(env);
+		assertSame(env.getDistanceField(target, withKey), env.getDistanceField(target, without),
+				"One field for Robots with the same keys");
+
+		env.applyAction(withKey, Action.MOVE_RIGHT);
+		env.applyAction(withKey, Action.MOVE_RIGHT);
+		DistanceField open = env.getDistanceField(target, withKey);
+		DistanceField closed = env.getDistanceField(target, without);
+		assertNotSame(open, closed, "A field for each set of keys");
+		assertEquals(2, open.getDistance(env.getIndex(env.getRobotPosition(withKey))), "Through the door");
+		assertFalse(closed.getDistance(2) == open.getDistance(2), "Not through the door");
+		assertFresh(env, withKey, target, "Robot with the key");
+		assertFresh(env, without, target, "Robot without the key");
+	}
+
+	/**
+	 * Placing and removing walls changes both kinds of field.
+	 */
+	@Test
+	public void testSetTileUpdatesFields() {
+		Environment env = new Environment(5, 5);
+		env.setTile(0, 0, "ST");
+		env.setTile(4, 4, "PL");
+		env.setTile(2, 1, "DR");
+		Robot robot = env.getRobots().get(0);
+		Position target = new Position(4, 4);
+		assertFresh(env, robot, target, "Before placing walls");
+		for (int col = 0; col < 5; col++) {
+			if (col != 1) {
+				env.setTile(2, col, "WL");
+			}
+		}
+		assertFresh(env, robot, target, "After walling off the portal");
+		env.setTile(2, 3, "BL");
+		assertFresh(env, robot, target, "After removing a wall");
+	}
+}
@@ -0,0 +1,90 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+
+/**
+ * Checks the events updateEnvironment reports, their order and contents,
+ * on a corridor where every kind of event happens at a known tick.
+ */
+public class EnvironmentEventTest {
+	/* A robot, a chip, a blue key, a blue door, the DOOR_GOAL and the portal.
+	 * Items are collected when the robot steps off them, so the key is one
+	 * cell before the door to be held in time. */
+	private final String[] CORRIDOR = {"ST", "CH", "KB", "BL", "DB", "DP", "PL"};
+
+	private Environment corridor() {
+		Environment env = new Environment(1, CORRIDOR.length);
+		for (int col = 0; col < CORRIDOR.length; col++) {
+			env.setTile(0, col, CORRIDOR[col]);
+		}
+		return env;
+	}
+
+	/**
+	 * Walks the corridor and compares every event with the one expected:
+	 * each move comes first, then whatever the robot collected from the
+	 * cell it left, then the goal once it is reached.
+	 */
+	@Test
+	public void testEventOrderAndContents() {
+		Environment env = corridor();
+		Robot robot = env.getRobots().get(0);
+		List<EnvironmentEvent> events = new ArrayList<EnvironmentEvent>();
+		env.addListener(events::add);
+		for (int tick = 0; tick < CORRIDOR.length - 1; tick++) {
+			env.updateEnvironment();
+		}
+		List<String> expected = Arrays.asList(
+				"[TIME STEP 001] ROBOT_MOVED CHIP at Point (0, 1)",
+				"[TIME STEP 002] ROBOT_MOVED KEY_BLUE at Point (0, 2)",
+				"[TIME STEP 002] ITEM_PICKED_UP CHIP at Point (0, 1)",
+				"[TIME STEP 003] ROBOT_MOVED BLANK at Point (0, 3)",
+				"[TIME STEP 003] ITEM_PICKED_UP KEY_BLUE at Point (0, 2)",
+				"[TIME STEP 004] ROBOT_MOVED DOOR_BLUE at Point (0, 4)",
+				"[TIME STEP 005] ROBOT_MOVED DOOR_GOAL at Point (0, 5)",
+				"[TIME STEP 005] DOOR_OPENED DOOR_BLUE at Point (0, 4)",
+				"[TIME STEP 006] ROBOT_MOVED GOAL at Point (0, 6)",
+				"[TIME STEP 006] DOOR_OPENED DOOR_GOAL at Point (0, 5)",
+				"[TIME STEP 006] GOAL_REACHED GOAL at Point (0, 6)");
+		List<String> actual = new ArrayList<String>();
+		for (EnvironmentEvent event : events) {
+			actual.add(event.toString());
+			assertTrue(event.getRobot() == robot, "Event from the robot: " + event);
+		}
+		assertEquals(expected, actual, "Events");
+		assertEquals(new Position(0, 4), events.get(7).getPosition(), "Door position");
+		assertEquals(EnvironmentEvent.Type.DOOR_OPENED, events.get(7).getType(), "Door event");
+		assertEquals(TileStatus.DOOR_BLUE, events.get(7).getStatus(), "Door status");
+		assertEquals(5, events.get(7).getTick(), "Door tick");
+	}
+
+	/**
+	 * Standing still reports nothing, moves tried with applyAction and
+	 * undone are not reported, and a removed listener hears no more.
+	 */
+	@Test
+	public void testSilentChanges() {
+		Environment env = corridor();
+		Robot robot = env.getRobots().get(0);
+		List<EnvironmentEvent> events = new ArrayList<EnvironmentEvent>();
+		EnvironmentListener listener = events::add;
+		env.addListener(listener);
+		env.commitAction(robot, Action.DO_NOTHING, null);
+		int record = env.applyAction(robot, Action.MOVE_RIGHT);
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		env.undo(record);
+		assertEquals(0, events.size(), "Events while standing still or trying moves");
+		env.removeListener(listener);
+		env.updateEnvironment();
+		assertEquals(0, events.size(), "Events after the listener is removed");
+	}
+}
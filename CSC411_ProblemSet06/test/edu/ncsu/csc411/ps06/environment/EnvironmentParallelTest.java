@@ -0,0 +1,71 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+import edu.ncsu.csc411.ps06.utils.MapGenerator;
+
+/**
+ * Checks how updateEnvironment commits moves decided in parallel: clashes
+ * go to the first Robot in getRobots() order, and the outcome does not
+ * depend on which thread finished deciding first.
+ */
+public class EnvironmentParallelTest {
+	private final int SIZE = 40;
+	private final int NUM_CHIPS = 30;
+	private final int NUM_ROBOTS = 6;
+	private final int NUM_TICKS = 300;
+	private final int NUM_RUNS = 5;
+	private final long SEED = 411;
+
+	/**
+	 * Two Robots on either side of a chip both step onto it in the same
+	 * tick. The first Robot gets the cell and the chip, and the second
+	 * stays where it was.
+	 */
+	@Test
+	public void testFirstRobotWinsClash() {
+		Environment env = new Environment(1, 4);
+		String[] row = {"ST", "CH", "ST", "PL"};
+		for (int col = 0; col < row.length; col++) {
+			env.setTile(0, col, row[col]);
+		}
+		env.setParallelDecisions(true);
+		Robot first = env.getRobots().get(0);
+		Robot second = env.getRobots().get(1);
+		assertEquals(Action.MOVE_RIGHT, first.getAction(), "First Robot heads for the chip");
+		assertEquals(Action.MOVE_LEFT, second.getAction(), "Second Robot heads for the chip");
+
+		env.updateEnvironment();
+		assertEquals(new Position(0, 1), env.getRobotPosition(first), "First Robot takes the cell");
+		assertEquals(new Position(0, 2), env.getRobotPosition(second), "Second Robot stays put");
+		assertEquals(1, env.getNumRemainingChips(), "Chip is only collected once the cell is left");
+	}
+
+	/**
+	 * Runs the same crowded map with parallel decisions several times and
+	 * checks that every run goes through exactly the same states.
+	 */
+	@Test
+	public void testParallelTicksAreDeterministic() {
+		String[][] map = MapGenerator.generate(SIZE, SIZE, NUM_CHIPS, NUM_ROBOTS, SEED);
+		long[] expected = null;
+		for (int run = 0; run < NUM_RUNS; run++) {
+			Environment env = new Environment(map);
+			env.setParallelDecisions(true);
+			long[] hashes = new long[NUM_TICKS];
+			for (int tick = 0; tick < NUM_TICKS; tick++) {
+				env.updateEnvironment();
+				hashes[tick] = env.getStateHash();
+			}
+			if (expected == null) {
+				expected = hashes;
+			}
+			for (int tick = 0; tick < NUM_TICKS; tick++) {
+				assertEquals(expected[tick], hashes[tick], "Run " + run + " state after tick " + (tick + 1));
+			}
+		}
+	}
+}
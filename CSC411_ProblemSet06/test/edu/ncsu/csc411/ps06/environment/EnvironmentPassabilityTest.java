@@ -0,0 +1,84 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+
+/**
+ * Checks that each Robot's passability bitset always agrees with the
+ * door and wall rules applied to the current tiles, inventory and chip
+ * count, as keys are collected, doors are opened and moves are undone.
+ */
+public class EnvironmentPassabilityTest {
+	private final int NUM_ACTIONS = 2000; // Random actions per map
+
+	private void assertConsistent(Environment env, Robot robot, String msg) {
+		int inventory = env.getRobotInventory(robot);
+		int chips = env.getNumRemainingChips();
+		for (int i = 0; i < env.getRows() * env.getCols(); i++) {
+			boolean expected = Environment.isPassable(env.getTileStatus(i), inventory, chips);
+			assertEquals(expected, env.isPassable(robot, i), msg + " at index " + i);
+		}
+	}
+
+	/**
+	 * Plays every public map with random moves, undoing some of them,
+	 * and compares the bitset to the rules after each one.
+	 */
+	@Test
+	public void testBitsetMatchesRules() {
+		RandomPlay.play(NUM_ACTIONS, this::assertConsistent);
+	}
+
+	/**
+	 * Opening a blue door spends the only blue key, so a second blue door
+	 * further on flips back to impassable, and undoing the move that opened
+	 * the first door flips it back again.
+	 */
+	@Test
+	public void testSpentKeyClosesDoors() {
+		Environment env = new Environment(1, 6);
+		String[] row = {"ST", "KB", "BL", "DB", "BL", "DB"};
+		for (int col = 0; col < row.length; col++) {
+			env.setTile(0, col, row[col]);
+		}
+		Robot robot = env.getRobots().get(0);
+		assertFalse(env.isPassable(robot, 5), "Blue door without a key");
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		assertTrue(env.isPassable(robot, 3) && env.isPassable(robot, 5), "Blue doors with the key");
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		int record = env.applyAction(robot, Action.MOVE_RIGHT);
+		assertEquals(TileStatus.BLANK, env.getTileStatus(3), "First door opened");
+		assertFalse(env.isPassable(robot, 5), "Second blue door once the key is spent");
+		assertConsistent(env, robot, "After spending the key");
+		env.undo(record);
+		assertTrue(env.isPassable(robot, 5), "Second blue door with the key back");
+		assertConsistent(env, robot, "After undoing the door");
+	}
+
+	/**
+	 * Placing and replacing tiles after the robot exists updates its bits,
+	 * including the DOOR_GOAL when the last chip is placed or removed.
+	 */
+	@Test
+	public void testSetTileUpdatesBitset() {
+		Environment env = new Environment(5, 5);
+		env.setTile(0, 0, "ST");
+		Robot robot = env.getRobots().get(0);
+		env.setTile(4, 3, "DP");
+		env.setTile(4, 4, "PL");
+		env.setTile(2, 2, "WL");
+		env.setTile(1, 4, "DR");
+		assertConsistent(env, robot, "After placing doors");
+		env.setTile(3, 3, "CH");
+		assertConsistent(env, robot, "After placing a chip");
+		env.setTile(3, 3, "BL");
+		env.setTile(2, 2, "BL");
+		assertConsistent(env, robot, "After clearing tiles");
+	}
+}
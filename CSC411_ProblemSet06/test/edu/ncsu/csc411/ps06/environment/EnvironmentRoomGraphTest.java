@@ -0,0 +1,186 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+
+/**
+ * Checks that the RoomGraph and the component labels built on it answer
+ * reachability exactly like a search of the cells, and that the RoomGraph
+ * orders the keys by the doors in front of them.
+ */
+public class EnvironmentRoomGraphTest {
+	private final int NUM_ACTIONS = 500; // Random actions per map
+
+	/* Which cells a Robot could move onto from start, by searching the grid */
+	private boolean[] search(Environment env, int start, int inventory, int remainingChips) {
+		int cells = env.getRows() * env.getCols();
+		boolean[] reached = new boolean[cells];
+		int[] queue = new int[cells];
+		int head = 0;
+		int tail = 0;
+		reached[start] = true;
+		queue[tail++] = start;
+		while (head < tail) {
+			int cell = queue[head++];
+			for (int direction = 0; direction < Environment.NUM_DIRECTIONS; direction++) {
+				int next = env.getNeighborIndex(cell, direction);
+				if (next >= 0 && !reached[next]
+						&& Environment.isPassable(env.getTileStatus(next), inventory, remainingChips)) {
+					reached[next] = true;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return reached;
+	}
+
+	private boolean[] lookUp(Environment env, int start, int inventory, int remainingChips) {
+		RoomGraph rooms = env.getRoomGraph();
+		boolean[] nodes = rooms.reachableFrom(start, inventory, remainingChips);
+		boolean[] reached = new boolean[env.getRows() * env.getCols()];
+		for (int cell = 0; cell < reached.length; cell++) {
+			reached[cell] = cell == start || (rooms.getNode(cell) >= 0 && nodes[rooms.getNode(cell)]);
+		}
+		return reached;
+	}
+
+	/**
+	 * Plays every public map with random moves, undoing some of them, and
+	 * compares the reachable cells after each.
+	 */
+	@Test
+	public void testReachabilityMatchesSearch() {
+		RandomPlay.play(NUM_ACTIONS, (env, robot, msg) -> {
+			int start = env.getIndex(env.getRobotPosition(robot));
+			int inventory = env.getRobotInventory(robot);
+			int chips = env.getNumRemainingChips();
+			assertArrayEquals(search(env, start, inventory, chips), lookUp(env, start, inventory, chips), msg);
+		});
+	}
+
+	/* Checks that two cells share a component exactly when one can be
+	 * reached from the other without keys */
+	private void assertComponents(Environment env, int start, String msg) {
+		// One chip left keeps the DOOR_GOAL closed like the colored doors
+		boolean[] reached = search(env, start, Inventory.EMPTY, 1);
+		boolean[] labelled = new boolean[reached.length];
+		for (int cell = 0; cell < labelled.length; cell++) {
+			labelled[cell] = env.getComponent(cell) == env.getComponent(start);
+		}
+		assertArrayEquals(reached, labelled, msg);
+	}
+
+	/**
+	 * Plays every public map with random moves, opening doors and closing
+	 * them again with undo, and checks the components from the robot's
+	 * cell after each.
+	 */
+	@Test
+	public void testComponentsMatchSearch() {
+		RandomPlay.play(NUM_ACTIONS, (env, robot, msg) -> {
+			int start = env.getIndex(env.getRobotPosition(robot));
+			// A door is only opened once the robot steps off it
+			if (env.getRoomGraph().getNode(start) < env.getRoomGraph().getRoomCount()) {
+				assertComponents(env, start, msg);
+			}
+		});
+	}
+
+	/**
+	 * Opening a door merges the rooms on each side into one component, and
+	 * undoing the move that opened it splits them apart again.
+	 */
+	@Test
+	public void testUndoSplitsMergedComponents() {
+		Environment env = new Environment(1, 5);
+		String[] row = {"ST", "KB", "BL", "DB", "BL"};
+		for (int col = 0; col < row.length; col++) {
+			env.setTile(0, col, row[col]);
+		}
+		Robot robot = env.getRobots().get(0);
+		assertNotEquals(env.getComponent(0), env.getComponent(4), "Rooms apart before the door opens");
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		env.applyAction(robot, Action.MOVE_RIGHT);
+		int record = env.applyAction(robot, Action.MOVE_RIGHT);
+		assertEquals(env.getComponent(0), env.getComponent(4), "Rooms merged once the door opens");
+		assertComponents(env, 0, "After the merge");
+		env.undo(record);
+		assertNotEquals(env.getComponent(0), env.getComponent(4), "Rooms apart after the undo");
+		assertNotEquals(env.getComponent(0), env.getComponent(3), "The door apart after the undo");
+		assertComponents(env, 0, "After the undo");
+		assertComponents(env, 4, "After the undo, from the far room");
+	}
+
+	/**
+	 * Each key comes after the door that hides it, and a key behind a door
+	 * that no key opens is left out.
+	 */
+	@Test
+	public void testKeyOrder() {
+		Environment env = new Environment(1, 8);
+		String[] row = {"ST", "KB", "DB", "KR", "DR", "KG", "DY", "KY"};
+		for (int col = 0; col < row.length; col++) {
+			env.setTile(0, col, row[col]);
+		}
+		assertArrayEquals(new int[] {1, 3, 5}, env.getRoomGraph().getKeyOrder(0, Inventory.EMPTY),
+				"Keys in the order their doors open");
+	}
+
+	/**
+	 * Four rooms in a chain: the blue key beside the start opens the way to
+	 * the red key, which opens the room of the yellow key, which opens the
+	 * room of the green one. The red door is next to the start, but its key
+	 * only comes after the blue door. From the green key's room nothing
+	 * opens without a yellow key, and with one the yellow key's room does.
+	 */
+	@Test
+	public void testKeyOrderThroughRooms() {
+		String[][] rows = {
+				{"ST", "BL", "DB", "BL", "KR"},
+				{"KB", "WL", "WL", "WL", "WL"},
+				{"DR", "WL", "WL", "WL", "WL"},
+				{"KY", "BL", "DY", "BL", "KG"}};
+		Environment env = new Environment(rows.length, rows[0].length);
+		for (int row = 0; row < rows.length; row++) {
+			for (int col = 0; col < rows[row].length; col++) {
+				env.setTile(row, col, rows[row][col]);
+			}
+		}
+		assertEquals(4, env.getRoomGraph().getRoomCount(), "Rooms");
+		assertArrayEquals(new int[] {5, 4, 15, 19}, env.getRoomGraph().getKeyOrder(0, Inventory.EMPTY),
+				"Blue, red, yellow, then green");
+		assertArrayEquals(new int[] {19}, env.getRoomGraph().getKeyOrder(18, Inventory.EMPTY),
+				"Only the green key from its own room");
+		int yellow = Inventory.add(Inventory.EMPTY, TileStatus.KEY_YELLOW);
+		assertArrayEquals(new int[] {19, 15}, env.getRoomGraph().getKeyOrder(18, yellow),
+				"Green, then yellow once the yellow door opens");
+	}
+
+	/**
+	 * Maps stored in chunks are too big for a label per cell, so they get no
+	 * RoomGraph or components, and a Robot still finds its way by search.
+	 */
+	@Test
+	public void testNoRoomGraphForChunkedMaps() {
+		int size = 1 << 12;
+		Environment env = new Environment(size, size + 1, new ChunkedTileStorage(size, size + 1, TileStatus.WALL));
+		String[] row = {"ST", "CH", "KB", "DB", "DP", "PL"};
+		for (int col = 0; col < row.length; col++) {
+			env.setTile(0, col, row[col]);
+		}
+		assertNull(env.getRoomGraph(), "No RoomGraph above TileStorage.DENSE_LIMIT cells");
+		assertEquals(-1, env.getComponent(0), "No components without a RoomGraph");
+		for (int tick = 0; tick < 2 * row.length && !env.goalConditionMet(); tick++) {
+			env.updateEnvironment();
+		}
+		assertTrue(env.goalConditionMet(), "Robot reaches the goal");
+	}
+}
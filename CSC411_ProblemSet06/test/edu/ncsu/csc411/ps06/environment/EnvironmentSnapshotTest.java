@@ -0,0 +1,70 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks that an EnvironmentSnapshot moves exactly like the Environment it
+ * was taken from, and that forks never change the snapshot they came from.
+ */
+public class EnvironmentSnapshotTest {
+	private final int NUM_MAPS = 10;
+	private final int NUM_ACTIONS = 500; // Random actions per map
+	private final long SEED = 411;
+
+	private void assertSame(Environment env, Robot robot, EnvironmentSnapshot snapshot, String msg) {
+		assertEquals(env.getIndex(env.getRobotPosition(robot)), snapshot.getRobotIndex(), msg);
+		assertEquals(env.getRobotInventory(robot), snapshot.getInventory(), msg);
+		assertEquals(env.getNumRemainingChips(), snapshot.getNumRemainingChips(), msg);
+		assertEquals(env.goalConditionMet(), snapshot.goalConditionMet(), msg);
+		for (int i = 0; i < env.getRows() * env.getCols(); i++) {
+			assertEquals(env.getTileStatus(i), snapshot.getTileStatus(i), msg + " at index " + i);
+		}
+	}
+
+	/**
+	 * Drives every public map with the Robot's own moves mixed with random
+	 * ones, taking each with commitAction on the Environment and apply on a
+	 * snapshot, and compares every tile, the robot's position and keys, and
+	 * the chip count after each.
+	 */
+	@Test
+	public void testApplyMatchesCommitAction() {
+		Random random = new Random(SEED);
+		Action[] actions = Action.values();
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			String file = String.format("maps/public/map%02d.txt", map);
+			Environment env = new Environment(MapManager.loadMap(file));
+			Robot robot = env.getRobots().get(0);
+			EnvironmentSnapshot snapshot = env.snapshot(robot);
+			assertSame(env, robot, snapshot, String.format("Map %02d at the start", map));
+			for (int i = 1; i <= NUM_ACTIONS; i++) {
+				Action action = random.nextBoolean() ? robot.getAction() : actions[random.nextInt(actions.length)];
+				env.commitAction(robot, action, null);
+				snapshot = snapshot.apply(action);
+				assertSame(env, robot, snapshot, String.format("Map %02d after action %d", map, i));
+			}
+		}
+	}
+
+	/**
+	 * Forking a snapshot for every action leaves the parent unchanged, so a
+	 * lookahead search can expand the same node again and again.
+	 */
+	@Test
+	public void testForksLeaveParentUnchanged() {
+		Environment env = new Environment(MapManager.loadMap("maps/public/map04.txt"));
+		Robot robot = env.getRobots().get(0);
+		EnvironmentSnapshot parent = env.snapshot(robot);
+		for (Action action : Action.values()) {
+			parent.apply(action).apply(action).apply(action);
+			assertSame(env, robot, parent, "Parent after forking " + action);
+		}
+	}
+}
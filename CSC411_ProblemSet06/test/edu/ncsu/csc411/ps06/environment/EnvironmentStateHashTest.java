@@ -0,0 +1,212 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks that the incremental Zobrist hash kept by the Environment
+ * always matches a hash recomputed from scratch, that it tells states
+ * apart by what they hold and not by how they were reached, and that undoing
+ * moves made with applyAction restores the exact prior state without
+ * allocating.
+ */
+public class EnvironmentStateHashTest {
+	private final int NUM_MAPS = RandomPlay.NUM_MAPS;
+	private final int NUM_ACTIONS = 2000; // Random actions per map
+	private final long SEED = 411;
+
+	/**
+	 * Plays every public map with a long sequence of random actions,
+	 * picking up keys and chips and opening doors along the way and undoing
+	 * some of it, and compares the incremental hash to a full recomputation
+	 * after each one.
+	 */
+	@Test
+	public void testIncrementalHashMatchesRecomputation() {
+		RandomPlay.play(NUM_ACTIONS,
+				(env, robot, msg) -> assertEquals(env.recomputeStateHash(), env.getStateHash(), msg));
+	}
+
+	/**
+	 * Walking away and back again returns to the same state, so it must
+	 * return to the same hash, while the state in between must differ.
+	 */
+	@Test
+	public void testHashDependsOnlyOnState() {
+		Environment env = new Environment(MapManager.loadMap("maps/public/map06.txt"));
+		Robot robot = env.getRobots().get(0);
+		long start = env.getStateHash();
+		Position p = env.getRobotPosition(robot);
+		Action there = env.validPos(p.getRow(), p.getCol() + 1, robot) ? Action.MOVE_RIGHT : Action.MOVE_LEFT;
+		Action back = there == Action.MOVE_RIGHT ? Action.MOVE_LEFT : Action.MOVE_RIGHT;
+
+		env.commitAction(robot, there, null);
+		assertNotEquals(start, env.getStateHash());
+		env.commitAction(robot, back, null);
+		assertEquals(start, env.getStateHash());
+	}
+
+	/* Builds a map from rows of tile acronyms */
+	private Environment build(String[][] rows) {
+		Environment env = new Environment(rows.length, rows[0].length);
+		for (int row = 0; row < rows.length; row++) {
+			for (int col = 0; col < rows[row].length; col++) {
+				env.setTile(row, col, rows[row][col]);
+			}
+		}
+		return env;
+	}
+
+	/* Takes each action with commitAction and returns the hash after them */
+	private long play(Environment env, Robot robot, Action... actions) {
+		for (Action action : actions) {
+			env.commitAction(robot, action, null);
+		}
+		assertEquals(env.recomputeStateHash(), env.getStateHash(), "Hash after " + Arrays.toString(actions));
+		return env.getStateHash();
+	}
+
+	/**
+	 * A transposition: collecting two chips in either order and ending on
+	 * the same cell reaches the same state, so it must reach the same hash,
+	 * which is what lets a search find it in a transposition table.
+	 */
+	@Test
+	public void testTranspositionsShareHash() {
+		String[][] map = {{"ST", "CH"}, {"CH", "BL"}};
+		Environment rightFirst = build(map);
+		Environment downFirst = build(map);
+		long right = play(rightFirst, rightFirst.getRobots().get(0),
+				Action.MOVE_RIGHT, Action.MOVE_LEFT, Action.MOVE_DOWN, Action.MOVE_RIGHT);
+		long down = play(downFirst, downFirst.getRobots().get(0),
+				Action.MOVE_DOWN, Action.MOVE_UP, Action.MOVE_RIGHT, Action.MOVE_DOWN);
+		assertEquals(0, rightFirst.getNumRemainingChips(), "Both chips collected");
+		assertEquals(rightFirst.getRobotPosition(rightFirst.getRobots().get(0)),
+				downFirst.getRobotPosition(downFirst.getRobots().get(0)), "Same cell");
+		assertEquals(right, down, "Hash of the same state");
+	}
+
+	/**
+	 * States that hold the same things in different places must not share
+	 * a hash: two Robots that swap cells, and a key that is carried rather
+	 * than lying where the Robot stands.
+	 */
+	@Test
+	public void testSwappedStatesDiffer() {
+		Environment env = build(new String[][] {{"ST", "BL", "ST"}, {"BL", "BL", "BL"}});
+		Robot first = env.getRobots().get(0);
+		Robot second = env.getRobots().get(1);
+		long start = env.getStateHash();
+		play(env, second, Action.MOVE_DOWN, Action.MOVE_LEFT, Action.MOVE_LEFT, Action.MOVE_UP);
+		long swapped = play(env, first, Action.MOVE_RIGHT, Action.MOVE_RIGHT);
+		assertEquals(new Position(0, 2), env.getRobotPosition(first), "First Robot on the second's cell");
+		assertEquals(new Position(0, 0), env.getRobotPosition(second), "Second Robot on the first's cell");
+		assertNotEquals(start, swapped, "Hash after the Robots swap");
+
+		Environment key = build(new String[][] {{"ST", "KB"}});
+		Robot robot = key.getRobots().get(0);
+		long onFloor = play(key, robot, Action.MOVE_RIGHT);
+		long carried = play(key, robot, Action.MOVE_LEFT, Action.MOVE_RIGHT);
+		assertEquals(new Position(0, 1), key.getRobotPosition(robot), "Back on the key's cell");
+		assertNotEquals(onFloor, carried, "Hash with the key carried");
+	}
+
+	/**
+	 * Makes random moves in bursts and undoes each burst, as a depth-first
+	 * search would, checking that every tile, the robot, its inventory, the
+	 * chip count and the hash are back where they started.
+	 */
+	@Test
+	public void testUndoRestoresState() {
+		Random random = new Random(SEED);
+		Action[] actions = Action.values();
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			String file = String.format("maps/public/map%02d.txt", map);
+			Environment env = new Environment(MapManager.loadMap(file));
+			Robot robot = env.getRobots().get(0);
+			for (int burst = 0; burst < NUM_ACTIONS / 50; burst++) {
+				TileStatus[] tiles = new TileStatus[env.getRows() * env.getCols()];
+				for (int i = 0; i < tiles.length; i++) {
+					tiles[i] = env.getTileStatus(i);
+				}
+				Position position = env.getRobotPosition(robot);
+				int inventory = env.getRobotInventory(robot);
+				int chips = env.getNumRemainingChips();
+				long hash = env.getStateHash();
+
+				int first = env.applyAction(robot, actions[random.nextInt(actions.length)]);
+				for (int i = 0; i < 50; i++) {
+					env.applyAction(robot, actions[random.nextInt(actions.length)]);
+				}
+				env.undo(first);
+
+				String msg = String.format("State not restored on map %02d after burst %d", map, burst);
+				assertEquals(position, env.getRobotPosition(robot), msg);
+				assertEquals(inventory, env.getRobotInventory(robot), msg);
+				assertEquals(chips, env.getNumRemainingChips(), msg);
+				assertEquals(hash, env.getStateHash(), msg);
+				assertEquals(env.recomputeStateHash(), env.getStateHash(), msg);
+				for (int i = 0; i < tiles.length; i++) {
+					assertEquals(tiles[i], env.getTileStatus(i), msg);
+				}
+
+				// Keep one move so the next burst starts somewhere new
+				env.applyAction(robot, actions[random.nextInt(actions.length)]);
+			}
+		}
+	}
+
+	/**
+	 * Repeats the moves the Robot plans on every public map, undoing them
+	 * after each round. Once the first round has grown the undo log, later
+	 * rounds must not allocate anything, even though they pick up and put
+	 * back chips and keys and open and close doors.
+	 */
+	@Test
+	public void testApplyAndUndoDoNotAllocate() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assertTrue(threads.isThreadAllocatedMemorySupported(), "Allocations can be counted");
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			String file = String.format("maps/public/map%02d.txt", map);
+			Environment env = new Environment(MapManager.loadMap(file));
+			Robot robot = env.getRobots().get(0);
+			// Record the Robot's own moves on a copy of the map
+			Environment planned = new Environment(MapManager.loadMap(file));
+			Action[] burst = new Action[NUM_ACTIONS / 10];
+			for (int i = 0; i < burst.length; i++) {
+				burst[i] = planned.getRobots().get(0).getAction();
+				planned.commitAction(planned.getRobots().get(0), burst[i], null);
+			}
+			int chips = env.getNumRemainingChips();
+			int fewest = chips;
+			// Every round does the same work, so an allocation in the code shows
+			// up in all of them, while the JVM's own, e.g. on deoptimization,
+			// only lands in some
+			long allocated = Long.MAX_VALUE;
+			for (int round = 0; round < 10; round++) {
+				long before = threads.getCurrentThreadAllocatedBytes();
+				int first = env.applyAction(robot, burst[0]);
+				for (int i = 1; i < burst.length; i++) {
+					env.applyAction(robot, burst[i]);
+					fewest = Math.min(fewest, env.getNumRemainingChips());
+				}
+				env.undo(first);
+				if (round > 0) {
+					allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - before);
+				}
+			}
+			assertTrue(fewest < chips, String.format("Burst picks up a chip on map %02d", map));
+			assertEquals(0, allocated, String.format("Bytes allocated on map %02d", map));
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import java.util.Random;
+
+import edu.ncsu.csc411.ps06.agent.Robot;
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * The driver shared by the tests that compare something the Environment
+ * keeps up to date as it changes with the same thing worked out from
+ * scratch. It plays random moves on every public map with applyAction,
+ * undoing one in four of them, so keys are collected, doors opened and
+ * both taken back again, and runs a check at the start and after every
+ * move.
+ */
+public final class RandomPlay {
+	/** The public maps are maps/public/map01.txt to map10.txt */
+	public static final int NUM_MAPS = 10;
+	private static final long SEED = 411;
+
+	/** A check of the Environment after a move. */
+	public interface Check {
+		/**
+		 * Asserts something about the Environment.
+		 * @param env - the Environment being played
+		 * @param robot - the Robot making the moves
+		 * @param msg - the map and the move, for assertion messages
+		 */
+		void check(Environment env, Robot robot, String msg);
+	}
+
+	private RandomPlay() {
+	}
+
+	/**
+	 * Plays every public map from the start with the same random moves,
+	 * running the check at the start and after each move.
+	 * @param actions - the number of moves per map
+	 * @param check - the Check to run
+	 */
+	public static void play(int actions, Check check) {
+		Random random = new Random(SEED);
+		Action[] choices = Action.values();
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			String file = String.format("maps/public/map%02d.txt", map);
+			Environment env = new Environment(MapManager.loadMap(file));
+			Robot robot = env.getRobots().get(0);
+			check.check(env, robot, String.format("Map %02d at the start", map));
+			for (int i = 1; i <= actions; i++) {
+				int record = env.applyAction(robot, choices[random.nextInt(choices.length)]);
+				if (random.nextInt(4) == 0) {
+					env.undo(record);
+				}
+				check.check(env, robot, String.format("Map %02d after action %d", map, i));
+			}
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks the SpatialIndex queries against sorting every cell by distance,
+ * and that the Environment keeps its indices in step with its item lists.
+ */
+public class SpatialIndexTest {
+	private final int NUM_MAPS = 10;
+	private final int NUM_ACTIONS = 500; // Random actions per map
+	private final int ROWS = 70;
+	private final int COLS = 45;
+	private final int NUM_OPERATIONS = 2000; // Random adds and removes
+	private final long SEED = 411;
+
+	/* The k cells closest to (row, col) by Manhattan distance then grid index */
+	private int[] bruteForce(List<Integer> cells, int row, int col, int k, int radius) {
+		List<Integer> sorted = new ArrayList<Integer>(cells);
+		sorted.removeIf(cell -> distance(cell, row, col) > radius);
+		sorted.sort((a, b) -> distance(a, row, col) != distance(b, row, col)
+				? Integer.compare(distance(a, row, col), distance(b, row, col)) : Integer.compare(a, b));
+		int[] result = new int[Math.min(k, sorted.size())];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = sorted.get(i);
+		}
+		return result;
+	}
+
+	private int distance(int cell, int row, int col) {
+		return Math.abs(cell / COLS - row) + Math.abs(cell % COLS - col);
+	}
+
+	/**
+	 * Adds and removes random cells, then after each compares nearest and
+	 * withinRadius from a random cell with sorting every cell still in the
+	 * index. Removing a cell that is not there reports false.
+	 */
+	@Test
+	public void testQueriesMatchBruteForce() {
+		Random random = new Random(SEED);
+		SpatialIndex index = new SpatialIndex(ROWS, COLS);
+		List<Integer> cells = new ArrayList<Integer>();
+		for (int i = 1; i <= NUM_OPERATIONS; i++) {
+			if (cells.isEmpty() || random.nextInt(3) > 0) {
+				int cell = random.nextInt(ROWS * COLS);
+				if (!cells.contains(cell)) {
+					index.add(cell);
+					cells.add(cell);
+				}
+			} else {
+				Integer cell = cells.remove(random.nextInt(cells.size()));
+				assertTrue(index.remove(cell), "Removes a cell it holds at operation " + i);
+				assertFalse(index.remove(cell), "Removes a cell twice at operation " + i);
+			}
+			assertEquals(cells.size(), index.size(), "Size at operation " + i);
+			int row = random.nextInt(ROWS);
+			int col = random.nextInt(COLS);
+			int k = 1 + random.nextInt(20);
+			assertArrayEquals(bruteForce(cells, row, col, k, Integer.MAX_VALUE), index.nearest(row, col, k),
+					"Nearest " + k + " at operation " + i);
+			int radius = random.nextInt(40);
+			assertArrayEquals(bruteForce(cells, row, col, Integer.MAX_VALUE, radius),
+					index.withinRadius(row, col, radius), "Within " + radius + " at operation " + i);
+		}
+	}
+
+	/**
+	 * Drives every public map with the Robot's own moves and random ones,
+	 * undoing some of the random ones, and checks that each item index
+	 * holds exactly the positions of its item list, so items that are
+	 * collected or put back change both.
+	 */
+	@Test
+	public void testIndicesMatchPositions() {
+		Random random = new Random(SEED);
+		Action[] actions = Action.values();
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			String file = String.format("maps/public/map%02d.txt", map);
+			Environment env = new Environment(MapManager.loadMap(file));
+			for (int i = 1; i <= NUM_ACTIONS; i++) {
+				env.updateEnvironment();
+				int record = env.applyAction(env.getRobots().get(0), actions[random.nextInt(actions.length)]);
+				if (random.nextInt(4) == 0) {
+					env.undo(record);
+				}
+				for (TileStatus item : env.getEnvironmentPositions().keySet()) {
+					List<Integer> cells = new ArrayList<Integer>();
+					for (Position p : env.getEnvironmentPositions().get(item)) {
+						cells.add(env.getIndex(p));
+					}
+					SpatialIndex index = env.getSpatialIndex(item);
+					int[] all = index.nearest(0, 0, Integer.MAX_VALUE);
+					int[] expected = cells.stream().sorted().mapToInt(Integer::intValue).toArray();
+					Arrays.sort(all);
+					assertArrayEquals(expected, all, String.format("Map %02d %s after action %d", map, item, i));
+				}
+			}
+		}
+	}
+}
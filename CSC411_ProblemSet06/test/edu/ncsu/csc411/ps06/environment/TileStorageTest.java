@@ -0,0 +1,102 @@
+package edu.ncsu.csc411.ps06.environment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ncsu.csc411.ps06.utils.MapManager;
+
+/**
+ * Checks that every TileStorage, on the heap, off it, memory-mapped or in
+ * chunks, behaves exactly like the dense default.
+ */
+public class TileStorageTest {
+	private final int NUM_MAPS = 10;
+	private final int ITERATIONS = 200; // Ticks per map
+	private final int ROWS = 37;
+	private final int COLS = 53;
+	private final int NUM_WRITES = 5000;
+	private final long SEED = 411;
+
+	/* The other storages for a map, all filled with fill */
+	private TileStorage[] others(int rows, int cols, TileStatus fill) throws IOException {
+		Path file = Files.createTempFile("tiles", ".bin");
+		file.toFile().deleteOnExit();
+		return new TileStorage[] {new OffHeapTileStorage(rows, cols, fill),
+				OffHeapTileStorage.mapped(file, rows, cols, fill), new ChunkedTileStorage(rows, cols, fill)};
+	}
+
+	/**
+	 * Random writes read back the same from every storage as from the
+	 * dense one, and a copy does not see writes made after it was taken.
+	 */
+	@Test
+	public void testStoragesMatchDense() throws IOException {
+		Random random = new Random(SEED);
+		TileStatus[] statuses = TileStatus.values();
+		DenseTileStorage dense = new DenseTileStorage(ROWS, COLS, TileStatus.WALL);
+		TileStorage[] others = others(ROWS, COLS, TileStatus.WALL);
+		TileStorage[] copies = new TileStorage[others.length];
+		TileStorage denseCopy = null;
+		for (int i = 0; i < NUM_WRITES; i++) {
+			int index = random.nextInt(ROWS * COLS);
+			byte status = (byte) statuses[random.nextInt(statuses.length)].ordinal();
+			dense.set(index, status);
+			for (TileStorage other : others) {
+				other.set(index, status);
+			}
+			if (i == NUM_WRITES / 2) {
+				denseCopy = dense.copy();
+				for (int j = 0; j < others.length; j++) {
+					copies[j] = others[j].copy();
+				}
+			}
+		}
+		for (int index = 0; index < ROWS * COLS; index++) {
+			for (int j = 0; j < others.length; j++) {
+				String storage = others[j].getClass().getSimpleName() + " " + j;
+				assertEquals(dense.get(index), others[j].get(index), storage + " at index " + index);
+				assertEquals(denseCopy.get(index), copies[j].get(index), storage + " copy at index " + index);
+			}
+		}
+	}
+
+	/**
+	 * Runs every public map on each storage with the same Robot, and
+	 * compares every tile and the state hash with the dense run after each
+	 * tick.
+	 */
+	@Test
+	public void testRunsMatchDense() throws IOException {
+		for (int map = 1; map <= NUM_MAPS; map++) {
+			String[][] tiles = MapManager.loadMap(String.format("maps/public/map%02d.txt", map));
+			Environment dense = new Environment(tiles);
+			TileStorage[] storages = others(tiles.length, tiles[0].length, TileStatus.BLANK);
+			Environment[] others = new Environment[storages.length];
+			for (int j = 0; j < storages.length; j++) {
+				others[j] = new Environment(tiles, storages[j]);
+			}
+			for (int tick = 1; tick <= ITERATIONS && !dense.goalConditionMet(); tick++) {
+				dense.updateEnvironment();
+				for (int j = 0; j < others.length; j++) {
+					Environment other = others[j];
+					other.updateEnvironment();
+					String msg = String.format("Map %02d %s after tick %d", map,
+							storages[j].getClass().getSimpleName(), tick);
+					assertEquals(dense.getStateHash(), other.getStateHash(), msg);
+					for (int index = 0; index < tiles.length * tiles[0].length; index++) {
+						assertEquals(dense.getTileStatus(index), other.getTileStatus(index), msg + " at index " + index);
+					}
+				}
+			}
+			for (Environment other : others) {
+				assertEquals(dense.goalConditionMet(), other.goalConditionMet(), String.format("Map %02d goal", map));
+			}
+		}
+	}
+}